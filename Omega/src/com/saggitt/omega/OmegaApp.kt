@@ -29,9 +29,16 @@ import android.provider.Settings
 import android.util.Log
 import com.android.launcher3.InvariantDeviceProfile
 import com.android.launcher3.Utilities
+import com.android.launcher3.util.StartupInitializer
 import com.android.quickstep.RecentsActivity
 import com.android.systemui.shared.system.QuickStepContract
 import com.saggitt.omega.blur.BlurWallpaperProvider
+import com.saggitt.omega.data.AppTrackerRepository
+import com.saggitt.omega.data.IconOverrideRepository
+import com.saggitt.omega.data.NeoLauncherDb
+import com.saggitt.omega.data.PeopleRepository
+import com.saggitt.omega.iconpack.IconPackProvider
+import com.saggitt.omega.icons.ThemedIconMap
 import com.saggitt.omega.smartspace.OmegaSmartSpaceController
 import com.saggitt.omega.theme.ThemeManager
 import org.chickenhook.restrictionbypass.Unseal
@@ -52,6 +59,15 @@ class OmegaApp : Application() {
         super.onCreate()
         instance = this
         QuickStepContract.sRecentsDisabled = !recentsEnabled
+        StartupInitializer.initialize(
+            this,
+            NeoLauncherDb.INSTANCE,
+            AppTrackerRepository.INSTANCE,
+            IconOverrideRepository.INSTANCE,
+            PeopleRepository.INSTANCE,
+            IconPackProvider.INSTANCE,
+            ThemedIconMap.INSTANCE
+        )
     }
 
     override fun attachBaseContext(base: Context?) {
@@ -67,21 +67,18 @@ import com.android.systemui.plugins.shared.LauncherOverlayManager
 import com.android.systemui.shared.system.QuickStepContract
 import com.farmerbb.taskbar.lib.Taskbar
 import com.google.systemui.smartspace.SmartSpaceView
-import com.saggitt.omega.data.PeopleRepository
+import com.saggitt.omega.data.ContactsSync
 import com.saggitt.omega.gestures.GestureController
 import com.saggitt.omega.popup.OmegaShortcuts
 import com.saggitt.omega.preferences.OmegaPreferences
 import com.saggitt.omega.preferences.OmegaPreferencesChangeCallback
-import com.saggitt.omega.search.PeopleItems
 import com.saggitt.omega.theme.ThemeManager
 import com.saggitt.omega.theme.ThemeOverride
 import com.saggitt.omega.util.Config
 import com.saggitt.omega.util.isPackageInstalled
-import kotlinx.coroutines.CoroutineName
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.plus
 import java.util.stream.Stream
 
 class OmegaLauncher : QuickstepLauncher(), LifecycleOwner, SavedStateRegistryOwner,
@@ -191,15 +188,7 @@ class OmegaLauncher : QuickstepLauncher(), LifecycleOwner, SavedStateRegistryOwn
             }
         }
         if (Utilities.hasPermission(this, android.Manifest.permission.READ_CONTACTS)) {
-            val peopleItems = PeopleItems(this)
-            val scope = CoroutineScope(Dispatchers.IO) + CoroutineName("PeopleRepository")
-            val repository = PeopleRepository.INSTANCE.get(this)
-            scope.launch {
-                repository.deleteAll()
-                val list = peopleItems.getPeopleInformation()
-                list.map { repository.insert(it) }
-            }
-
+            ContactsSync.INSTANCE.get(this).sync()
         } else {
             prefs.searchContacts.onSetValue(false)
         }
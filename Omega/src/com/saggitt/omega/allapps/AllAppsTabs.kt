@@ -18,11 +18,9 @@
 
 package com.saggitt.omega.allapps
 
-import android.content.ComponentName
 import android.content.Context
-import com.android.launcher3.model.data.ItemInfo
-import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.ItemInfoMatcher
+import com.android.launcher3.util.TraceHelper
 import com.saggitt.omega.groups.DrawerTabs
 import com.saggitt.omega.groups.FlowerpotTabs
 import com.saggitt.omega.util.omegaPrefs
@@ -40,47 +38,36 @@ class AllAppsTabs(private val context: Context) : Iterable<AllAppsTabs.Tab> {
             }
         }
 
-    private val addedApps = ArrayList<ComponentKey>()
-
     init {
         reloadTabs()
     }
 
     fun reloadTabs() {
-        addedApps.clear()
+        val traceToken = TraceHelper.INSTANCE.beginSection("AllAppsTabs.reloadTabs")
         tabs.clear()
-        context.omegaPrefs.drawerTabsModelCurrent.getGroups().mapNotNullTo(tabs) {
-            when {
+        val model = context.omegaPrefs.drawerTabsModelCurrent
+        val groups = model.getGroups()
+        val membership = model.membership
+        membership.rebuild(groups)
+        groups.forEachIndexed { index, it ->
+            val tab = when {
                 it is DrawerTabs.ProfileTab -> {
                     if (hasWorkApps != it.profile.matchesAll) {
-                        ProfileTab(createMatcher(addedApps, it.profile.matcher), it)
+                        ProfileTab(membership.getProfileMatcher(it.profile.matcher), it)
                     } else null
                 }
                 it is DrawerTabs.CustomTab -> {
-                    if (it.hideFromAllApps.value()) {
-                        addedApps.addAll(it.contents.value())
-                    }
-                    Tab(it.title, it.filter.matcher, drawerTab = it)
+                    Tab(it.title, membership.getMatcher(index) ?: it.filter.matcher, drawerTab = it)
                 }
                 it is FlowerpotTabs.FlowerpotTab && it.getMatches().isNotEmpty() -> {
-                    addedApps.addAll(it.getMatches())
-                    Tab(it.title, it.getFilter(context).matcher, drawerTab = it)
+                    Tab(it.title, membership.getMatcher(index) ?: it.getFilter(context).matcher,
+                            drawerTab = it)
                 }
                 else -> null
             }
+            tab?.let { t -> tabs.add(t) }
         }
-    }
-
-    private fun createMatcher(
-            components: List<ComponentKey>,
-            base: ItemInfoMatcher? = null
-    ): ItemInfoMatcher {
-        return object : ItemInfoMatcher {
-            override fun matches(info: ItemInfo, cn: ComponentName?): Boolean {
-                if (base?.matches(info, cn) == false) return false
-                return !components.contains(ComponentKey(info.targetComponent, info.user))
-            }
-        }
+        TraceHelper.INSTANCE.endSection(traceToken)
     }
 
     override fun iterator(): Iterator<Tab> {
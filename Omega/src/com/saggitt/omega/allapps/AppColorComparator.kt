@@ -23,33 +23,7 @@ import com.android.launcher3.model.data.AppInfo
 
 class AppColorComparator(context: Context?) : AppInfoComparator(context) {
     override fun compare(a: AppInfo, b: AppInfo): Int {
-        val hslA = FloatArray(3)
-        val hslB = FloatArray(3)
-        ColorUtils.colorToHSL(a.iconColor, hslA)
-        ColorUtils.colorToHSL(b.iconColor, hslB)
-        val h2A = remapHue(hslA[0])
-        val h2B = remapHue(hslB[0])
-        var s2A = remap(hslA[1])
-        var s2B = remap(hslB[1])
-        var l2A = remap(hslA[2])
-        var l2B = remap(hslB[2])
-        if (h2A % 2 == 1) {
-            s2A = REPETITIONS - s2A
-            l2A = REPETITIONS - l2A
-        }
-        if (h2B % 2 == 1) {
-            s2B = REPETITIONS - s2B
-            l2B = REPETITIONS - l2B
-        }
-        var result = h2A.compareTo(h2B)
-        if (result != 0) {
-            return result
-        }
-        result = l2A.compareTo(l2B)
-        if (result != 0) {
-            return result
-        }
-        result = s2A.compareTo(s2B)
+        val result = a.colorSortKey.compareTo(b.colorSortKey)
         return if (result != 0) {
             result
         } else super.compare(a, b)
@@ -67,5 +41,25 @@ class AppColorComparator(context: Context?) : AppInfoComparator(context) {
         fun remap(value: Float): Int {
             return (value * REPETITIONS).toInt()
         }
+
+        /**
+         * Returns the bucket of [color] packed into a single int, so that comparing buckets
+         * orders by hue first, then by lightness and saturation. The direction of lightness
+         * and saturation alternates between hues to get smooth transitions.
+         */
+        @JvmStatic
+        fun getColorBucket(color: Int): Int {
+            val hsl = FloatArray(3)
+            ColorUtils.colorToHSL(color, hsl)
+            val h = remapHue(hsl[0])
+            var s = remap(hsl[1])
+            var l = remap(hsl[2])
+            if (h % 2 == 1) {
+                s = REPETITIONS - s
+                l = REPETITIONS - l
+            }
+            // Every component is in 0..REPETITIONS and fits into 4 bits
+            return (h shl 8) or (l shl 4) or s
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.allapps
+
+import com.android.launcher3.LauncherAppState
+import com.android.launcher3.model.AllAppsList
+import com.android.launcher3.model.BaseModelUpdateTask
+import com.android.launcher3.model.BgDataModel
+import com.android.launcher3.pm.UserCache
+
+/**
+ * Applies the app filter again to the loaded apps, after the hidden apps changed, and rebinds the
+ * drawer if its apps changed. The workspace is left untouched.
+ */
+class ReloadDrawerAppsTask : BaseModelUpdateTask() {
+
+    override fun execute(app: LauncherAppState, dataModel: BgDataModel, apps: AllAppsList) {
+        for (user in UserCache.INSTANCE[app.context].userProfiles) {
+            apps.reloadPackages(app.context, user)
+        }
+        bindApplicationsIfNeeded()
+    }
+}
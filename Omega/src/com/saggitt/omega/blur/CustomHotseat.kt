@@ -33,6 +33,9 @@ import com.android.launcher3.graphics.NinePatchDrawHelper
 import com.android.launcher3.icons.GraphicsUtils.setColorAlphaBound
 import com.android.launcher3.icons.ShadowGenerator
 import com.android.launcher3.util.Themes
+import com.saggitt.omega.PREFS_DOCK_BACKGROUND
+import com.saggitt.omega.PREFS_DOCK_BACKGROUND_COLOR
+import com.saggitt.omega.PREFS_DOCK_OPACITY
 import com.saggitt.omega.preferences.OmegaPreferences
 import com.saggitt.omega.util.dpToPx
 import com.saggitt.omega.util.getWindowCornerRadius
@@ -51,7 +54,8 @@ class CustomHotseat @JvmOverloads constructor(
 
     private val launcher = Launcher.getLauncher(context)
     private val prefs by lazy { Utilities.getOmegaPrefs(context) }
-    private val prefsToWatch = arrayOf("pref_dockBackground", "pref_dockOpacity")
+    private val prefsToWatch =
+        arrayOf(PREFS_DOCK_BACKGROUND, PREFS_DOCK_BACKGROUND_COLOR, PREFS_DOCK_OPACITY)
 
     private var bgEnabled = prefs.dockBackground.onGetValue()
     private var radius = getWindowCornerRadius(context)
@@ -172,12 +172,16 @@ fun EditIconScreen(
             //Package Icons
             val iconDpi = LocalContext.current.resources.configuration.densityDpi
             val ip = IconPackProvider.INSTANCE.get(LocalContext.current)
+            // Held while the screen is shown, so that the previewed packs are not evicted
+            val previewedPacks = remember {
+                iconPacks.associate { it.packageName to ip.getIconPackOrSystem(it.packageName) }
+            }
 
             if (isFolder) {
                 //TODO: Add support for custom folder icons
             } else {
                 iconPacks.forEach {
-                    val pack: IconPack? = ip.getIconPackOrSystem(it.packageName)
+                    val pack: IconPack? = previewedPacks[it.packageName]
                     if (pack != null) {
                         pack.loadBlocking()
                         val iconEntry = pack.getIcon(componentKey.componentName)
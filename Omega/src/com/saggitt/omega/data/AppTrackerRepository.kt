@@ -20,7 +20,7 @@
 package com.saggitt.omega.data
 
 import android.content.Context
-import com.android.launcher3.util.MainThreadInitializedObject
+import com.android.launcher3.util.AnyThreadInitializedObject
 import kotlinx.coroutines.*
 
 class AppTrackerRepository(context: Context) {
@@ -60,6 +60,8 @@ class AppTrackerRepository(context: Context) {
     }
 
     companion object {
-        val INSTANCE = MainThreadInitializedObject(::AppTrackerRepository)
+        val INSTANCE = AnyThreadInitializedObject(
+            "AppTrackerRepository", ::AppTrackerRepository, NeoLauncherDb.INSTANCE
+        )
     }
 }
\ No newline at end of file
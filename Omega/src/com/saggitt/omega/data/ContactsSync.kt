@@ -0,0 +1,148 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.data
+
+import android.content.Context
+import android.net.Uri
+import android.os.Process
+import android.provider.ContactsContract.CommonDataKinds.Phone
+import android.provider.ContactsContract.Contacts
+import android.provider.ContactsContract.DeletedContacts
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.Utilities
+import com.android.launcher3.util.AnyThreadInitializedObject
+import com.android.launcher3.util.Executors.SimpleThreadFactory
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.plus
+import java.util.concurrent.Executors
+
+/**
+ * Copies the contacts with a phone number to [PeopleInfo]. Only the contacts updated or deleted
+ * since the last sync are read, using the contacts last updated timestamp and the deleted
+ * contacts log, and they are applied in a single transaction. Everything is read again on the
+ * first sync, or when the deleted contacts log may have been pruned since the last sync.
+ */
+class ContactsSync(private val context: Context) {
+
+    class Changes(
+        val full: Boolean,
+        val updated: List<PeopleInfo>,
+        val deletedIds: Set<String>,
+        val syncTime: Long
+    )
+
+    private val scope = CoroutineScope(
+        Executors.newSingleThreadExecutor(
+            SimpleThreadFactory("contacts-sync", Process.THREAD_PRIORITY_BACKGROUND)
+        ).asCoroutineDispatcher()
+    ) + CoroutineName("ContactsSync")
+    private val repository by lazy { PeopleRepository.INSTANCE.get(context) }
+    private val devicePrefs = Utilities.getDevicePrefs(context)
+
+    private var pendingSync: Job? = null
+
+    /**
+     * Starts a sync in the background, unless one is already pending
+     */
+    fun sync() {
+        if (pendingSync?.isActive == true) {
+            return
+        }
+        pendingSync = scope.launch {
+            val changes = readChanges(devicePrefs.getLong(KEY_LAST_SYNC, 0))
+            if (changes.full || changes.updated.isNotEmpty() || changes.deletedIds.isNotEmpty()) {
+                repository.applyChanges(changes.full, changes.updated, changes.deletedIds)
+            }
+            devicePrefs.edit().putLong(KEY_LAST_SYNC, changes.syncTime).apply()
+        }
+    }
+
+    /**
+     * Reads the contacts changed since [lastSync], or all of them if that is not possible
+     */
+    @VisibleForTesting
+    fun readChanges(lastSync: Long, now: Long = System.currentTimeMillis()): Changes {
+        val full = lastSync <= 0 || lastSync > now
+                || now - lastSync > DeletedContacts.DAYS_KEPT_MILLISECONDS
+        // Changes made while reading are read again on the next sync, which is harmless
+        val selectionArgs = if (full) null else arrayOf(lastSync.toString())
+
+        val changedIds = HashSet<String>()
+        if (!full) {
+            query(Contacts.CONTENT_URI, Contacts._ID,
+                "${Contacts.CONTACT_LAST_UPDATED_TIMESTAMP} >= ?", selectionArgs) {
+                changedIds.add(it[0]!!)
+            }
+        }
+
+        // The primary number first, only one number is kept per contact
+        val updated = LinkedHashMap<String, PeopleInfo>()
+        query(Phone.CONTENT_URI, arrayOf(Phone.CONTACT_ID, Phone.DISPLAY_NAME, Phone.NUMBER),
+            if (full) null else "${Phone.CONTACT_LAST_UPDATED_TIMESTAMP} >= ?", selectionArgs,
+            "${Phone.IS_SUPER_PRIMARY} DESC, ${Phone.IS_PRIMARY} DESC") {
+            val id = it[0]!!
+            if (!updated.containsKey(id) && it[2] != null) {
+                updated[id] = PeopleInfo(id, it[1] ?: "", it[2]!!)
+            }
+        }
+
+        val deletedIds = HashSet<String>()
+        if (!full) {
+            query(DeletedContacts.CONTENT_URI, DeletedContacts.CONTACT_ID,
+                "${DeletedContacts.CONTACT_DELETED_TIMESTAMP} >= ?", selectionArgs) {
+                deletedIds.add(it[0]!!)
+            }
+            // Contacts which no longer have a phone number
+            changedIds.filterTo(deletedIds) { !updated.containsKey(it) }
+        }
+        return Changes(full, updated.values.toList(), deletedIds, now)
+    }
+
+    private fun query(uri: Uri, column: String, selection: String,
+                      selectionArgs: Array<String>?, action: (Array<String?>) -> Unit) =
+        query(uri, arrayOf(column), selection, selectionArgs, null, action)
+
+    private inline fun query(uri: Uri, projection: Array<String>, selection: String?,
+                             selectionArgs: Array<String>?, sortOrder: String?,
+                             action: (Array<String?>) -> Unit) {
+        context.contentResolver.query(uri, projection, selection, selectionArgs, sortOrder)
+            ?.use { cursor ->
+                val row = arrayOfNulls<String>(projection.size)
+                while (cursor.moveToNext()) {
+                    for (i in projection.indices) {
+                        row[i] = cursor.getString(i)
+                    }
+                    action(row)
+                }
+            }
+    }
+
+    companion object {
+
+        private const val KEY_LAST_SYNC = "pref_contacts_last_sync"
+
+        val INSTANCE = AnyThreadInitializedObject(
+            "ContactsSync", ::ContactsSync, PeopleRepository.INSTANCE
+        )
+    }
+}
@@ -1,25 +1,29 @@
 package com.saggitt.omega.data
 
 import android.content.Context
-import com.android.launcher3.LauncherAppState
 import com.android.launcher3.util.ComponentKey
-import com.android.launcher3.util.MainThreadInitializedObject
+import com.android.launcher3.util.AnyThreadInitializedObject
 import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.flowOn
 
-class IconOverrideRepository(private val context: Context) {
+class IconOverrideRepository(context: Context) {
 
     private val scope = MainScope() + CoroutineName("IconOverrideRepository")
     private val dao = NeoLauncherDb.INSTANCE.get(context).iconOverrideDao()
-    private var _overridesMap = mapOf<ComponentKey, IconPickerItem>()
-    val overridesMap get() = _overridesMap
+    private val _overrides = MutableStateFlow(mapOf<ComponentKey, IconPickerItem>())
+
+    // Icons are refreshed by IconResolver, which observes the overrides
+    val overrides: StateFlow<Map<ComponentKey, IconPickerItem>> = _overrides
+    val overridesMap get() = _overrides.value
 
     init {
         scope.launch {
             dao.observeAll()
                 .flowOn(Dispatchers.Main)
                 .collect { overrides ->
-                    _overridesMap = overrides.associateBy(
+                    _overrides.value = overrides.associateBy(
                         keySelector = { it.target },
                         valueTransform = { it.iconPickerItem }
                     )
@@ -29,29 +33,22 @@ class IconOverrideRepository(private val context: Context) {
 
     suspend fun setOverride(target: ComponentKey, item: IconPickerItem) {
         dao.insert(IconOverride(target, item))
-        reloadIcons()
     }
 
     suspend fun deleteOverride(target: ComponentKey) {
         dao.delete(target)
-        reloadIcons()
     }
 
     fun observeTarget(target: ComponentKey) = dao.observeTarget(target)
 
     fun deleteAll() {
         dao.deleteAll()
-        reloadIcons()
-    }
-
-    private fun reloadIcons() {
-        val las = LauncherAppState.getInstance(context)
-        val idp = las.invariantDeviceProfile
-        idp.onPreferencesChanged(context.applicationContext)
     }
 
     companion object {
         @JvmField
-        val INSTANCE = MainThreadInitializedObject(::IconOverrideRepository)
+        val INSTANCE = AnyThreadInitializedObject(
+            "IconOverrideRepository", ::IconOverrideRepository, NeoLauncherDb.INSTANCE
+        )
     }
 }
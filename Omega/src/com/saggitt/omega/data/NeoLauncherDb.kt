@@ -24,7 +24,7 @@ import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
 import androidx.room.migration.Migration
 import androidx.sqlite.db.SupportSQLiteDatabase
-import com.android.launcher3.util.MainThreadInitializedObject
+import com.android.launcher3.util.AnyThreadInitializedObject
 
 @Database(
     entities = [IconOverride::class, AppTracker::class, PeopleInfo::class],
@@ -55,10 +55,10 @@ abstract class NeoLauncherDb : RoomDatabase() {
             }
         }
 
-        val INSTANCE = MainThreadInitializedObject { context ->
+        val INSTANCE = AnyThreadInitializedObject("NeoLauncherDb", { context ->
             Room.databaseBuilder(context, NeoLauncherDb::class.java, "NeoLauncher.db")
                 .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
                 .build()
-        }
+        })
     }
 }
\ No newline at end of file
@@ -26,10 +26,13 @@ import androidx.room.Query
 interface PeopleDao {
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    suspend fun insert(people: PeopleInfo)
+    suspend fun insertAll(people: List<PeopleInfo>)
 
-    @Query("SELECT * FROM PeopleInfo WHERE contactName LIKE '%' || :query || '%' LIMIT 5")
-    fun findPeople(query: String): List<PeopleInfo>
+    @Query("SELECT * FROM PeopleInfo")
+    fun getAll(): List<PeopleInfo>
+
+    @Query("DELETE FROM PeopleInfo WHERE contactId IN (:contactIds)")
+    suspend fun delete(contactIds: List<String>)
 
     @Query("DELETE FROM peopleinfo")
     suspend fun deleteAll()
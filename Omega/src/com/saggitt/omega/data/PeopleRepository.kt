@@ -18,7 +18,10 @@
 package com.saggitt.omega.data
 
 import android.content.Context
-import com.android.launcher3.util.MainThreadInitializedObject
+import androidx.room.withTransaction
+import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm.MAX_RESULTS_COUNT
+import com.android.launcher3.util.AnyThreadInitializedObject
+import com.saggitt.omega.search.ContactSearchIndex
 import kotlinx.coroutines.CoroutineName
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -26,21 +29,54 @@ import kotlinx.coroutines.plus
 
 class PeopleRepository(context: Context) {
     private val scope = CoroutineScope(Dispatchers.IO) + CoroutineName("PeopleRepository")
-    private val dao = NeoLauncherDb.INSTANCE.get(context).peopleDao()
+    private val db = NeoLauncherDb.INSTANCE.get(context)
+    private val dao = db.peopleDao()
 
-    suspend fun insert(people: PeopleInfo) {
-        dao.insert(people)
-    }
+    // Searches are served from memory, the DB is only read once to fill the index
+    private val index = ContactSearchIndex()
+    @Volatile
+    private var indexLoaded = false
 
-    fun findPeople(query: String): List<PeopleInfo?> {
-        return dao.findPeople(query)
+    fun findPeople(query: String): List<PeopleInfo> {
+        if (!indexLoaded) {
+            // Holding the index lock, so that a concurrent change is applied after the load
+            synchronized(index) {
+                if (!indexLoaded) {
+                    index.putAll(dao.getAll())
+                    indexLoaded = true
+                }
+            }
+        }
+        return index.search(query, MAX_RESULTS_COUNT)
     }
 
-    suspend fun deleteAll() {
-        dao.deleteAll()
+    /**
+     * Replaces [deletedIds] and the contacts of [updated], or all the contacts if [full], in a
+     * single transaction
+     */
+    suspend fun applyChanges(full: Boolean, updated: List<PeopleInfo>, deletedIds: Set<String>) {
+        db.withTransaction {
+            if (full) {
+                dao.deleteAll()
+            }
+            // Stay below the SQLite limit of bound variables
+            deletedIds.chunked(MAX_DELETE_BATCH).forEach { dao.delete(it) }
+            dao.insertAll(updated)
+        }
+        synchronized(index) {
+            if (full) {
+                index.clear()
+            }
+            deletedIds.forEach { index.remove(it) }
+            index.putAll(updated)
+        }
     }
 
     companion object {
-        val INSTANCE = MainThreadInitializedObject(::PeopleRepository)
+        private const val MAX_DELETE_BATCH = 500
+
+        val INSTANCE = AnyThreadInitializedObject(
+            "PeopleRepository", ::PeopleRepository, NeoLauncherDb.INSTANCE
+        )
     }
 }
\ No newline at end of file
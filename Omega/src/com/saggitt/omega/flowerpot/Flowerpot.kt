@@ -21,7 +21,6 @@ import android.content.Context
 import com.saggitt.omega.flowerpot.parser.FlowerpotReader
 import com.saggitt.omega.flowerpot.rules.Rule
 import com.saggitt.omega.util.SingletonHolder
-import com.saggitt.omega.util.ensureOnMainThread
 import com.saggitt.omega.util.toTitleCase
 import com.saggitt.omega.util.useApplicationContext
 import java.io.InputStream
@@ -41,8 +40,17 @@ class Flowerpot(private val context: Context, val name: String, private val load
     private var loaded = false
     val rules: MutableSet<Rule> = mutableSetOf()
     val size get() = rules.size
-    lateinit var apps: FlowerpotApps
+    val apps = FlowerpotApps()
 
+    /**
+     * The bundle this pot is stored in and its index there, if it was loaded from the bundle
+     */
+    internal var bundle: FlowerpotBundle? = null
+        private set
+    internal var bundleIndex = -1
+        private set
+
+    @Synchronized
     fun ensureLoaded() {
         if (!loaded) {
             load()
@@ -52,7 +60,6 @@ class Flowerpot(private val context: Context, val name: String, private val load
 
     private fun load() {
         loader(this)
-        apps = FlowerpotApps(context, this)
     }
 
     /**
@@ -72,6 +79,18 @@ class Flowerpot(private val context: Context, val name: String, private val load
             }
         }
 
+        /**
+         * Load a flowerpot from the precompiled bundle
+         */
+        fun fromBundle(context: Context, bundle: FlowerpotBundle, index: Int): Flowerpot {
+            return Flowerpot(context, bundle.potNames[index]) {
+                rules.addAll(bundle.readRules(index))
+            }.apply {
+                this.bundle = bundle
+                bundleIndex = index
+            }
+        }
+
         /**
          * The current Flowerpot format version
          */
@@ -117,9 +136,17 @@ class Flowerpot(private val context: Context, val name: String, private val load
         }
 
         /**
-         * Load flowerpot files located in assets/
+         * Load flowerpot files located in assets/, preferring the precompiled bundle which only
+         * needs to be mapped instead of parsing every file
          */
         private fun loadAssets() {
+            val bundle = FlowerpotBundle.open(context)
+            if (bundle != null) {
+                bundle.potNames.forEachIndexed { index, name ->
+                    pots[name] = fromBundle(context, bundle, index)
+                }
+                return
+            }
             context.assets.list(ASSETS_PATH)?.forEach {
                 pots.getOrPut(it) {
                     fromAssets(context, "$ASSETS_PATH/$it", it)
@@ -142,7 +169,7 @@ class Flowerpot(private val context: Context, val name: String, private val load
 
         fun getAllPots() = pots.values
 
-        companion object : SingletonHolder<Manager, Context>(ensureOnMainThread(useApplicationContext(::Manager))) {
+        companion object : SingletonHolder<Manager, Context>(useApplicationContext(::Manager)) {
 
             @JvmStatic
             override fun getInstance(arg: Context): Manager {
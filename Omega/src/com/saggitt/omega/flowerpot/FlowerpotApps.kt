@@ -17,101 +17,61 @@
 
 package com.saggitt.omega.flowerpot
 
-import android.content.Context
-import android.content.Intent
-import android.content.pm.LauncherApps
-import android.os.UserHandle
-import com.android.launcher3.pm.UserCache
 import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.PackageUserKey
-import com.saggitt.omega.flowerpot.rules.CodeRule
-import com.saggitt.omega.flowerpot.rules.Rule
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
 
-class FlowerpotApps(private val context: Context, private val pot: Flowerpot) : LauncherApps.Callback() {
+/**
+ * Apps belonging to a single flowerpot. The membership is computed and kept up to date by
+ * [FlowerpotCategorizer] for all pots at once, see [FlowerpotCategorizer.ensureClassified].
+ */
+class FlowerpotApps {
 
-    private val launcherApps = context.getSystemService(LauncherApps::class.java)
-    private val intentMatches = mutableSetOf<String>()
-    val matches = mutableSetOf<ComponentKey>()
-    val packageMatches = mutableSetOf<PackageUserKey>()
+    private val matchesInternal: MutableSet<ComponentKey> =
+            Collections.newSetFromMap(ConcurrentHashMap())
+    private val packageMatchesInternal: MutableSet<PackageUserKey> =
+            Collections.newSetFromMap(ConcurrentHashMap())
+    private val listeners = CopyOnWriteArrayList<Listener>()
 
-    init {
-        filterApps()
-        context.getSystemService(LauncherApps::class.java).registerCallback(this)
-    }
+    val matches: Set<ComponentKey> get() = matchesInternal
 
-    private fun filterApps() {
-        queryIntentMatches()
-        matches.clear()
-        packageMatches.clear()
-        UserCache.INSTANCE.get(context).userProfiles.forEach {
-            addFromPackage(null, it)
-        }
-    }
+    val packageMatches: Set<PackageUserKey> get() = packageMatchesInternal
 
-    private fun addFromPackage(packageName: String?, user: UserHandle) {
-        launcherApps.getActivityList(packageName, user).forEach {
-            if (intentMatches.contains(it.componentName.packageName)
-                    || pot.rules.contains(Rule.Package(it.componentName.packageName))) {
-                matches.add(ComponentKey(it.componentName, it.user))
-                packageMatches.add(PackageUserKey(it.componentName.packageName, it.user))
-            } else {
-                for (rule in pot.rules.filterIsInstance<Rule.CodeRule>()) {
-                    if (CodeRule.get(rule.rule, *rule.args).matches(it.applicationInfo)) {
-                        matches.add(ComponentKey(it.componentName, it.user))
-                        packageMatches.add(PackageUserKey(it.componentName.packageName, it.user))
-                        break
-                    }
-                }
-            }
-        }
+    fun addListener(listener: Listener) {
+        listeners.addIfAbsent(listener)
     }
 
-    private fun queryIntentMatches() {
-        intentMatches.clear()
-        for (rule in pot.rules.filterIsInstance<Rule.IntentCategory>()) {
-            context.packageManager.queryIntentActivities(Intent(Intent.ACTION_MAIN).addCategory(rule.category), 0).forEach {
-                intentMatches.add(it.activityInfo.packageName)
-            }
-        }
-        for (rule in pot.rules.filterIsInstance<Rule.IntentAction>()) {
-            context.packageManager.queryIntentActivities(Intent(rule.action), 0).forEach {
-                intentMatches.add(it.activityInfo.packageName)
-            }
-        }
+    fun removeListener(listener: Listener) {
+        listeners.remove(listener)
     }
 
-    override fun onPackageAdded(packageName: String, user: UserHandle) {
-        queryIntentMatches()
-        addFromPackage(packageName, user)
-    }
-
-    override fun onPackageChanged(packageName: String, user: UserHandle) {
-        onPackageAdded(packageName, user)
-    }
-
-    override fun onPackageRemoved(packageName: String, user: UserHandle) {
-        matches.removeAll {
-            it.componentName.packageName == packageName && it.user == user
+    internal fun add(key: ComponentKey, packageKey: PackageUserKey) {
+        packageMatchesInternal.add(packageKey)
+        if (matchesInternal.add(key)) {
+            listeners.forEach { it.onAppAdded(this, key) }
         }
-        packageMatches.removeAll {
-            it.mPackageName == packageName && it.mUser == user
-        }
-    }
-
-    override fun onPackagesAvailable(packageNames: Array<out String>, user: UserHandle, replacing: Boolean) {
-        packageNames.forEach { onPackageAdded(it, user) }
     }
 
-    override fun onPackagesUnavailable(packageNames: Array<out String>, user: UserHandle, replacing: Boolean) {
-        packageNames.forEach { onPackageRemoved(it, user) }
+    internal fun remove(packageKey: PackageUserKey) {
+        val iterator = matchesInternal.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.next()
+            if (key.componentName.packageName == packageKey.mPackageName && key.user == packageKey.mUser) {
+                iterator.remove()
+                listeners.forEach { it.onAppRemoved(this, key) }
+            }
+        }
+        packageMatchesInternal.remove(packageKey)
     }
 
-    override fun onPackagesSuspended(packageNames: Array<out String>, user: UserHandle) {
-        packageNames.forEach { onPackageRemoved(it, user) }
-    }
+    /**
+     * Notified on the thread updating the pot whenever an app is added to or removed from it
+     */
+    interface Listener {
+        fun onAppAdded(apps: FlowerpotApps, key: ComponentKey)
 
-    override fun onPackagesUnsuspended(packageNames: Array<out String>, user: UserHandle) {
-        packageNames.forEach { onPackageAdded(it, user) }
+        fun onAppRemoved(apps: FlowerpotApps, key: ComponentKey)
     }
 }
-
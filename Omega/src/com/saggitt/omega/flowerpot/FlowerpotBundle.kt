@@ -0,0 +1,174 @@
+/*
+ *     This file is part of Lawnchair Launcher.
+ *
+ *     Lawnchair Launcher is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Lawnchair Launcher is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Lawnchair Launcher.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.flowerpot
+
+import android.content.Context
+import android.util.Log
+import com.saggitt.omega.flowerpot.parser.LineParser
+import com.saggitt.omega.flowerpot.rules.Rule
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Read-only view of the precompiled rule bundle generated by `flowerpot/bundle.py`.
+ *
+ * The bundle contains the rules of all shipped pots, with the package rules merged into one
+ * sorted table, so that the pots of a package can be looked up with a binary search instead of
+ * parsing every pot. Only absolute reads are used on the buffer, so lookups are thread safe.
+ */
+class FlowerpotBundle(private val buffer: ByteBuffer) {
+
+    private val potCount = buffer.getInt(HEADER_POT_COUNT)
+    private val packageCount = buffer.getInt(HEADER_PACKAGE_COUNT)
+    private val ruleCount = buffer.getInt(HEADER_RULE_COUNT)
+    private val stringsOffset = buffer.getInt(HEADER_STRINGS_OFFSET)
+
+    private val potsOffset = HEADER_SIZE
+    private val packagesOffset = potsOffset + potCount * POT_ENTRY_SIZE
+    private val rulesOffset = packagesOffset + packageCount * PACKAGE_ENTRY_SIZE
+
+    /**
+     * Names of all pots in the bundle, indexed the same way as the masks returned by [getPots]
+     */
+    val potNames = List(potCount) {
+        val entry = potsOffset + it * POT_ENTRY_SIZE
+        readString(buffer.getInt(entry), buffer.getInt(entry + 4))
+    }
+
+    /**
+     * Returns a bit mask of the pots which contain a package rule for [packageName]
+     */
+    fun getPots(packageName: String): Long {
+        val query = packageName.toByteArray()
+        var low = 0
+        var high = packageCount - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val entry = packagesOffset + mid * PACKAGE_ENTRY_SIZE
+            val cmp = compare(buffer.getInt(entry), buffer.getInt(entry + 4), query)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return buffer.getLong(entry + 8)
+            }
+        }
+        return 0L
+    }
+
+    /**
+     * Reads the rules of the pot at [potIndex]. Package rules require a scan of the whole
+     * package table and can be skipped with [includePackages] when they are looked up
+     * through [getPots] instead.
+     */
+    fun readRules(potIndex: Int, includePackages: Boolean = true): List<Rule> {
+        val rules = ArrayList<Rule>()
+        if (includePackages) {
+            val bit = 1L shl potIndex
+            for (i in 0 until packageCount) {
+                val entry = packagesOffset + i * PACKAGE_ENTRY_SIZE
+                if (buffer.getLong(entry + 8) and bit != 0L) {
+                    rules.add(Rule.Package(readString(buffer.getInt(entry), buffer.getInt(entry + 4))))
+                }
+            }
+        }
+        for (i in 0 until ruleCount) {
+            val entry = rulesOffset + i * RULE_ENTRY_SIZE
+            if (buffer.getInt(entry) != potIndex) continue
+            val identifier = buffer.getInt(entry + 4).toChar()
+            val value = readString(buffer.getInt(entry + 8), buffer.getInt(entry + 12))
+            rules.add(LineParser.parse("$identifier$value", Flowerpot.Version.AZALEA))
+        }
+        return rules
+    }
+
+    private fun compare(offset: Int, length: Int, query: ByteArray): Int {
+        val start = stringsOffset + offset
+        val count = minOf(length, query.size)
+        for (i in 0 until count) {
+            val cmp = (buffer.get(start + i).toInt() and 0xFF) - (query[i].toInt() and 0xFF)
+            if (cmp != 0) return cmp
+        }
+        return length - query.size
+    }
+
+    private fun readString(offset: Int, length: Int): String {
+        val bytes = ByteArray(length)
+        val view = buffer.duplicate()
+        view.position(stringsOffset + offset)
+        view.get(bytes)
+        return String(bytes)
+    }
+
+    companion object {
+        private const val TAG = "FlowerpotBundle"
+
+        /**
+         * Path relative to assets/ to the bundle generated from the files in [Flowerpot.ASSETS_PATH]
+         */
+        const val ASSETS_PATH = "flowerpot.bundle"
+
+        private const val MAGIC = 0x46504F54 // FPOT
+        private const val BUNDLE_FORMAT = 1
+
+        private const val HEADER_FORMAT = 4
+        private const val HEADER_VERSION = 6
+        private const val HEADER_POT_COUNT = 8
+        private const val HEADER_PACKAGE_COUNT = 12
+        private const val HEADER_RULE_COUNT = 16
+        private const val HEADER_STRINGS_OFFSET = 20
+        private const val HEADER_SIZE = 24
+
+        private const val POT_ENTRY_SIZE = 8
+        private const val PACKAGE_ENTRY_SIZE = 16
+        private const val RULE_ENTRY_SIZE = 16
+
+        /**
+         * Opens the bundle shipped in the assets, returns null if there is no usable bundle
+         */
+        fun open(context: Context): FlowerpotBundle? {
+            val buffer = try {
+                map(context)
+            } catch (e: IOException) {
+                Log.w(TAG, "Unable to open flowerpot bundle", e)
+                return null
+            }
+            if (buffer.capacity() < HEADER_SIZE
+                    || buffer.getInt(0) != MAGIC
+                    || buffer.getShort(HEADER_FORMAT).toInt() != BUNDLE_FORMAT
+                    || !Flowerpot.SUPPORTED_VERSIONS.contains(buffer.getShort(HEADER_VERSION).toInt())) {
+                Log.w(TAG, "Unsupported flowerpot bundle")
+                return null
+            }
+            return FlowerpotBundle(buffer)
+        }
+
+        private fun map(context: Context): ByteBuffer {
+            return try {
+                // Only possible if the asset is stored uncompressed, see noCompress in the build
+                context.assets.openFd(ASSETS_PATH).use { fd ->
+                    fd.createInputStream().channel.use {
+                        it.map(FileChannel.MapMode.READ_ONLY, fd.startOffset, fd.length)
+                    }
+                }
+            } catch (e: IOException) {
+                ByteBuffer.wrap(context.assets.open(ASSETS_PATH).use { it.readBytes() })
+            }
+        }
+    }
+}
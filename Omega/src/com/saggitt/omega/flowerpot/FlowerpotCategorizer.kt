@@ -0,0 +1,242 @@
+/*
+ *     This file is part of Lawnchair Launcher.
+ *
+ *     Lawnchair Launcher is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Lawnchair Launcher is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Lawnchair Launcher.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.flowerpot
+
+import android.content.Context
+import android.content.Intent
+import android.content.pm.LauncherActivityInfo
+import android.content.pm.LauncherApps
+import android.os.Handler
+import android.os.UserHandle
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.Executors.MODEL_EXECUTOR
+import com.android.launcher3.util.PackageUserKey
+import com.saggitt.omega.flowerpot.rules.CodeRule
+import com.saggitt.omega.flowerpot.rules.Rule
+import com.saggitt.omega.util.SingletonHolder
+import com.saggitt.omega.util.useApplicationContext
+
+/**
+ * Classifies all installed apps into every flowerpot at once.
+ *
+ * The rules of all pots are compiled into hash lookups, intent rules are queried once per
+ * distinct intent instead of once per pot, and a single package listener keeps the membership
+ * of every pot's [FlowerpotApps] up to date incrementally.
+ */
+class FlowerpotCategorizer @VisibleForTesting constructor(
+        private val context: Context,
+        private val potsProvider: () -> Collection<Flowerpot>
+) : LauncherApps.Callback() {
+
+    private constructor(context: Context) :
+            this(context, { Flowerpot.Manager.getInstance(context).getAllPots() })
+
+    private val launcherApps = context.getSystemService(LauncherApps::class.java)!!
+    private val packageManager = context.packageManager
+    private val lock = Any()
+
+    @Volatile
+    private var rules: CompiledRules? = null
+
+    // package name -> pots which match it through an intent rule
+    private val intentMatches = HashMap<String, MutableSet<Flowerpot>>()
+
+    // package -> pots it is currently a member of, used to update only the affected pots
+    private val membership = HashMap<PackageUserKey, MutableSet<Flowerpot>>()
+
+    /**
+     * Starts the initial classification in background, so that it is ready when the pots
+     * are first queried
+     */
+    fun preload() {
+        MODEL_EXECUTOR.execute { ensureClassified() }
+    }
+
+    /**
+     * Classifies all installed apps if that hasn't been done yet. Callers from the main thread
+     * should prefer [preload] and only block here when the result is really needed.
+     */
+    fun ensureClassified() {
+        if (rules != null) return
+        // Resolve these outside the lock, they might have to be created on the main thread
+        val pots = potsProvider()
+        val users = UserCache.INSTANCE.get(context).userProfiles
+        synchronized(lock) {
+            if (rules != null) return
+            val compiled = CompiledRules(pots)
+            queryIntentMatches(compiled, null)
+            users.forEach { user ->
+                launcherApps.getActivityList(null, user).forEach { classify(compiled, it) }
+            }
+            rules = compiled
+            launcherApps.registerCallback(this, Handler(MODEL_EXECUTOR.looper))
+        }
+    }
+
+    /**
+     * Resolves the packages matching each distinct intent rule, limited to [packageName] if set
+     */
+    @WorkerThread
+    private fun queryIntentMatches(compiled: CompiledRules, packageName: String?) {
+        if (packageName != null) {
+            intentMatches.remove(packageName)
+        } else {
+            intentMatches.clear()
+        }
+        compiled.intentRules.forEach { (intent, pots) ->
+            intent.setPackage(packageName)
+            packageManager.queryIntentActivities(intent, 0).forEach {
+                intentMatches.getOrPut(it.activityInfo.packageName) { HashSet() }.addAll(pots)
+            }
+        }
+    }
+
+    @WorkerThread
+    private fun classify(compiled: CompiledRules, info: LauncherActivityInfo) {
+        val packageName = info.componentName.packageName
+        val matched = HashSet<Flowerpot>()
+        compiled.packageRules[packageName]?.let { matched.addAll(it) }
+        compiled.bundle?.let { bundle ->
+            var mask = bundle.getPots(packageName)
+            while (mask != 0L) {
+                compiled.bundledPots[java.lang.Long.numberOfTrailingZeros(mask)]?.let { matched.add(it) }
+                mask = mask and (mask - 1)
+            }
+        }
+        intentMatches[packageName]?.let { matched.addAll(it) }
+        compiled.codeRules.forEach { (rule, pots) ->
+            if (!matched.containsAll(pots) && rule.matches(info.applicationInfo)) {
+                matched.addAll(pots)
+            }
+        }
+        if (matched.isEmpty()) return
+
+        val key = ComponentKey(info.componentName, info.user)
+        val packageKey = PackageUserKey(packageName, info.user)
+        membership.getOrPut(packageKey) { HashSet() }.addAll(matched)
+        matched.forEach { it.apps.add(key, packageKey) }
+    }
+
+    @WorkerThread
+    private fun removePackage(packageName: String, user: UserHandle) {
+        val packageKey = PackageUserKey(packageName, user)
+        membership.remove(packageKey)?.forEach { it.apps.remove(packageKey) }
+    }
+
+    @WorkerThread
+    private fun updatePackage(packageName: String, user: UserHandle) {
+        synchronized(lock) {
+            val compiled = rules ?: return
+            removePackage(packageName, user)
+            queryIntentMatches(compiled, packageName)
+            launcherApps.getActivityList(packageName, user).forEach { classify(compiled, it) }
+        }
+    }
+
+    override fun onPackageAdded(packageName: String, user: UserHandle) {
+        updatePackage(packageName, user)
+    }
+
+    override fun onPackageChanged(packageName: String, user: UserHandle) {
+        updatePackage(packageName, user)
+    }
+
+    override fun onPackageRemoved(packageName: String, user: UserHandle) {
+        synchronized(lock) {
+            removePackage(packageName, user)
+        }
+    }
+
+    override fun onPackagesAvailable(packageNames: Array<out String>, user: UserHandle, replacing: Boolean) {
+        packageNames.forEach { updatePackage(it, user) }
+    }
+
+    override fun onPackagesUnavailable(packageNames: Array<out String>, user: UserHandle, replacing: Boolean) {
+        packageNames.forEach { onPackageRemoved(it, user) }
+    }
+
+    override fun onPackagesSuspended(packageNames: Array<out String>, user: UserHandle) {
+        packageNames.forEach { onPackageRemoved(it, user) }
+    }
+
+    override fun onPackagesUnsuspended(packageNames: Array<out String>, user: UserHandle) {
+        packageNames.forEach { updatePackage(it, user) }
+    }
+
+    /**
+     * Rules of all pots, grouped by what they match on. Package rules of pots loaded from the
+     * bundle are not copied, they are looked up in the bundle directly.
+     */
+    private class CompiledRules(pots: Collection<Flowerpot>) {
+        val packageRules = HashMap<String, MutableList<Flowerpot>>()
+        val intentRules = HashMap<Intent, MutableList<Flowerpot>>()
+        val codeRules = ArrayList<Pair<CodeRule, MutableList<Flowerpot>>>()
+        var bundle: FlowerpotBundle? = null
+        // bundle index -> pot
+        var bundledPots = emptyArray<Flowerpot?>()
+
+        init {
+            val intents = HashMap<String, Intent>()
+            val codeRulesByKey = LinkedHashMap<String, Pair<CodeRule, MutableList<Flowerpot>>>()
+            pots.forEach { pot ->
+                val potBundle = pot.bundle
+                val rules = if (potBundle != null) {
+                    if (bundle == null) {
+                        bundle = potBundle
+                        bundledPots = arrayOfNulls(potBundle.potNames.size)
+                    }
+                    bundledPots[pot.bundleIndex] = pot
+                    potBundle.readRules(pot.bundleIndex, includePackages = false)
+                } else {
+                    pot.ensureLoaded()
+                    pot.rules
+                }
+                rules.forEach { rule ->
+                    when (rule) {
+                        is Rule.Package -> packageRules.getOrPut(rule.filter) { ArrayList() }.add(pot)
+                        is Rule.IntentAction -> {
+                            val intent = intents.getOrPut(":${rule.action}") { Intent(rule.action) }
+                            intentRules.getOrPut(intent) { ArrayList() }.add(pot)
+                        }
+                        is Rule.IntentCategory -> {
+                            val intent = intents.getOrPut(";${rule.category}") {
+                                Intent(Intent.ACTION_MAIN).addCategory(rule.category)
+                            }
+                            intentRules.getOrPut(intent) { ArrayList() }.add(pot)
+                        }
+                        is Rule.CodeRule -> {
+                            val key = (listOf(rule.rule) + rule.args).joinToString("|")
+                            codeRulesByKey.getOrPut(key) {
+                                Pair(CodeRule.get(rule.rule, *rule.args), ArrayList())
+                            }.second.add(pot)
+                        }
+                        else -> Unit
+                    }
+                }
+            }
+            codeRules.addAll(codeRulesByKey.values)
+        }
+    }
+
+    companion object : SingletonHolder<FlowerpotCategorizer, Context>(
+            useApplicationContext(::FlowerpotCategorizer)
+    )
+}
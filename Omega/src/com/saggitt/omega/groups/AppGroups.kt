@@ -174,7 +174,11 @@ abstract class AppGroups<T : AppGroups.Group>(
         val obj = JSONObject()
         obj.put(KEY_VERSION, currentVersion)
         obj.put(KEY_GROUPS, arr)
-        groupsDataJson = obj.toString()
+        // Every write reloads all tabs, so skip it if nothing changed
+        val json = obj.toString()
+        if (json != groupsDataJson) {
+            groupsDataJson = json
+        }
     }
 
     companion object {
@@ -63,6 +63,11 @@ abstract class DrawerTabs(manager: AppGroupsManager, type: AppGroupsManager.Cate
         }
     }
 
+    /**
+     * Membership of all apps in the tabs of this model, rebuilt whenever the tabs are reloaded
+     */
+    val membership = TabMembership()
+
     init {
         loadGroups()
     }
@@ -26,6 +26,8 @@ import androidx.appcompat.app.AlertDialog
 import com.android.launcher3.R
 import com.android.launcher3.util.ComponentKey
 import com.saggitt.omega.flowerpot.Flowerpot
+import com.saggitt.omega.flowerpot.FlowerpotApps
+import com.saggitt.omega.flowerpot.FlowerpotCategorizer
 import com.saggitt.omega.theme.ThemeOverride
 import com.saggitt.omega.theme.ThemedContextProvider
 import com.saggitt.omega.util.applyAccent
@@ -36,6 +38,7 @@ class FlowerpotTabs(manager: AppGroupsManager) :
     private val flowerpotManager = Flowerpot.Manager.getInstance(context)
 
     init {
+        FlowerpotCategorizer.getInstance(context).preload()
         val pots = flowerpotManager.getAllPots().toMutableSet()
         val existingGroups = getGroups().filter { group ->
             if (group !is FlowerpotTab) {
@@ -90,11 +93,13 @@ class FlowerpotTabs(manager: AppGroupsManager) :
                 return context.resources.getQuantityString(R.plurals.tab_apps_count, size, size)
             }
 
-        fun getMatches(): Set<ComponentKey> {
-            pot.ensureLoaded()
-            return pot.apps.matches
+        fun getApps(): FlowerpotApps {
+            FlowerpotCategorizer.getInstance(context).ensureClassified()
+            return pot.apps
         }
 
+        fun getMatches(): Set<ComponentKey> = getApps().matches
+
         fun getFilter(context: Context): Filter<*> {
             return CustomFilter(context, getMatches())
         }
@@ -0,0 +1,118 @@
+/*
+ *     This file is part of Lawnchair Launcher.
+ *
+ *     Lawnchair Launcher is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Lawnchair Launcher is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Lawnchair Launcher.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.groups
+
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.ItemInfoMatcher
+import com.saggitt.omega.flowerpot.FlowerpotApps
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Membership of apps in the drawer tabs, stored as one bit set per app where bit i is set if the
+ * app belongs to the tab at index i. Tab matchers only need a single lookup per app, and the
+ * flowerpot tabs are kept up to date incrementally as apps are added to or removed from their
+ * pots. Only the first [MAX_TABS] tabs are tracked.
+ */
+class TabMembership : FlowerpotApps.Listener {
+
+    private val masks = ConcurrentHashMap<ComponentKey, Long>()
+
+    @Volatile
+    private var potBits: Map<FlowerpotApps, Long> = emptyMap()
+
+    // Tabs whose apps are moved out of the profile tabs
+    @Volatile
+    private var hiddenBits = 0L
+
+    /**
+     * Recomputes the membership of all tabs, bits are assigned by the index in [groups]
+     */
+    @Synchronized
+    fun rebuild(groups: List<DrawerTabs.Tab>) {
+        potBits.keys.forEach { it.removeListener(this) }
+        masks.clear()
+
+        val pots = HashMap<FlowerpotApps, Long>()
+        var hidden = 0L
+        groups.take(MAX_TABS).forEachIndexed { index, group ->
+            val bit = 1L shl index
+            when (group) {
+                is DrawerTabs.CustomTab -> {
+                    group.contents.value().forEach { add(it, bit) }
+                    if (group.hideFromAllApps.value()) {
+                        hidden = hidden or bit
+                    }
+                }
+                is FlowerpotTabs.FlowerpotTab -> {
+                    val apps = group.getApps()
+                    pots[apps] = (pots[apps] ?: 0L) or bit
+                    hidden = hidden or bit
+                }
+            }
+        }
+        potBits = pots
+        hiddenBits = hidden
+        pots.forEach { (apps, bits) ->
+            // Listen before copying, so that no update can get lost in between
+            apps.addListener(this)
+            apps.matches.forEach { add(it, bits) }
+        }
+    }
+
+    /**
+     * Returns a matcher for the tab at [index], or null if the tab is not tracked
+     */
+    fun getMatcher(index: Int): ItemInfoMatcher? {
+        if (index >= MAX_TABS) return null
+        val bit = 1L shl index
+        return ItemInfoMatcher { info, _ -> getMask(info) and bit != 0L }
+    }
+
+    /**
+     * Returns a matcher for a profile tab, which excludes all apps moved to other tabs
+     */
+    fun getProfileMatcher(base: ItemInfoMatcher?): ItemInfoMatcher {
+        return ItemInfoMatcher { info, cn ->
+            base?.matches(info, cn) != false && getMask(info) and hiddenBits == 0L
+        }
+    }
+
+    override fun onAppAdded(apps: FlowerpotApps, key: ComponentKey) {
+        potBits[apps]?.let { add(key, it) }
+    }
+
+    override fun onAppRemoved(apps: FlowerpotApps, key: ComponentKey) {
+        potBits[apps]?.let { bits ->
+            masks.computeIfPresent(key) { _, mask -> (mask and bits.inv()).takeIf { it != 0L } }
+        }
+    }
+
+    private fun add(key: ComponentKey, bits: Long) {
+        masks.merge(key, bits) { a, b -> a or b }
+    }
+
+    private fun getMask(info: ItemInfo): Long {
+        return masks[ComponentKey(info.targetComponent, info.user)] ?: 0L
+    }
+
+    companion object {
+
+        const val MAX_TABS = Long.SIZE_BITS
+    }
+}
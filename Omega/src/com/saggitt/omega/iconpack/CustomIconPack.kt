@@ -20,6 +20,7 @@ import org.xmlpull.v1.XmlPullParser
 import org.xmlpull.v1.XmlPullParserException
 import org.xmlpull.v1.XmlPullParserFactory
 import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.collections.ArrayList
 import kotlin.collections.List
 import kotlin.collections.MutableSet
@@ -40,7 +41,7 @@ class CustomIconPack(context: Context, packPackageName: String) :
     private val clockMap = mutableMapOf<ComponentName, IconEntry>()
     private val clockMetas = mutableMapOf<IconEntry, ClockMetadata>()
 
-    private val idCache = mutableMapOf<String, Int>()
+    private val idCache = ConcurrentHashMap<String, Int>()
 
     override val label = context.packageManager.let { pm ->
         pm.getApplicationInfo(packPackageName, 0).loadLabel(pm).toString()
@@ -53,6 +54,8 @@ class CustomIconPack(context: Context, packPackageName: String) :
     override fun getIcon(componentName: ComponentName) =
         componentMap[componentName]
 
+    override fun getIcons(): Map<ComponentName, IconEntry> = componentMap
+
     override fun getCalendar(componentName: ComponentName) = calendarMap[componentName]
     override fun getClock(entry: IconEntry) = clockMetas[entry]
 
@@ -73,6 +76,22 @@ class CustomIconPack(context: Context, packPackageName: String) :
         }
     }
 
+    override fun computeMemoryFootprint(): Long {
+        fun sizeOf(componentName: ComponentName) = OBJECT_SIZE +
+                stringSize(componentName.packageName) + stringSize(componentName.className)
+        fun sizeOf(entry: IconEntry) = OBJECT_SIZE + stringSize(entry.name)
+
+        var bytes = 0L
+        listOf(componentMap, calendarMap, clockMap).forEach { map ->
+            map.forEach { (componentName, entry) ->
+                bytes += MAP_ENTRY_SIZE + sizeOf(componentName) + sizeOf(entry)
+            }
+        }
+        clockMetas.keys.forEach { bytes += MAP_ENTRY_SIZE + sizeOf(it) + CLOCK_METADATA_SIZE }
+        idCache.keys.forEach { bytes += MAP_ENTRY_SIZE + stringSize(it) + OBJECT_SIZE }
+        return bytes
+    }
+
     fun createFromExternalPicker(icon: Intent.ShortcutIconResource): IconPickerItem? {
         val id = packResources.getIdentifier(icon.resourceName, null, null)
         if (id == 0) return null
@@ -222,6 +241,15 @@ class CustomIconPack(context: Context, packPackageName: String) :
         }
         return null
     }
+
+    companion object {
+        // Rough sizes on ART, for the memory footprint
+        private const val OBJECT_SIZE = 16L
+        private const val MAP_ENTRY_SIZE = 32L
+        private const val CLOCK_METADATA_SIZE = 40L
+
+        private fun stringSize(string: String) = 2L * OBJECT_SIZE + 2L * string.length
+    }
 }
 
 private operator fun XmlPullParser.get(key: String): String? = this.getAttributeValue(null, key)
@@ -14,6 +14,7 @@ abstract class IconPack(
     protected val context: Context,
     val packPackageName: String,
 ) {
+    @Volatile
     private var waiter: Semaphore? = Semaphore(0)
     private lateinit var deferredLoad: Deferred<Unit>
 
@@ -24,6 +25,7 @@ abstract class IconPack(
     protected fun startLoad() {
         deferredLoad = scope.async(Dispatchers.IO) {
             loadInternal()
+            memoryFootprint = computeMemoryFootprint()
             waiter?.release()
             waiter = null
         }
@@ -33,6 +35,13 @@ abstract class IconPack(
         return deferredLoad.await()
     }
 
+    /**
+     * Runs [action] once the pack is loaded, right away if it already is
+     */
+    fun doOnLoaded(action: () -> Unit) {
+        deferredLoad.invokeOnCompletion { action() }
+    }
+
     fun loadBlocking() {
         waiter?.run {
             acquireUninterruptibly()
@@ -40,7 +49,31 @@ abstract class IconPack(
         }
     }
 
+    /**
+     * Whether the icon maps are loaded, they must not be read before
+     */
+    val isLoaded get() = waiter == null
+
+    /**
+     * Estimate of the memory used by the loaded maps of the pack, in bytes, computed once when
+     * the load completes
+     */
+    @Volatile
+    var memoryFootprint = 0L
+        private set
+
+    /**
+     * Returns the estimated size of the maps, called once right after [loadInternal], before
+     * the pack is marked as loaded
+     */
+    protected open fun computeMemoryFootprint() = 0L
+
     abstract fun getIcon(componentName: ComponentName): IconEntry?
+
+    /**
+     * Returns the icons of the pack by component, or null if it has an icon for every component
+     */
+    abstract fun getIcons(): Map<ComponentName, IconEntry>?
     abstract fun getCalendar(componentName: ComponentName): IconEntry?
     abstract fun getClock(entry: IconEntry): ClockMetadata?
     abstract fun getCalendars(): MutableSet<ComponentName>
@@ -8,38 +8,117 @@ import android.os.Process
 import android.os.UserHandle
 import androidx.core.content.ContextCompat
 import com.android.launcher3.R
+import com.android.launcher3.Utilities
 import com.android.launcher3.icons.ClockDrawableWrapper
 import com.android.launcher3.icons.ThemedIconDrawable
-import com.android.launcher3.util.MainThreadInitializedObject
+import com.android.launcher3.logging.PerfMetrics
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.AnyThreadInitializedObject
 import com.saggitt.omega.LAWNICONS_PACKAGE_NAME
 import com.saggitt.omega.OmegaApp.Companion.minSDK
+import com.saggitt.omega.PREFS_ICON_PACK
 import com.saggitt.omega.THEME_ICON_THEMED
-import com.saggitt.omega.icons.ClockMetadata
 import com.saggitt.omega.icons.CustomAdaptiveIconDrawable
 import com.saggitt.omega.util.Config
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentHashMap
 
+/**
+ * Registry of the loaded icon packs, safe to use from any thread. The selected pack is loaded as
+ * soon as the process starts. The active packs, set by the icon resolution, are kept loaded,
+ * while the others, like the packs previewed in the pickers, are only kept while they are used
+ * and then evicted. The memory footprint of every loaded pack is reported in [PerfMetrics].
+ */
 class IconPackProvider(private val context: Context) {
-    private val iconPacks = mutableMapOf<String, IconPack?>()
+
+    private class PackRef(pack: IconPack, var strong: IconPack?) {
+        val weak = WeakReference(pack)
+    }
+
+    private val iconPacks = ConcurrentHashMap<String, PackRef>()
+    private var activePacks = emptySet<String>()
+
     val systemIconPack = SystemIconPack(context)
     private val systemIcon = CustomAdaptiveIconDrawable.wrapNonNull(
         ContextCompat.getDrawable(context, R.drawable.ic_launcher_foreground)!!
     )
 
+    init {
+        // Read from the preferences file, as the preferences object needs this provider
+        val selected = Utilities.getPrefs(context).getString(PREFS_ICON_PACK, "") ?: ""
+        setActivePacks(setOf(selected))
+        getIconPackOrSystem(selected)
+    }
+
     fun getIconPackOrSystem(packageName: String): IconPack? {
         if (packageName == "") return systemIconPack
         return getIconPack(packageName)
     }
 
     private fun getIconPack(packageName: String): IconPack? {
-        return iconPacks.getOrPut(packageName) {
-            try {
+        iconPacks[packageName]?.weak?.get()?.let { return it }
+        synchronized(iconPacks) {
+            iconPacks[packageName]?.weak?.get()?.let { return it }
+            val pack = try {
                 CustomIconPack(context, packageName)
             } catch (e: PackageManager.NameNotFoundException) {
-                null
+                return null
+            }
+            iconPacks[packageName] =
+                PackRef(pack, if (packageName in activePacks) pack else null)
+            pruneEvictedPacks()
+            pack.doOnLoaded {
+                if (iconPacks[packageName]?.weak?.get() === pack) {
+                    getFootprintGauge(packageName).set(pack.memoryFootprint)
+                }
+            }
+            return pack
+        }
+    }
+
+    /**
+     * Keeps [packageNames] loaded, the other packs are evicted once they are no longer used
+     */
+    fun setActivePacks(packageNames: Set<String>) {
+        synchronized(iconPacks) {
+            activePacks = packageNames
+            iconPacks.forEach { (packageName, ref) ->
+                ref.strong = if (packageName in packageNames) ref.weak.get() else null
+            }
+            pruneEvictedPacks()
+        }
+    }
+
+    /**
+     * Drops the loaded pack, so that it is loaded again with its new content
+     */
+    fun removeIconPack(packageName: String) {
+        synchronized(iconPacks) {
+            iconPacks.remove(packageName)
+            PerfMetrics.removeGauge(getFootprintGaugeName(packageName))
+            pruneEvictedPacks()
+        }
+    }
+
+    /**
+     * Removes the packs which were evicted and their metrics
+     */
+    private fun pruneEvictedPacks() {
+        iconPacks.entries.removeIf { (packageName, ref) ->
+            val evicted = ref.weak.get() == null
+            if (evicted) {
+                PerfMetrics.removeGauge(getFootprintGaugeName(packageName))
             }
+            evicted
         }
+        LOADED_PACKS.set(iconPacks.size.toLong())
     }
 
+    private fun getFootprintGauge(packageName: String) =
+        PerfMetrics.gauge(getFootprintGaugeName(packageName))
+
+    private fun getFootprintGaugeName(packageName: String) = "iconpack/bytes/$packageName"
+
     fun getIconPackList(): List<IconPackInfo> {
         val pm = context.packageManager
 
@@ -85,17 +164,15 @@ class IconPackProvider(private val context: Context) {
         ) + iconPacks.sortedBy { it.name }
     }
 
-    fun getClockMetadata(iconEntry: IconEntry): ClockMetadata? {
-        val iconPack = getIconPackOrSystem(iconEntry.packPackageName) ?: return null
-        return iconPack.getClock(iconEntry)
-    }
-
     fun getDrawable(iconEntry: IconEntry, iconDpi: Int, user: UserHandle): Drawable? {
         val iconPack = getIconPackOrSystem(iconEntry.packPackageName) ?: return null
-        iconPack.loadBlocking()
+        // Drawables do not need the maps, only the clock does, so this never waits for a load
         val drawable = iconPack.getIcon(iconEntry, iconDpi) ?: return null
-        val clockMetadata =
-            if (user == Process.myUserHandle()) iconPack.getClock(iconEntry) else null
+        val clockMetadata = if (user == Process.myUserHandle() && iconPack.isLoaded) {
+            iconPack.getClock(iconEntry)
+        } else {
+            null
+        }
         if (clockMetadata != null) {
             val clockDrawable = ClockDrawableWrapper.forMeta(Build.VERSION.SDK_INT, clockMetadata) {
                 drawable
@@ -108,8 +185,12 @@ class IconPackProvider(private val context: Context) {
     }
 
     companion object {
+        private val LOADED_PACKS = PerfMetrics.gauge("iconpack/loaded")
+
         @JvmField
-        val INSTANCE = MainThreadInitializedObject(::IconPackProvider)
+        val INSTANCE = AnyThreadInitializedObject(
+            "IconPackProvider", ::IconPackProvider, UserCache.INSTANCE
+        )
     }
 }
 
@@ -48,6 +48,8 @@ class SystemIconPack(context: Context) : IconPack(context, "") {
             IconType.Normal
         )
 
+    override fun getIcons(): Map<ComponentName, IconEntry>? = null
+
     override fun getCalendar(componentName: ComponentName): IconEntry? = null
     override fun getClock(entry: IconEntry): ClockMetadata? = null
 
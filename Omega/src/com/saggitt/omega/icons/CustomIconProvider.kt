@@ -26,32 +26,25 @@ import android.content.Intent.*
 import android.content.IntentFilter
 import android.content.pm.ActivityInfo
 import android.content.pm.LauncherActivityInfo
-import android.content.res.Resources
 import android.graphics.drawable.Drawable
 import android.os.Handler
 import android.os.Process
 import android.os.UserHandle
 import android.os.UserManager
-import android.util.ArrayMap
-import android.util.Log
 import androidx.core.content.getSystemService
 import com.android.launcher3.BuildConfig
 import com.android.launcher3.R
 import com.android.launcher3.Utilities
 import com.android.launcher3.icons.IconProvider
+import com.android.launcher3.icons.IconTicker
 import com.android.launcher3.icons.ThemedIconDrawable
-import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.SafeCloseable
 import com.saggitt.omega.LAWNICONS_PACKAGE_NAME
-import com.saggitt.omega.data.IconOverrideRepository
-import com.saggitt.omega.iconpack.IconEntry
 import com.saggitt.omega.iconpack.IconPack
 import com.saggitt.omega.iconpack.IconPackProvider
 import com.saggitt.omega.iconpack.IconType
 import com.saggitt.omega.util.MultiSafeCloseable
 import com.saggitt.omega.util.getPackageVersionCode
-import com.saggitt.omega.util.isPackageInstalled
-import org.xmlpull.v1.XmlPullParser
 import java.util.function.Supplier
 
 class CustomIconProvider @JvmOverloads constructor(
@@ -63,19 +56,10 @@ class CustomIconProvider @JvmOverloads constructor(
     private val iconPackPref = prefs.themeIconPackGlobal
     private val mContext = context
     private val iconPackProvider = IconPackProvider.INSTANCE.get(context)
-    private val overrideRepo = IconOverrideRepository.INSTANCE.get(context)
-    private val iconPack get() = iconPackProvider.getIconPackOrSystem(iconPackPref.onGetValue())
+    private val iconResolver = IconResolver.INSTANCE.get(context)
+    private val themedIconMap = ThemedIconMap.INSTANCE.get(context)
     private var lawniconsVersion = 0L
-
-    private var _themeMap: Map<ComponentName, ThemedIconDrawable.ThemeData>? = null
-    private val themeMap: Map<ComponentName, ThemedIconDrawable.ThemeData>
-        get() {
-            if (_themeMap == null) {
-                _themeMap = createThemedIconMap()
-            }
-            return _themeMap!!
-        }
-    private val supportsIconTheme get() = themeMap != DISABLED_MAP
+    private var supportsIconTheme = false
 
     init {
         setIconThemeSupported(supportsIconTheme)
@@ -87,25 +71,7 @@ class CustomIconProvider @JvmOverloads constructor(
                 context.packageManager.getPackageVersionCode(LAWNICONS_PACKAGE_NAME)
             else
                 0L
-        _themeMap = if (isSupported) null else DISABLED_MAP
-    }
-
-    private fun resolveIconEntry(componentName: ComponentName, user: UserHandle): IconEntry? {
-        val componentKey = ComponentKey(componentName, user)
-        // first look for user-overridden icon
-        val overrideItem = overrideRepo.overridesMap[componentKey]
-        if (overrideItem != null) {
-            return overrideItem.toIconEntry()
-        }
-
-        val iconPack = this.iconPack ?: return null
-        // then look for dynamic calendar
-        val calendarEntry = iconPack.getCalendar(componentName)
-        if (calendarEntry != null) {
-            return calendarEntry
-        }
-        // finally, look for normal icon
-        return iconPack.getIcon(componentName)
+        supportsIconTheme = isSupported
     }
 
     override fun getIconWithOverrides(
@@ -116,12 +82,13 @@ class CustomIconProvider @JvmOverloads constructor(
         fallback: Supplier<Drawable>
     ): Drawable {
         val componentName = ComponentName(packageName, component)
-        val iconEntry = resolveIconEntry(componentName, user)
-        var resolvedEntry = iconEntry
+        val resolved = iconResolver.resolve(componentName, user)
+        var resolvedEntry = resolved?.entry
         var iconType = ICON_TYPE_DEFAULT
         var themeData: ThemedIconDrawable.ThemeData? = null
-        if (iconEntry != null) {
-            val clock = iconPackProvider.getClockMetadata(iconEntry)
+        if (resolved != null) {
+            val iconEntry = resolved.entry
+            val clock = resolved.clock
             when {
                 iconEntry.type == IconType.Calendar -> {
                     resolvedEntry = iconEntry.resolveDynamicCalendar(getDay())
@@ -164,11 +131,11 @@ class CustomIconProvider @JvmOverloads constructor(
     }
 
     override fun isThemeEnabled(): Boolean {
-        return _themeMap != DISABLED_MAP
+        return supportsIconTheme
     }
 
     override fun getThemeData(componentName: ComponentName): ThemedIconDrawable.ThemeData? {
-        return themeMap[componentName] ?: themeMap[ComponentName(componentName.packageName, "")]
+        return if (supportsIconTheme) themedIconMap.getThemeData(componentName) else null
     }
 
     override fun getIcon(info: ActivityInfo?): Drawable {
@@ -198,6 +165,7 @@ class CustomIconProvider @JvmOverloads constructor(
         return MultiSafeCloseable().apply {
             add(super.registerIconChangeListener(callback, handler))
             add(IconPackChangeReceiver(mContext, handler, callback))
+            add(iconResolver.addChangeListener(callback, handler))
             add(LawniconsChangeReceiver(context, handler, callback))
         }
     }
@@ -208,7 +176,7 @@ class CustomIconProvider @JvmOverloads constructor(
         private val callback: IconChangeListener
     ) : SafeCloseable {
 
-        private var calendarAndClockChangeReceiver: CalendarAndClockChangeReceiver? = null
+        private var calendarAndClockChangeListener: CalendarAndClockChangeListener? = null
             set(value) {
                 field?.close()
                 field = value
@@ -222,69 +190,66 @@ class CustomIconProvider @JvmOverloads constructor(
             if (iconState != newState) {
                 iconState = newState
                 callback.onSystemIconStateChanged(iconState)
-                recreateCalendarAndClockChangeReceiver()
+                recreateCalendarAndClockChangeListener()
             }
         }
 
         init {
-            recreateCalendarAndClockChangeReceiver()
+            recreateCalendarAndClockChangeListener()
         }
 
-        private fun recreateCalendarAndClockChangeReceiver() {
+        private fun recreateCalendarAndClockChangeListener() {
             val iconPack =
                 IconPackProvider.INSTANCE.get(context)
                     .getIconPackOrSystem(iconPackPref.onGetValue())
-            calendarAndClockChangeReceiver = if (iconPack != null) {
-                CalendarAndClockChangeReceiver(context, handler, iconPack, callback)
+            calendarAndClockChangeListener = if (iconPack != null) {
+                CalendarAndClockChangeListener(context, handler, iconPack, callback)
             } else {
                 null
             }
         }
 
         override fun close() {
-            calendarAndClockChangeReceiver = null
+            calendarAndClockChangeListener = null
             subscription.close()
         }
     }
 
-    private class CalendarAndClockChangeReceiver(
-        private val context: Context, handler: Handler,
+    /**
+     * Refreshes the calendar icons of the pack when the date changes, and its clock icons when
+     * the time zone changes. The time broadcasts are shared with the clock icons by [IconTicker].
+     */
+    private class CalendarAndClockChangeListener(
+        private val context: Context,
+        private val handler: Handler,
         private val iconPack: IconPack,
         private val callback: IconChangeListener
-    ) : BroadcastReceiver(), SafeCloseable {
+    ) : IconTicker.DateChangeListener, SafeCloseable {
 
-        init {
-            val filter = IntentFilter(ACTION_TIMEZONE_CHANGED)
-            filter.addAction(ACTION_TIME_CHANGED)
-            filter.addAction(ACTION_DATE_CHANGED)
-            context.registerReceiver(this, filter, null, handler)
-        }
+        private val registration = IconTicker.getInstance().addDateChangeListener(context, this)
 
-        override fun onReceive(context: Context, intent: Intent) {
-            when (intent.action) {
-                ACTION_TIMEZONE_CHANGED -> {
+        override fun onDateChanged(timeZoneChanged: Boolean) {
+            handler.post {
+                if (timeZoneChanged) {
                     iconPack.getClocks().forEach { componentName ->
                         callback.onAppIconChanged(componentName.packageName, Process.myUserHandle())
                     }
                 }
-
-                ACTION_DATE_CHANGED, ACTION_TIME_CHANGED -> {
-                    context.getSystemService<UserManager>()?.userProfiles?.forEach { user ->
-                        iconPack.getCalendars().forEach { componentName ->
-                            callback.onAppIconChanged(componentName.packageName, user)
-                        }
+                context.getSystemService<UserManager>()?.userProfiles?.forEach { user ->
+                    iconPack.getCalendars().forEach { componentName ->
+                        callback.onAppIconChanged(componentName.packageName, user)
                     }
                 }
             }
         }
 
         override fun close() {
-            context.unregisterReceiver(this)
+            registration.close()
         }
     }
 
     private inner class LawniconsChangeReceiver(
-        private val context: Context, handler: Handler,
+        private val context: Context, private val handler: Handler,
         private val callback: IconChangeListener
     ) : BroadcastReceiver(), SafeCloseable {
 
@@ -298,9 +263,15 @@ class CustomIconProvider @JvmOverloads constructor(
         }
 
         override fun onReceive(context: Context, intent: Intent) {
-            if (isThemeEnabled) {
+            val themeEnabled = isThemeEnabled
+            if (themeEnabled) {
                 setIconThemeSupported(true)
-                callback.onSystemIconStateChanged(systemIconState)
+            }
+            // Refreshed even when theming is off, so that the map is current once it is enabled
+            themedIconMap.refresh {
+                if (themeEnabled) {
+                    handler.post { callback.onSystemIconStateChanged(systemIconState) }
+                }
             }
         }
 
@@ -308,53 +279,4 @@ class CustomIconProvider @JvmOverloads constructor(
             context.unregisterReceiver(this)
         }
     }
-
-    private fun createThemedIconMap(): MutableMap<ComponentName, ThemedIconDrawable.ThemeData> {
-        val map = ArrayMap<ComponentName, ThemedIconDrawable.ThemeData>()
-
-        fun updateMapFromResources(resources: Resources, packageName: String) {
-            try {
-                val xmlId = resources.getIdentifier(THEMED_ICON_MAP_FILE, "xml", packageName)
-                if (xmlId != 0) {
-                    val parser = resources.getXml(xmlId)
-                    val depth = parser.depth
-                    var type: Int
-                    while (
-                        (parser.next()
-                            .also { type = it } != XmlPullParser.END_TAG || parser.depth > depth) &&
-                        type != XmlPullParser.END_DOCUMENT
-                    ) {
-                        if (type != XmlPullParser.START_TAG) continue
-                        if (TAG_ICON == parser.name) {
-                            val pkg = parser.getAttributeValue(null, ATTR_PACKAGE)
-                            val cmp = parser.getAttributeValue(null, ATTR_COMPONENT) ?: ""
-                            val iconId = parser.getAttributeResourceValue(null, ATTR_DRAWABLE, 0)
-                            if (iconId != 0 && pkg.isNotEmpty()) {
-                                map[ComponentName(pkg, cmp)] =
-                                    ThemedIconDrawable.ThemeData(resources, packageName, iconId)
-                            }
-                        }
-                    }
-                }
-            } catch (e: Exception) {
-                Log.e("CustomIconProvider", "Unable to parse icon map.", e)
-            }
-        }
-        updateMapFromResources(
-            resources = context.resources,
-            packageName = context.packageName
-        )
-        if (context.packageManager.isPackageInstalled(packageName = LAWNICONS_PACKAGE_NAME)) {
-            updateMapFromResources(
-                resources = context.packageManager.getResourcesForApplication(LAWNICONS_PACKAGE_NAME),
-                packageName = LAWNICONS_PACKAGE_NAME
-            )
-        }
-
-        return map
-    }
-
-    companion object {
-        val DISABLED_MAP = emptyMap<ComponentName, ThemedIconDrawable.ThemeData>()
-    }
 }
\ No newline at end of file
@@ -59,7 +59,6 @@ import androidx.compose.ui.res.painterResource
 import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.text.input.ImeAction
 import androidx.compose.ui.unit.dp
-import com.android.launcher3.LauncherAppState
 import com.android.launcher3.R
 import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.PackageManagerHelper
@@ -101,8 +100,6 @@ fun CustomizeIconSheet(
             val newTitle = if (title != defaultTitle) title else null
             if (newTitle != previousTitle) {
                 prefs.customAppName[componentKey] = newTitle
-                val model = LauncherAppState.getInstance(context).model
-                model.onPackageChanged(componentKey.componentName.packageName, componentKey.user)
             }
         }
     }
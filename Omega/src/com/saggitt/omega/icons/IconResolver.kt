@@ -0,0 +1,215 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.icons
+
+import android.content.BroadcastReceiver
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.Handler
+import android.os.UserHandle
+import com.android.launcher3.Utilities
+import com.android.launcher3.icons.IconProvider.IconChangeListener
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.AnyThreadInitializedObject
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.Executors.ICON_PACK_EXECUTOR
+import com.android.launcher3.util.PackageUserKey
+import com.android.launcher3.util.SafeCloseable
+import com.saggitt.omega.data.IconOverrideRepository
+import com.saggitt.omega.iconpack.IconEntry
+import com.saggitt.omega.iconpack.IconPack
+import com.saggitt.omega.iconpack.IconPackProvider
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.plus
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Resolves the icon entry of a component from an immutable table: the user override, then the
+ * calendar and the icon of the selected pack. The table is rebuilt on the icon pack thread when
+ * the overrides, the selected pack or its content change, and the packages whose entry changed
+ * are sent to the [IconChangeListener]s. Changing the pack itself changes the system icon state,
+ * which already refreshes every icon.
+ */
+class IconResolver(private val context: Context) {
+
+    data class Resolved(val entry: IconEntry, val clock: ClockMetadata?)
+
+    private class Table(
+        val generation: Int,
+        val packPackageName: String,
+        val overrides: Map<ComponentKey, Resolved>,
+        val icons: Map<ComponentName, Resolved>,
+        // Pack which has an icon for every component, like the system pack
+        val fallbackPack: IconPack?
+    ) {
+        fun resolve(componentName: ComponentName, user: UserHandle): Resolved? {
+            if (overrides.isNotEmpty()) {
+                overrides[ComponentKey(componentName, user)]?.let { return it }
+            }
+            return icons[componentName]
+                ?: fallbackPack?.getIcon(componentName)?.let { Resolved(it, null) }
+        }
+    }
+
+    private val prefs = Utilities.getOmegaPrefs(context)
+    private val iconPackProvider = IconPackProvider.INSTANCE.get(context)
+    private val overrideRepo = IconOverrideRepository.INSTANCE.get(context)
+    private val listeners = CopyOnWriteArrayList<Pair<IconChangeListener, Handler>>()
+
+    private val generation = AtomicInteger()
+    @Volatile
+    private var table = Table(-1, "", emptyMap(), emptyMap(), null)
+
+    init {
+        overrideRepo.overrides
+            .onEach { invalidate() }
+            .launchIn(
+                CoroutineScope(ICON_PACK_EXECUTOR.asCoroutineDispatcher())
+                        + CoroutineName("IconResolver")
+            )
+
+        val filter = IntentFilter(Intent.ACTION_PACKAGE_ADDED)
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED)
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED)
+        filter.addDataScheme("package")
+        context.registerReceiver(object : BroadcastReceiver() {
+            override fun onReceive(context: Context, intent: Intent) {
+                val packageName = intent.data?.schemeSpecificPart ?: return
+                if (packageName == table.packPackageName) {
+                    iconPackProvider.removeIconPack(packageName)
+                    invalidate()
+                }
+            }
+        }, filter, null, ICON_PACK_EXECUTOR.handler)
+    }
+
+    fun resolve(componentName: ComponentName, user: UserHandle): Resolved? {
+        val current = table
+        return if (current.generation == generation.get()) {
+            current.resolve(componentName, user)
+        } else {
+            rebuild().resolve(componentName, user)
+        }
+    }
+
+    /**
+     * Marks the table as outdated and rebuilds it in the background. Until then, the table is
+     * rebuilt by the first caller which needs it.
+     */
+    fun invalidate() {
+        generation.incrementAndGet()
+        ICON_PACK_EXECUTOR.execute { rebuild() }
+    }
+
+    fun addChangeListener(callback: IconChangeListener, handler: Handler): SafeCloseable {
+        val listener = Pair(callback, handler)
+        listeners.add(listener)
+        return SafeCloseable { listeners.remove(listener) }
+    }
+
+    @Synchronized
+    private fun rebuild(): Table {
+        val current = generation.get()
+        val old = table
+        if (old.generation == current) {
+            return old
+        }
+        val new = build(current)
+        table = new
+        if (old.generation >= 0 && old.packPackageName == new.packPackageName) {
+            notifyChanges(old, new)
+        }
+        return new
+    }
+
+    private fun build(generation: Int): Table {
+        val overrides = HashMap<ComponentKey, Resolved>()
+        overrideRepo.overridesMap.forEach { (key, item) ->
+            val entry = item.toIconEntry()
+            val pack = iconPackProvider.getIconPackOrSystem(entry.packPackageName)
+            pack?.loadBlocking()
+            overrides[key] = Resolved(entry, pack?.getClock(entry))
+        }
+
+        val packPackageName = prefs.themeIconPackGlobal.onGetValue()
+        val pack = iconPackProvider.getIconPackOrSystem(packPackageName)
+        val icons = HashMap<ComponentName, Resolved>()
+        var fallbackPack: IconPack? = null
+        if (pack != null) {
+            pack.loadBlocking()
+            val packIcons = pack.getIcons()
+            if (packIcons == null) {
+                fallbackPack = pack
+            } else {
+                packIcons.forEach { (componentName, entry) ->
+                    icons[componentName] = Resolved(entry, pack.getClock(entry))
+                }
+            }
+            // Calendars take precedence over the static icon of the component
+            pack.getCalendars().forEach { componentName ->
+                pack.getCalendar(componentName)?.let { icons[componentName] = Resolved(it, null) }
+            }
+        }
+        iconPackProvider.setActivePacks(
+            overrides.values.mapTo(hashSetOf(packPackageName)) { it.entry.packPackageName }
+        )
+        return Table(generation, packPackageName, overrides, icons, fallbackPack)
+    }
+
+    /**
+     * Sends the packages whose entry differs between the tables to the listeners
+     */
+    private fun notifyChanges(old: Table, new: Table) {
+        val changed = HashSet<PackageUserKey>()
+        (old.overrides.keys + new.overrides.keys)
+            .filter { old.overrides[it] != new.overrides[it] }
+            .mapTo(changed) { PackageUserKey(it.componentName.packageName, it.user) }
+        val changedIcons = (old.icons.keys + new.icons.keys)
+            .filter { old.icons[it] != new.icons[it] }
+        if (changedIcons.isNotEmpty()) {
+            val profiles = UserCache.INSTANCE.get(context).userProfiles
+            changedIcons.forEach { componentName ->
+                profiles.mapTo(changed) { PackageUserKey(componentName.packageName, it) }
+            }
+        }
+        if (changed.isEmpty()) {
+            return
+        }
+        listeners.forEach { (callback, handler) ->
+            handler.post {
+                changed.forEach { callback.onAppIconChanged(it.mPackageName, it.mUser) }
+            }
+        }
+    }
+
+    companion object {
+        @JvmField
+        val INSTANCE = AnyThreadInitializedObject(
+            "IconResolver", ::IconResolver,
+            IconPackProvider.INSTANCE, IconOverrideRepository.INSTANCE
+        )
+    }
+}
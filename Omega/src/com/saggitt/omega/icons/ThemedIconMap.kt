@@ -0,0 +1,188 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.icons
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.pm.PackageManager
+import android.content.res.Resources
+import android.os.SystemClock
+import android.util.Log
+import com.android.launcher3.Utilities
+import com.android.launcher3.icons.IconProvider.ATTR_DRAWABLE
+import com.android.launcher3.icons.IconProvider.ATTR_PACKAGE
+import com.android.launcher3.icons.IconProvider.TAG_ICON
+import com.android.launcher3.icons.IconProvider.THEMED_ICON_MAP_FILE
+import com.android.launcher3.icons.ThemedIconDrawable
+import com.android.launcher3.logging.PerfMetrics
+import com.android.launcher3.util.AnyThreadInitializedObject
+import com.android.launcher3.util.Executors.ICON_PACK_EXECUTOR
+import com.saggitt.omega.LAWNICONS_PACKAGE_NAME
+import org.xmlpull.v1.XmlPullParser
+import java.io.File
+import java.io.IOException
+
+/**
+ * Themed icons of the components, from the icon maps of the launcher and of Lawnicons, the
+ * latter taking precedence. The maps are parsed once into a [ThemedIconTable] file, which is
+ * memory mapped at startup, and parsed again only when the version of one of their packages
+ * changes.
+ */
+class ThemedIconMap(private val context: Context) {
+
+    private class Loaded(val table: ThemedIconTable) {
+        // Resources of the sources, looked up on their first icon
+        val resources = arrayOfNulls<Resources>(table.sourceVersions.size / 2)
+    }
+
+    private val sources = arrayOf(context.packageName, LAWNICONS_PACKAGE_NAME)
+    private val file = File(context.cacheDir, FILE_NAME)
+
+    @Volatile
+    private var loaded: Loaded? = null
+
+    init {
+        loaded = ThemedIconTable.read(file, readSourceVersions())?.let { Loaded(it) }
+        if (loaded == null) {
+            ICON_PACK_EXECUTOR.execute { load() }
+        }
+    }
+
+    /**
+     * Returns the theme data of [componentName], or of its package if it has none
+     */
+    fun getThemeData(componentName: ComponentName): ThemedIconDrawable.ThemeData? {
+        val current = loaded ?: load()
+        val icon = current.table[componentName] ?: return null
+        val packageName = sources[icon.source]
+        val resources = current.resources[icon.source]
+            ?: getResources(packageName)?.also { current.resources[icon.source] = it }
+            ?: return null
+        return ThemedIconDrawable.ThemeData(resources, packageName, icon.iconId)
+    }
+
+    /**
+     * Parses the maps again in the background if the version of one of their packages changed,
+     * then runs [onRefreshed]
+     */
+    fun refresh(onRefreshed: Runnable) {
+        ICON_PACK_EXECUTOR.execute {
+            val versions = readSourceVersions()
+            synchronized(this) {
+                if (loaded?.table?.sourceVersions?.contentEquals(versions) != true) {
+                    loaded = Loaded(build(versions))
+                }
+            }
+            onRefreshed.run()
+        }
+    }
+
+    @Synchronized
+    private fun load(): Loaded {
+        loaded?.let { return it }
+        return Loaded(build(readSourceVersions())).also { loaded = it }
+    }
+
+    private fun build(sourceVersions: LongArray): ThemedIconTable {
+        val start = SystemClock.elapsedRealtimeNanos()
+        val icons = HashMap<ComponentName, ThemedIconTable.Icon>()
+        sources.forEachIndexed { source, packageName ->
+            if (sourceVersions[source * 2] >= 0) {
+                getResources(packageName)?.let { parseIconMap(it, packageName, source, icons) }
+            }
+        }
+        val table = ThemedIconTable.create(sourceVersions, icons)
+        try {
+            table.write(file)
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to write the themed icon map", e)
+        }
+        BUILD_LATENCY.recordSince(start)
+        return table
+    }
+
+    private fun parseIconMap(
+        resources: Resources, packageName: String, source: Int,
+        icons: MutableMap<ComponentName, ThemedIconTable.Icon>
+    ) {
+        try {
+            val xmlId = resources.getIdentifier(THEMED_ICON_MAP_FILE, "xml", packageName)
+            if (xmlId == 0) {
+                return
+            }
+            val parser = resources.getXml(xmlId)
+            val depth = parser.depth
+            var type: Int
+            while (
+                (parser.next().also { type = it } != XmlPullParser.END_TAG
+                        || parser.depth > depth) && type != XmlPullParser.END_DOCUMENT
+            ) {
+                if (type != XmlPullParser.START_TAG || TAG_ICON != parser.name) continue
+                val pkg = parser.getAttributeValue(null, ATTR_PACKAGE) ?: ""
+                val cmp = parser.getAttributeValue(null, ATTR_COMPONENT) ?: ""
+                val iconId = parser.getAttributeResourceValue(null, ATTR_DRAWABLE, 0)
+                if (iconId != 0 && pkg.isNotEmpty()) {
+                    icons[ComponentName(pkg, cmp)] = ThemedIconTable.Icon(source, iconId)
+                }
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Unable to parse icon map of $packageName", e)
+        }
+    }
+
+    private fun getResources(packageName: String): Resources? {
+        if (packageName == context.packageName) {
+            return context.resources
+        }
+        return try {
+            context.packageManager.getResourcesForApplication(packageName)
+        } catch (e: PackageManager.NameNotFoundException) {
+            null
+        }
+    }
+
+    /**
+     * Returns the version code and the update time of every source, -1 if it is not installed
+     */
+    private fun readSourceVersions(): LongArray {
+        val versions = LongArray(sources.size * 2) { -1 }
+        sources.forEachIndexed { source, packageName ->
+            try {
+                val info = context.packageManager.getPackageInfo(packageName, 0)
+                versions[source * 2] =
+                    if (Utilities.ATLEAST_P) info.longVersionCode else info.versionCode.toLong()
+                versions[source * 2 + 1] = info.lastUpdateTime
+            } catch (e: PackageManager.NameNotFoundException) {
+                // Not installed
+            }
+        }
+        return versions
+    }
+
+    companion object {
+        private const val TAG = "ThemedIconMap"
+        private const val FILE_NAME = "themed_icon_map.bin"
+        private const val ATTR_COMPONENT = "component"
+
+        private val BUILD_LATENCY = PerfMetrics.histogram("icons/themed_map_build")
+
+        @JvmField
+        val INSTANCE = AnyThreadInitializedObject("ThemedIconMap", ::ThemedIconMap)
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.icons
+
+import android.content.ComponentName
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Binary form of a themed icon map, read in place from a memory mapped file. The entries are
+ * sorted by their key, the UTF-8 bytes of "package/component", and found with a binary search,
+ * so loading a table neither parses nor allocates anything per icon.
+ *
+ * Layout: the header (magic, format, source versions, entry count and keys length), the fixed
+ * size entries (key offset, icon id, key length and source), then the keys.
+ */
+class ThemedIconTable private constructor(
+    val sourceVersions: LongArray,
+    private val buffer: ByteBuffer
+) {
+
+    data class Icon(val source: Int, val iconId: Int)
+
+    private val entriesStart = headerSize(sourceVersions.size)
+    private val keysStart = entriesStart + buffer.getInt(entriesStart - 8) * ENTRY_SIZE
+
+    val size: Int
+        get() = buffer.getInt(entriesStart - 8)
+
+    /**
+     * Returns the icon of [componentName], or the one of its package if it has none
+     */
+    operator fun get(componentName: ComponentName): Icon? {
+        var entry = find(key(componentName.packageName, componentName.className))
+        if (entry < 0) {
+            entry = find(key(componentName.packageName, ""))
+        }
+        if (entry < 0) {
+            return null
+        }
+        val offset = entriesStart + entry * ENTRY_SIZE
+        return Icon(buffer.get(offset + 10).toInt(), buffer.getInt(offset + 4))
+    }
+
+    private fun find(key: ByteArray): Int {
+        var low = 0
+        var high = size - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val cmp = compareKey(mid, key)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return mid
+            }
+        }
+        return -1
+    }
+
+    private fun compareKey(entry: Int, key: ByteArray): Int {
+        val offset = entriesStart + entry * ENTRY_SIZE
+        val start = keysStart + buffer.getInt(offset)
+        val length = buffer.getShort(offset + 8).toInt()
+        for (i in 0 until minOf(length, key.size)) {
+            val cmp = (buffer.get(start + i).toInt() and 0xFF) - (key[i].toInt() and 0xFF)
+            if (cmp != 0) {
+                return cmp
+            }
+        }
+        return length - key.size
+    }
+
+    /**
+     * Writes the table to [file], replacing it at once so that readers never see a partial table
+     */
+    @Throws(IOException::class)
+    fun write(file: File) {
+        val tmp = File(file.path + ".tmp")
+        FileOutputStream(tmp).use { out ->
+            val data = buffer.duplicate()
+            data.clear()
+            while (data.hasRemaining()) {
+                out.channel.write(data)
+            }
+            out.fd.sync()
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete()
+            throw IOException("Unable to rename $tmp")
+        }
+    }
+
+    companion object {
+
+        private const val MAGIC = 0x4F54494D // OTIM
+        private const val FORMAT = 1
+        private const val ENTRY_SIZE = 12
+
+        // Magic, format, versions count, versions, entries count and keys length
+        private fun headerSize(versions: Int) = 12 + versions * 8 + 8
+
+        private fun key(packageName: String, className: String) =
+            "$packageName/$className".toByteArray(Charsets.UTF_8)
+
+        private val KEY_COMPARATOR = Comparator<ByteArray> { a, b ->
+            for (i in 0 until minOf(a.size, b.size)) {
+                val cmp = (a[i].toInt() and 0xFF) - (b[i].toInt() and 0xFF)
+                if (cmp != 0) {
+                    return@Comparator cmp
+                }
+            }
+            a.size - b.size
+        }
+
+        /**
+         * Creates a table of [icons], read from sources with the given versions
+         */
+        @JvmStatic
+        fun create(sourceVersions: LongArray, icons: Map<ComponentName, Icon>): ThemedIconTable {
+            val keys = icons.keys.map { key(it.packageName, it.className) to icons[it]!! }
+                .sortedWith { a, b -> KEY_COMPARATOR.compare(a.first, b.first) }
+            val keysLength = keys.sumOf { it.first.size }
+            val entriesStart = headerSize(sourceVersions.size)
+            val buffer = ByteBuffer.allocate(entriesStart + keys.size * ENTRY_SIZE + keysLength)
+            buffer.putInt(MAGIC).putInt(FORMAT).putInt(sourceVersions.size)
+            sourceVersions.forEach { buffer.putLong(it) }
+            buffer.putInt(keys.size).putInt(keysLength)
+            var keyOffset = 0
+            keys.forEach { (key, icon) ->
+                buffer.putInt(keyOffset).putInt(icon.iconId).putShort(key.size.toShort())
+                    .put(icon.source.toByte()).put(0)
+                keyOffset += key.size
+            }
+            keys.forEach { buffer.put(it.first) }
+            return ThemedIconTable(sourceVersions, buffer)
+        }
+
+        /**
+         * Maps the table written to [file], or returns null if there is none, or if it was read
+         * from sources with other versions than [sourceVersions]
+         */
+        @JvmStatic
+        fun read(file: File, sourceVersions: LongArray): ThemedIconTable? {
+            if (!file.exists()) {
+                return null
+            }
+            val buffer = try {
+                RandomAccessFile(file, "r").use {
+                    it.channel.map(FileChannel.MapMode.READ_ONLY, 0, it.length())
+                }
+            } catch (e: IOException) {
+                return null
+            }
+            val entriesStart = headerSize(sourceVersions.size)
+            if (buffer.limit() < entriesStart
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != FORMAT
+                || buffer.getInt(8) != sourceVersions.size
+                || sourceVersions.indices.any { buffer.getLong(12 + it * 8) != sourceVersions[it] }
+            ) {
+                return null
+            }
+            val count = buffer.getInt(entriesStart - 8)
+            val keysLength = buffer.getInt(entriesStart - 4)
+            val expectedSize = entriesStart + count.toLong() * ENTRY_SIZE + keysLength
+            if (count < 0 || keysLength < 0 || buffer.limit().toLong() != expectedSize) {
+                return null
+            }
+            return ThemedIconTable(sourceVersions, buffer)
+        }
+    }
+}
@@ -58,10 +58,10 @@ abstract class BasePreferences(context: Context) :
     val restart = {
         restart()
     }
-    val reloadApps = { reloadApps() }
-    val reloadAll = { reloadAll() }
+    val reloadApps = invalidate(PrefFacet.GRID_METRICS)
+    val reloadAll = invalidate(PrefFacet.MODEL)
     val updateBlur = { updateBlur() }
-    val recreate = { recreate() }
+    val recreate = invalidate(PrefFacet.VIEWS)
     val pokeChange = { pokeChange() }
 
     val idp: InvariantDeviceProfile get() = InvariantDeviceProfile.INSTANCE.get(mContext)
@@ -118,10 +118,6 @@ abstract class BasePreferences(context: Context) :
         onChangeCallback?.reloadApps()
     }
 
-    private fun reloadAll() {
-        onChangeCallback?.reloadAll()
-    }
-
     fun restart() {
         onChangeCallback?.restart()
     }
@@ -134,6 +130,14 @@ abstract class BasePreferences(context: Context) :
         onChangeCallback?.updateSmartspaceProvider()
     }
 
+    /**
+     * Returns a change listener which refreshes only the given facets of the launcher
+     */
+    fun invalidate(vararg facets: PrefFacet): () -> Unit {
+        val facetList = facets.toList()
+        return { onChangeCallback?.invalidate(facetList) }
+    }
+
     inline fun withChangeCallback(
         crossinline callback: (OmegaPreferencesChangeCallback) -> Unit
     ): () -> Unit {
@@ -173,8 +177,14 @@ abstract class BasePreferences(context: Context) :
                 valueMap.remove(key)
             }
             saveChanges()
+            onValueChanged(key)
         }
 
+        /**
+         * Called after the value of {@param key} was changed, to refresh only what depends on it
+         */
+        open fun onValueChanged(key: K) {}
+
         private fun saveChanges() {
             val obj = JSONObject()
             valueMap.entries.forEach { obj.put(flattenKey(it.key), flattenValue(it.value)) }
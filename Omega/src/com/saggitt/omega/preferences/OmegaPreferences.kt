@@ -178,6 +178,7 @@ import com.saggitt.omega.groups.DrawerTabs
 import com.saggitt.omega.iconpack.IconPackInfo
 import com.saggitt.omega.iconpack.IconPackProvider
 import com.saggitt.omega.icons.CustomAdaptiveIconDrawable
+import com.saggitt.omega.icons.IconResolver
 import com.saggitt.omega.icons.IconShape
 import com.saggitt.omega.preferences.custom.GridSize
 import com.saggitt.omega.preferences.custom.GridSize2D
@@ -307,7 +308,7 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         key = PREFS_DESKTOP_LOCK,
         titleId = R.string.title_desktop_lock_desktop,
         defaultValue = false,
-        onChange = reloadAll
+        onChange = doNothing
     )
     val desktopHideStatusBar = BooleanPref(
         key = PREFS_STATUSBAR_HIDE,
@@ -436,7 +437,7 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         minValue = 0.5f,
         steps = 150,
         specialOutputs = { "${(it * 100).roundToInt()}%" },
-        onChange = recreate
+        onChange = reloadApps
     )
     var dockScale = FloatPref(
         key = PREFS_DOCK_SCALE,
@@ -452,21 +453,21 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         key = PREFS_DOCK_BACKGROUND,
         titleId = R.string.title_dock_fill,
         defaultValue = false,
-        onChange = recreate
+        onChange = doNothing
     )
     val dockBackgroundColor = ColorIntPref(
         key = PREFS_DOCK_BACKGROUND_COLOR,
         titleId = R.string.title_dock_background_color,
         defaultValue = (0xff101010).toInt(),
         withAlpha = false,
-        onChange = recreate
+        onChange = doNothing
     )
 
     var dockOpacity = AlphaPref(
         key = PREFS_DOCK_OPACITY,
         titleId = R.string.title_opacity,
         defaultValue = 0.9f,
-        onChange = recreate
+        onChange = doNothing
     )
 
     var dockSearchBar = BooleanPref(
@@ -508,7 +509,7 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         titleId = R.string.title__sort_mode,
         defaultValue = Config.SORT_AZ,
         entries = drawerSortOptions,
-        onChange = recreate
+        onChange = invalidate(PrefFacet.DRAWER_ORDER)
     )
     var drawerHiddenAppSet = StringSetPref(
         key = PREFS_HIDDEN_SET,
@@ -516,7 +517,7 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         summaryId = R.string.summary__drawer_hide_apps,
         defaultValue = setOf(),
         navRoute = Routes.HIDDEN_APPS,
-        onChange = reloadApps
+        onChange = invalidate(PrefFacet.DRAWER_APPS)
     )
     var drawerHiddenApps by drawerHiddenAppSet
 
@@ -525,7 +526,7 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         titleId = R.string.protected_apps,
         defaultValue = setOf(),
         navRoute = Routes.PROTECTED_APPS,
-        onChange = reloadApps
+        onChange = doNothing
     )
     var drawerProtectedApps by drawerProtectedAppsSet
 
@@ -877,7 +878,7 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         summaryId = R.string.summary__drawer_hide_apps,
         defaultValue = setOf(),
         navRoute = Routes.PREFS_HIDE_APPS_USAGE,
-        onChange = reloadApps
+        onChange = doNothing
     )
     var hiddenUsageApps: Set<String> = setOf()
 
@@ -1146,11 +1147,17 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
     )
     // MISC
     val customAppName =
-        object : MutableMapPref<ComponentKey, String>("pref_appNameMap", reloadAll) {
+        object : MutableMapPref<ComponentKey, String>("pref_appNameMap") {
             override fun flattenKey(key: ComponentKey) = key.toString()
             override fun unflattenKey(key: String) = makeComponentKey(context, key)
             override fun flattenValue(value: String) = value
             override fun unflattenValue(value: String) = value
+
+            override fun onValueChanged(key: ComponentKey) {
+                // Updates the cached label of the app and rebinds its items
+                LauncherAppState.getInstance(context).model
+                    .onPackageChanged(key.componentName.packageName, key.user)
+            }
         }
 
     var torchState by BooleanPref(
@@ -1235,7 +1242,11 @@ class OmegaPreferences(val context: Context) : BasePreferences(context) {
         entries = IconPackProvider.INSTANCE.get(context)
             .getIconPackList()
             .associateBy(IconPackInfo::packageName, IconPackInfo::name),
-        onChange = reloadIcons
+        onChange = {
+            // Before the icons are reloaded, so that they use the new pack
+            IconResolver.INSTANCE.get(context).invalidate()
+            reloadIcons()
+        }
     )
 
     companion object {
@@ -19,11 +19,47 @@
 package com.saggitt.omega.preferences
 
 import com.android.launcher3.LauncherAppState
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
 import com.saggitt.omega.OmegaLauncher
+import com.saggitt.omega.allapps.ReloadDrawerAppsTask
 import com.saggitt.omega.blur.BlurWallpaperProvider
 import com.saggitt.omega.omegaApp
+import java.util.EnumSet
 
 class OmegaPreferencesChangeCallback(val launcher: OmegaLauncher) {
+    private val pendingFacets = EnumSet.noneOf(PrefFacet::class.java)
+
+    /**
+     * Refreshes the given facets. Changes made together, like a bulk edit or a restore, are
+     * applied once, and the drawer apps are not filtered again when the model is reloaded.
+     */
+    fun invalidate(facets: Collection<PrefFacet>) {
+        if (pendingFacets.isEmpty()) {
+            MAIN_EXECUTOR.handler.post(::applyPendingFacets)
+        }
+        pendingFacets.addAll(facets)
+    }
+
+    private fun applyPendingFacets() {
+        val facets = EnumSet.copyOf(pendingFacets)
+        pendingFacets.clear()
+        // Reloading the model also applies the app filter again
+        if (PrefFacet.MODEL in facets) reloadAll()
+        else if (PrefFacet.DRAWER_APPS in facets) reloadDrawerApps()
+        else if (PrefFacet.DRAWER_ORDER in facets) sortDrawerApps()
+
+        if (PrefFacet.GRID_METRICS in facets) reloadApps()
+        if (PrefFacet.VIEWS in facets) recreate()
+    }
+
+    private fun sortDrawerApps() {
+        launcher.appsView.appsStore.notifyAppsUpdated()
+    }
+
+    private fun reloadDrawerApps() {
+        launcher.model.enqueueModelUpdateTask(ReloadDrawerAppsTask())
+    }
+
     fun recreate() {
         if (launcher.shouldRecreate()) launcher.recreate()
     }
@@ -0,0 +1,40 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.preferences
+
+/**
+ * Parts of the launcher derived from preferences. A preference declares the facets it affects,
+ * and a change only refreshes those, from the cheapest to the most expensive one.
+ */
+enum class PrefFacet {
+    /** Order of the apps in the drawer, applied by sorting the bound apps again */
+    DRAWER_ORDER,
+
+    /** Apps listed in the drawer, filtered again from the loaded model */
+    DRAWER_APPS,
+
+    /** Device profile metrics like icon and text sizes, applied by rebinding the loaded model */
+    GRID_METRICS,
+
+    /** Views which read preferences when inflated, applied by recreating the launcher */
+    VIEWS,
+
+    /** Workspace items and apps, reloaded from the database */
+    MODEL,
+}
@@ -0,0 +1,223 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.search
+
+import com.android.launcher3.util.IntArray
+import com.saggitt.omega.data.PeopleInfo
+
+/**
+ * In memory search index of the contacts. Names are matched by prefix on their normalized words,
+ * using a sorted array of the words, and phone numbers by any sequence of their digits, using a
+ * suffix array of the digits. Results are ordered by name.
+ *
+ * The contacts are updated one by one, and the arrays are rebuilt on the next search after a
+ * change. Thread safe, updates come from the sync and searches from the model thread.
+ */
+class ContactSearchIndex {
+
+    private val contacts = HashMap<String, PeopleInfo>()
+    private var dirty = false
+
+    // Built from contacts, people are sorted by name and referenced by their position
+    private var people = emptyArray<PeopleInfo>()
+    private var peopleWords = emptyArray<Array<String>>()
+    private var words = emptyArray<String>()
+    private var wordOwners = kotlin.IntArray(0)
+    private var wordPositions = kotlin.IntArray(0)
+    private var digits = ""
+    private var digitOwners = kotlin.IntArray(0)
+    private var suffixes = kotlin.IntArray(0)
+
+    val size: Int
+        @Synchronized get() = contacts.size
+
+    @Synchronized
+    fun put(person: PeopleInfo) {
+        if (contacts.put(person.contactId, person) != person) {
+            dirty = true
+        }
+    }
+
+    @Synchronized
+    fun putAll(people: Collection<PeopleInfo>) {
+        people.forEach { put(it) }
+    }
+
+    @Synchronized
+    fun remove(contactId: String) {
+        if (contacts.remove(contactId) != null) {
+            dirty = true
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        if (contacts.isNotEmpty()) {
+            contacts.clear()
+            dirty = true
+        }
+    }
+
+    /**
+     * Returns up to [maxResults] contacts whose name words start with the words of [query], or
+     * whose phone number contains the digits of [query] if it looks like a number
+     */
+    @Synchronized
+    fun search(query: String, maxResults: Int): List<PeopleInfo> {
+        if (dirty) {
+            rebuild()
+        }
+        val queryDigits = query.filter { it.isDigit() }
+        val owners = if (queryDigits.length >= MIN_DIGITS && query.all { isPhoneChar(it) }) {
+            searchDigits(queryDigits)
+        } else {
+            searchWords(FuzzyAppIndex.normalize(query).split(' ').filter { it.isNotEmpty() })
+        }
+        return owners.take(maxResults).map { people[it] }
+    }
+
+    /**
+     * Returns the people with a word starting with every query word, those matching the first
+     * query word with their first word before the others
+     */
+    private fun searchWords(queryWords: List<String>): kotlin.IntArray {
+        if (queryWords.isEmpty()) {
+            return kotlin.IntArray(0)
+        }
+        val firstWordMatches = IntArray()
+        val otherMatches = IntArray()
+        val prefix = queryWords[0]
+        var i = lowerBound(words.size) { words[it].compareTo(prefix) }
+        while (i < words.size && words[i].startsWith(prefix)) {
+            val owner = wordOwners[i]
+            if (queryWords.all { word -> peopleWords[owner].any { it.startsWith(word) } }) {
+                (if (wordPositions[i] == 0) firstWordMatches else otherMatches).add(owner)
+            }
+            i++
+        }
+        val first = firstWordMatches.toArray().apply { sort() }
+        val others = otherMatches.toArray().apply { sort() }.distinct()
+            .filter { first.binarySearch(it) < 0 }
+        return first + others
+    }
+
+    /**
+     * Returns the people with a phone number containing [queryDigits], with a binary search of
+     * the suffixes starting with them
+     */
+    private fun searchDigits(queryDigits: String): kotlin.IntArray {
+        val owners = IntArray()
+        var i = lowerBound(suffixes.size) { compareSuffix(suffixes[it], queryDigits) }
+        while (i < suffixes.size && digits.startsWith(queryDigits, suffixes[i])) {
+            owners.add(digitOwners[suffixes[i]])
+            i++
+        }
+        return owners.toArray().apply { sort() }.distinct().toIntArray()
+    }
+
+    private fun rebuild() {
+        dirty = false
+        people = contacts.values
+            .sortedWith(compareBy<PeopleInfo> { FuzzyAppIndex.normalize(it.contactName) }
+                .thenBy { it.contactId })
+            .toTypedArray()
+        peopleWords = Array(people.size) {
+            FuzzyAppIndex.normalize(people[it].contactName).split(' ')
+                .filter { word -> word.isNotEmpty() }.toTypedArray()
+        }
+
+        val wordEntries = ArrayList<Triple<String, Int, Int>>()
+        peopleWords.forEachIndexed { owner, ownerWords ->
+            ownerWords.forEachIndexed { position, word ->
+                wordEntries.add(Triple(word, owner, position))
+            }
+        }
+        wordEntries.sortBy { it.first }
+        words = Array(wordEntries.size) { wordEntries[it].first }
+        wordOwners = kotlin.IntArray(wordEntries.size) { wordEntries[it].second }
+        wordPositions = kotlin.IntArray(wordEntries.size) { wordEntries[it].third }
+
+        // All the numbers in one string, each followed by a separator which sorts before digits
+        val builder = StringBuilder()
+        val owners = IntArray()
+        people.forEachIndexed { owner, person ->
+            person.contactPhone.filter { it.isDigit() }.forEach {
+                builder.append(it)
+                owners.add(owner)
+            }
+            builder.append(SEPARATOR)
+            owners.add(-1)
+        }
+        digits = builder.toString()
+        digitOwners = owners.toArray()
+        suffixes = digits.indices.filter { digits[it] != SEPARATOR }
+            .sortedWith { a, b -> compareSuffixes(a, b) }
+            .toIntArray()
+    }
+
+    private fun compareSuffixes(a: Int, b: Int): Int {
+        var i = 0
+        while (true) {
+            val ca = digits[a + i]
+            val cb = digits[b + i]
+            if (ca != cb) {
+                return ca.compareTo(cb)
+            }
+            if (ca == SEPARATOR) {
+                return a.compareTo(b)
+            }
+            i++
+        }
+    }
+
+    /**
+     * Compares the suffix at [start] with [prefix], a suffix starting with [prefix] is equal
+     */
+    private fun compareSuffix(start: Int, prefix: String): Int {
+        for (i in prefix.indices) {
+            val c = digits[start + i]
+            if (c != prefix[i]) {
+                return c.compareTo(prefix[i])
+            }
+        }
+        return 0
+    }
+
+    companion object {
+
+        private const val MIN_DIGITS = 2
+        private const val SEPARATOR = '#'
+
+        private fun isPhoneChar(c: Char) =
+            c.isDigit() || c == '+' || c == '(' || c == ')' || c == '-' || c == ' ' || c == '.'
+
+        /**
+         * Returns the first index in 0 until [size] for which [compare] is not negative
+         */
+        private inline fun lowerBound(size: Int, compare: (Int) -> Int): Int {
+            var low = 0
+            var high = size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (compare(mid) < 0) low = mid + 1 else high = mid
+            }
+            return low
+        }
+    }
+}
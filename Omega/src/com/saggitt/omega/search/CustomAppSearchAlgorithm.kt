@@ -19,11 +19,13 @@
 package com.saggitt.omega.search
 
 import android.content.Context
+import android.os.SystemClock
 import com.android.launcher3.LauncherAppState
 import com.android.launcher3.R
 import com.android.launcher3.Utilities
 import com.android.launcher3.allapps.AllAppsGridAdapter.AdapterItem
 import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm
+import com.android.launcher3.logging.PerfMetrics
 import com.android.launcher3.model.AllAppsList
 import com.android.launcher3.model.BaseModelUpdateTask
 import com.android.launcher3.model.BgDataModel
@@ -32,23 +34,26 @@ import com.android.launcher3.search.SearchCallback
 import com.android.launcher3.search.StringMatcherUtility
 import com.saggitt.omega.OmegaLauncher
 import com.saggitt.omega.data.PeopleRepository
-import me.xdrop.fuzzywuzzy.FuzzySearch
-import me.xdrop.fuzzywuzzy.algorithms.WeightedRatio
 import java.util.*
 
 class CustomAppSearchAlgorithm(val context: Context) : DefaultAppSearchAlgorithm(context) {
 
     private val prefs = Utilities.getOmegaPrefs(context)
+    private val fuzzyIndex = FuzzyAppIndex()
 
     override fun doSearch(query: String, callback: SearchCallback<AdapterItem>?) {
         mAppState.model.enqueueModelUpdateTask(object : BaseModelUpdateTask() {
             override fun execute(app: LauncherAppState, dataModel: BgDataModel, apps: AllAppsList) {
+                var startNanos = SystemClock.elapsedRealtimeNanos()
                 val result = getSearchResult(apps.data, query)
+                APPS_LATENCY.recordSince(startNanos)
                 var suggestions = emptyList<String?>()
 
                 if (prefs.searchContacts.onGetValue()) {
                     val repository = PeopleRepository.INSTANCE.get(app.context)
+                    startNanos = SystemClock.elapsedRealtimeNanos()
                     val contacts = repository.findPeople(query)
+                    CONTACTS_LATENCY.recordSince(startNanos)
                     val total = result.size
                     var position = total + 1
                     if (contacts.isNotEmpty()) {
@@ -77,7 +82,9 @@ class CustomAppSearchAlgorithm(val context: Context) : DefaultAppSearchAlgorithm
                 }
 
                 if (callback!!.showWebResult()) {
+                    startNanos = SystemClock.elapsedRealtimeNanos()
                     suggestions = getSuggestions(query)
+                    WEB_LATENCY.recordSince(startNanos)
                     callback.setShowWebResult(false)
                 }
                 mResultHandler.post {
@@ -107,21 +114,10 @@ class CustomAppSearchAlgorithm(val context: Context) : DefaultAppSearchAlgorithm
             apps
         }
 
-        val matcher = FuzzySearch.extractSorted(
-            query.lowercase(Locale.getDefault()), mApps,
-            { it!!.title.toString() }, WeightedRatio(), 65
-        )
-        var resultCount = 0
-        val total = matcher.size
-        var i = 0
-        while (i < total && resultCount < MAX_RESULTS_COUNT) {
-            val info = matcher!![i]
-            val appItem = AdapterItem.asApp(resultCount, "", info.referent, resultCount)
-            result.add(appItem)
-            resultCount++
-            i++
+        fuzzyIndex.update(mApps)
+        fuzzyIndex.search(query, MAX_RESULTS_COUNT).forEachIndexed { position, info ->
+            result.add(AdapterItem.asApp(position, "", info, position))
         }
-
         return result
     }
 
@@ -169,4 +165,10 @@ class CustomAppSearchAlgorithm(val context: Context) : DefaultAppSearchAlgorithm
             provider.getSuggestions(query)
         } else emptyList<String>()
     }
-}
\ No newline at end of file
+
+    companion object {
+        private val APPS_LATENCY = PerfMetrics.histogram("search/apps")
+        private val CONTACTS_LATENCY = PerfMetrics.histogram("search/contacts")
+        private val WEB_LATENCY = PerfMetrics.histogram("search/web")
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is part of Omega Launcher
+ * Copyright (c) 2022   Omega Launcher Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.saggitt.omega.search
+
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.IntArray
+import java.text.Normalizer
+
+/**
+ * Fuzzy index of the app titles. Titles are normalized and split in character bigrams, with a
+ * word boundary marker, in an inverted index. A query only scores the apps sharing enough
+ * bigrams with it, and only the best of those are scored with a bounded edit distance, instead
+ * of comparing the query with every title.
+ *
+ * The index is kept in sync with [update], which only re-indexes the apps whose title changed.
+ * Not thread safe, it is used from the model thread.
+ */
+class FuzzyAppIndex {
+
+    private class Entry(val app: AppInfo, val title: String, val text: String) {
+        val grams = IntArray()
+        var generation = 0
+    }
+
+    private val entries = ArrayList<Entry?>()
+    private val freeIds = IntArray()
+    private val ids = HashMap<ComponentKey, Int>()
+    private val postings = HashMap<Int, IntArray>()
+    private var generation = 0
+
+    // Reused per query
+    private var hits = kotlin.IntArray(0)
+    private val touched = IntArray()
+
+    val size: Int
+        get() = ids.size
+
+    /**
+     * Makes the index match [apps], re-indexing only the apps which were added or changed
+     */
+    fun update(apps: List<AppInfo>) {
+        generation++
+        for (app in apps) {
+            val key = app.toComponentKey()
+            val title = app.title?.toString() ?: ""
+            val id = ids[key]
+            val entry = id?.let { entries[it] }
+            if (entry != null && entry.app === app && entry.title == title) {
+                entry.generation = generation
+                continue
+            }
+            if (id != null) {
+                remove(key, id)
+            }
+            add(key, app, title)
+        }
+        if (ids.size > apps.size || ids.values.any { entries[it]!!.generation != generation }) {
+            ids.entries.filter { entries[it.value]!!.generation != generation }
+                .forEach { remove(it.key, it.value) }
+        }
+    }
+
+    private fun add(key: ComponentKey, app: AppInfo, title: String) {
+        val entry = Entry(app, title, " " + normalize(title))
+        entry.generation = generation
+        val id = if (freeIds.isEmpty) {
+            entries.add(entry)
+            entries.size - 1
+        } else {
+            val freeId = freeIds.get(freeIds.size() - 1)
+            freeIds.removeIndex(freeIds.size() - 1)
+            entries[freeId] = entry
+            freeId
+        }
+        forEachGram(entry.text) { gram ->
+            if (!entry.grams.contains(gram)) {
+                entry.grams.add(gram)
+                postings.getOrPut(gram) { IntArray() }.add(id)
+            }
+        }
+        ids[key] = id
+    }
+
+    private fun remove(key: ComponentKey, id: Int) {
+        val entry = entries[id] ?: return
+        for (i in 0 until entry.grams.size()) {
+            val gram = entry.grams.get(i)
+            val list = postings[gram] ?: continue
+            list.removeValue(id)
+            if (list.isEmpty) {
+                postings.remove(gram)
+            }
+        }
+        entries[id] = null
+        freeIds.add(id)
+        ids.remove(key)
+    }
+
+    /**
+     * Returns up to [maxResults] apps matching [query], best first
+     */
+    fun search(query: String, maxResults: Int): List<AppInfo> {
+        val tokens = normalize(query).split(' ').filter { it.isNotEmpty() }
+        if (tokens.isEmpty() || entries.isEmpty()) {
+            return emptyList()
+        }
+
+        // Count the query bigrams found in every title
+        if (hits.size < entries.size) {
+            hits = kotlin.IntArray(entries.size)
+        }
+        var queryGrams = 0
+        var totalEdits = 0
+        for (token in tokens) {
+            totalEdits += maxEdits(token.length)
+            forEachGram(" $token") { gram ->
+                queryGrams++
+                val list = postings[gram] ?: return@forEachGram
+                for (i in 0 until list.size()) {
+                    val id = list.get(i)
+                    if (hits[id] == 0) {
+                        touched.add(id)
+                    }
+                    hits[id]++
+                }
+            }
+        }
+
+        // Each edit changes at most two bigrams, and the match may not start at a word boundary
+        val minHits = maxOf(1, queryGrams - 2 * totalEdits - tokens.size)
+        val candidates = ArrayList<Entry>()
+        val candidateHits = ArrayList<Int>()
+        for (i in 0 until touched.size()) {
+            val id = touched.get(i)
+            if (hits[id] >= minHits) {
+                candidates.add(entries[id]!!)
+                candidateHits.add(hits[id])
+            }
+            hits[id] = 0
+        }
+        touched.clear()
+
+        val ranked = candidates.indices
+            .sortedByDescending { candidateHits[it] }
+            .take(MAX_SCORED_CANDIDATES)
+            .mapNotNull { i -> score(candidates[i], tokens)?.let { candidates[i] to it } }
+            .sortedWith(compareByDescending<Pair<Entry, Int>> { it.second }
+                .thenBy { it.first.title })
+        return ranked.take(maxResults).map { it.first.app }
+    }
+
+    /**
+     * Scores [entry] from 0 to 100 for the query [tokens], or returns null if a token is too far
+     * from every part of the title
+     */
+    private fun score(entry: Entry, tokens: List<String>): Int? {
+        var total = 0
+        for (token in tokens) {
+            val maxDistance = maxEdits(token.length)
+            val distance = substringDistance(token, entry.text, maxDistance)
+            if (distance > maxDistance) {
+                return null
+            }
+            var tokenScore = 100 * (token.length - distance) / token.length
+            if (entry.text.startsWith(" $token")) {
+                tokenScore += 30
+            } else if (entry.text.contains(" $token")) {
+                tokenScore += 20
+            }
+            total += tokenScore
+        }
+        // Prefer titles which the query covers the most
+        val uncovered = entry.text.length - 1 - tokens.sumOf { it.length }
+        return total / tokens.size - minOf(uncovered, 20) / 2
+    }
+
+    companion object {
+
+        private const val MAX_SCORED_CANDIDATES = 64
+
+        /**
+         * Typos allowed in a query token of the given length
+         */
+        private fun maxEdits(length: Int) = if (length < 3) 0 else length / 3
+
+        /**
+         * Lowercases [text], strips the accents and replaces the separators by single spaces
+         */
+        fun normalize(text: String): String {
+            val decomposed = Normalizer.normalize(text.lowercase(), Normalizer.Form.NFD)
+            val result = StringBuilder(decomposed.length)
+            var pendingSpace = false
+            for (c in decomposed) {
+                when {
+                    Character.getType(c) == Character.NON_SPACING_MARK.toInt() -> Unit
+                    Character.isLetterOrDigit(c) -> {
+                        if (pendingSpace && result.isNotEmpty()) {
+                            result.append(' ')
+                        }
+                        pendingSpace = false
+                        result.append(c)
+                    }
+                    else -> pendingSpace = true
+                }
+            }
+            return result.toString()
+        }
+
+        private inline fun forEachGram(text: String, action: (Int) -> Unit) {
+            for (i in 0 until text.length - 1) {
+                action((text[i].code shl 16) or text[i + 1].code)
+            }
+        }
+
+        /**
+         * Returns the smallest edit distance between [pattern] and any substring of [text], or
+         * [maxDistance] + 1 if it is larger. Only the rows which can still be within
+         * [maxDistance] are computed (Ukkonen's cut-off), and the search stops at an exact match.
+         */
+        fun substringDistance(pattern: String, text: String, maxDistance: Int): Int {
+            val m = pattern.length
+            val limit = maxDistance + 1
+            var prev = kotlin.IntArray(m + 1) { minOf(it, limit) }
+            var cur = kotlin.IntArray(m + 1)
+            var lastActive = minOf(maxDistance, m)
+            var best = if (lastActive == m) prev[m] else limit
+            for (c in text) {
+                cur[0] = 0
+                val rows = minOf(lastActive + 1, m)
+                for (i in 1..rows) {
+                    var value = prev[i - 1] + if (pattern[i - 1] == c) 0 else 1
+                    value = minOf(value, prev[i] + 1, cur[i - 1] + 1)
+                    cur[i] = minOf(value, limit)
+                }
+                for (i in rows + 1..m) {
+                    cur[i] = limit
+                }
+                lastActive = rows
+                while (lastActive > 0 && cur[lastActive] >= limit) {
+                    lastActive--
+                }
+                if (lastActive == m && cur[m] < best) {
+                    best = cur[m]
+                    if (best == 0) {
+                        return 0
+                    }
+                }
+                val swap = prev
+                prev = cur
+                cur = swap
+            }
+            return best
+        }
+    }
+}
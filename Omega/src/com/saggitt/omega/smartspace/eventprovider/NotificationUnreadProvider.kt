@@ -29,6 +29,7 @@ import com.android.launcher3.notification.NotificationMainView.NOTIFICATION_ITEM
 import com.android.launcher3.util.PackageUserKey
 import com.saggitt.omega.flowerpot.Flowerpot
 import com.saggitt.omega.flowerpot.FlowerpotApps
+import com.saggitt.omega.flowerpot.FlowerpotCategorizer
 import com.saggitt.omega.smartspace.OmegaSmartSpaceController
 import com.saggitt.omega.smartspace.OmegaSmartSpaceController.CardData
 import com.saggitt.omega.smartspace.OmegaSmartSpaceController.Line
@@ -62,6 +63,7 @@ class NotificationUnreadProvider(controller: OmegaSmartSpaceController) :
         manager.addListener(this)
         zenModeListener.startListening()
         runOnUiWorkerThread {
+            FlowerpotCategorizer.getInstance(controller.context).ensureClassified()
             flowerpotApps = Flowerpot.Manager.getInstance(controller.context)
                 .getPot("COMMUNICATION", true)?.apps
             flowerpotLoaded = true
@@ -69,7 +69,6 @@ import com.saggitt.omega.preferences.OmegaPreferences
 import org.json.JSONArray
 import org.json.JSONObject
 import java.lang.reflect.Field
-import java.text.Collator
 import java.text.SimpleDateFormat
 import java.util.Calendar
 import java.util.Date
@@ -466,9 +465,9 @@ fun UserCache.getUserForProfileId(profileId: Int) =
 
 fun MutableList<AppInfo>.sortApps(context: Context, sortType: Int) {
     when (sortType) {
-        Config.SORT_ZA -> sortWith(compareBy(Collator.getInstance().reversed()) {
-            it.title.toString().lowercase()
-        })
+        Config.SORT_ZA -> sortWith { a, b ->
+            b.titleSortKey.compareCollation(a.titleSortKey)
+        }
 
         Config.SORT_MOST_USED -> {
             val repository = AppTrackerRepository.INSTANCE[context]
@@ -477,9 +476,9 @@ fun MutableList<AppInfo>.sortApps(context: Context, sortType: Int) {
             sortWith(mostUsedComparator)
         }
         Config.SORT_BY_COLOR -> sortWith(AppColorComparator(context))
-        Config.SORT_AZ -> sortWith(compareBy(Collator.getInstance()) {
-            it.title.toString().lowercase()
-        })
+        Config.SORT_AZ -> sortWith { a, b ->
+            a.titleSortKey.compareCollation(b.titleSortKey)
+        }
         else -> sortWith(AppInfoComparator(context))
     }
 }
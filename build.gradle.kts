@@ -121,6 +121,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+    androidResources {
+        // The flowerpot bundle gets memory mapped, which requires it to be stored uncompressed
+        noCompress += "bundle"
+    }
     packagingOptions {
         jniLibs {
             pickFirsts += listOf("**/libeasyBypass.so")
@@ -169,6 +173,12 @@ android {
             manifest.srcFile("tests/AndroidManifest-common.xml")
         }
 
+        named("test") {
+            res.srcDirs(listOf("robolectric_tests/res"))
+            java.srcDirs(listOf("robolectric_tests/src"))
+            resources.srcDirs(listOf("robolectric_tests/resources"))
+        }
+
         named("androidTestDebug") {
             java.srcDirs("tests/src_common")
             manifest.srcFile("tests/AndroidManifest.xml")
@@ -196,6 +206,29 @@ android {
         }
     }
 
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all {
+                // Benchmarks take minutes, they only run with -Pbenchmark
+                if (project.hasProperty("benchmark")) {
+                    it.filter.includeTestsMatching("*BenchmarkTest")
+                    it.systemProperties(project.properties.filterKeys { key ->
+                        key.startsWith("benchmark.")
+                    })
+                    it.systemProperty(
+                        "benchmark.outputDir",
+                        project.findProperty("benchmark.outputDir")
+                            ?: "${buildDir}/outputs/benchmark"
+                    )
+                    it.outputs.upToDateWhen { false }
+                } else {
+                    it.exclude("**/*BenchmarkTest*")
+                }
+            }
+        }
+    }
+
     lint {
         abortOnError = false
         checkReleaseBuilds = false
@@ -234,7 +267,6 @@ dependencies {
     implementation("androidx.lifecycle:lifecycle-viewmodel-ktx:2.5.1")
     implementation("androidx.lifecycle:lifecycle-runtime-ktx:2.5.1")
     implementation(kotlin("stdlib", "1.7.20"))
-    implementation("me.xdrop:fuzzywuzzy:1.4.0")
     implementation("com.github.KwabenBerko:OpenWeatherMap-Android-Library:2.0.1") {
         exclude("com.android.support", "support-compat")
         exclude("com.android.support", "appcompat-v7")
@@ -301,6 +333,16 @@ dependencies {
     protobuf(files("quickstep/protos_overrides/"))
 
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.9")
+    testImplementation("org.mockito:mockito-core:4.6.1")
+    testImplementation("com.google.truth:truth:1.1.3")
+    // Reference for the fuzzy search benchmark
+    testImplementation("me.xdrop:fuzzywuzzy:1.4.0")
+    testImplementation("androidx.test:core:1.4.0")
+    testImplementation("androidx.test.ext:junit:1.1.3")
+    testImplementation("androidx.test.espresso:espresso-core:3.4.0")
+    testImplementation("androidx.test.espresso:espresso-contrib:3.4.0")
+    testImplementation("androidx.test.espresso:espresso-intents:3.4.0")
     implementation("junit:junit:4.13.2")
     androidTestImplementation("org.junit.jupiter:junit-jupiter:5.9.1")
 
@@ -353,6 +395,21 @@ task("detectAndroidLocals") {
 }
 tasks.preBuild.dependsOn("detectAndroidLocals")
 
+// Compiles the flowerpot rule files into the binary bundle loaded at runtime. The generated bundle
+// is checked in, so building without python just keeps using it
+val flowerpotBundle = tasks.register<Exec>("flowerpotBundle") {
+    workingDir = file("flowerpot")
+    commandLine("python3", "bundle.py")
+    inputs.dir("assets/flowerpot")
+    inputs.file("flowerpot/bundle.py")
+    outputs.file("assets/flowerpot.bundle")
+    onlyIf {
+        System.getenv("PATH").orEmpty().split(File.pathSeparator)
+            .any { File(it, "python3").canExecute() }
+    }
+}
+tasks.preBuild.dependsOn(flowerpotBundle)
+
 @SuppressWarnings(
     "UnnecessaryQualifiedReference",
     "SpellCheckingInspection",
@@ -0,0 +1,121 @@
+# This file is part of Lawnchair Launcher.
+#
+#     Lawnchair Launcher is free software: you can redistribute it and/or modify
+#     it under the terms of the GNU General Public License as published by
+#     the Free Software Foundation, either version 3 of the License, or
+#     (at your option) any later version.
+#
+#     Lawnchair Launcher is distributed in the hope that it will be useful,
+#     but WITHOUT ANY WARRANTY; without even the implied warranty of
+#     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#     GNU General Public License for more details.
+#
+#     You should have received a copy of the GNU General Public License
+#     along with Lawnchair Launcher.  If not, see <https://www.gnu.org/licenses/>.
+
+# Compiles all flowerpot files into a single binary bundle, which the launcher memory maps
+# instead of parsing every text file. See FlowerpotBundle.kt for the reading side.
+#
+# Layout (big endian):
+#   header    magic 'FPOT' (int), bundle format (short), flowerpot version (short),
+#             pot count (int), package count (int), rule count (int), string pool offset (int)
+#   pots      per pot: name offset (int), name length (int)
+#   packages  sorted by their UTF-8 bytes, per package: offset (int), length (int),
+#             bit mask of the pots containing it (long)
+#   rules     every non package rule: pot index (int), rule identifier (int), offset (int),
+#             length (int)
+#   strings   UTF-8 string pool, offsets above are relative to its start
+
+from pathlib import Path
+import struct
+import sys
+
+IN_PATH = "../assets/flowerpot/"
+OUT_PATH = "../assets/flowerpot.bundle"
+MAGIC = 0x46504F54
+BUNDLE_FORMAT = 1
+FORMAT_VERSION = 1
+MAX_POTS = 64
+RULE_IDENTIFIERS = ":;&"
+
+
+class StringPool:
+    def __init__(self):
+        self.data = bytearray()
+        self.offsets = {}
+
+    def add(self, value):
+        encoded = value.encode("utf-8")
+        if encoded not in self.offsets:
+            self.offsets[encoded] = len(self.data)
+            self.data += encoded
+        return self.offsets[encoded], len(encoded)
+
+
+def read_pot(path):
+    """Parses a flowerpot file the same way LineParser does"""
+    packages = []
+    rules = []
+    version = None
+    for line in path.read_text().splitlines():
+        if not line.strip() or line[0] == "#":
+            continue
+        if line[0] == "$":
+            if version is not None:
+                sys.exit("%s: version declaration can only appear once" % path.name)
+            version = int(line[1:])
+            if version != FORMAT_VERSION:
+                sys.exit("%s: unsupported version %d" % (path.name, version))
+            continue
+        if version is None:
+            sys.exit("%s: version has to be specified before any other rules" % path.name)
+        if line[0] in RULE_IDENTIFIERS:
+            rules.append((line[0], line[1:]))
+        elif line[0].isalpha():
+            packages.append(line)
+        else:
+            sys.exit("%s: unknown rule identifier '%s'" % (path.name, line[0]))
+    return packages, rules
+
+
+def main():
+    pot_files = sorted(p for p in Path(IN_PATH).iterdir() if p.is_file())
+    if len(pot_files) > MAX_POTS:
+        sys.exit("A bundle can contain at most %d pots" % MAX_POTS)
+
+    pool = StringPool()
+    pots = []
+    package_masks = {}
+    rules = []
+    for index, path in enumerate(pot_files):
+        pots.append(pool.add(path.name))
+        packages, pot_rules = read_pot(path)
+        for package in packages:
+            encoded = package.encode("utf-8")
+            package_masks[encoded] = package_masks.get(encoded, 0) | (1 << index)
+        for identifier, value in pot_rules:
+            rules.append((index, ord(identifier)) + pool.add(value))
+
+    # Sorting the raw bytes matches the unsigned byte comparison used for lookups
+    packages = [(pool.add(p.decode("utf-8")), package_masks[p]) for p in sorted(package_masks)]
+
+    header_size = 4 * 6
+    strings_offset = header_size + 8 * len(pots) + 16 * len(packages) + 16 * len(rules)
+    out = bytearray()
+    out += struct.pack(">IHHiiii", MAGIC, BUNDLE_FORMAT, FORMAT_VERSION,
+                       len(pots), len(packages), len(rules), strings_offset)
+    for offset, length in pots:
+        out += struct.pack(">ii", offset, length)
+    for (offset, length), mask in packages:
+        out += struct.pack(">iiQ", offset, length, mask)
+    for rule in rules:
+        out += struct.pack(">iiii", *rule)
+    out += pool.data
+
+    Path(OUT_PATH).write_bytes(out)
+    print("Bundled %d pots, %d packages and %d rules into %s (%d bytes)"
+          % (len(pots), len(packages), len(rules), OUT_PATH, len(out)))
+
+
+if __name__ == "__main__":
+    main()
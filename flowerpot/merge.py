@@ -17,6 +17,7 @@ from pathlib import Path
 import shutil
 import time
 import sys
+import bundle
 
 CATEGORY_MAP = {
     "HEALTH_AND_FITNESS": ["HEALTH_AND_FITNESS", "MEDICAL"],
@@ -67,3 +68,5 @@ for category in CATEGORY_MAP.keys():
                 out.write(input.read_text())
             else:
                 print("No input file found for %s" % origin)
+
+bundle.main()
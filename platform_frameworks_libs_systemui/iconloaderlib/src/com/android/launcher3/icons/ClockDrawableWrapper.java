@@ -25,6 +25,7 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.PorterDuff.Mode;
@@ -36,10 +37,11 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Looper;
 import android.os.Process;
-import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
 
 import androidx.annotation.NonNull;
@@ -51,6 +53,7 @@ import com.saggitt.omega.icons.ClockMetadata;
 import com.saggitt.omega.icons.CustomAdaptiveIconDrawable;
 
 import java.util.Calendar;
+import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 import java.util.function.IntFunction;
 
@@ -84,6 +87,9 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
     private static final String DEFAULT_SECOND_METADATA_KEY = LAUNCHER_PACKAGE
             + ".DEFAULT_SECOND";
 
+    // Icons are drawn at a few different sizes, like in the workspace and in folder previews
+    private static final int MAX_CACHED_SIZES = 3;
+
     /* Number of levels to jump per second for the second hand */
     private static final int LEVELS_PER_SECOND = 10;
 
@@ -308,6 +314,13 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
         public final ThemeData themeData;
         public final ColorFilter bgFilter;
 
+        // Foregrounds rendered at the last tick, by size
+        private final SparseArray<CachedForeground> mForegrounds = new SparseArray<>();
+        private final Calendar mTime = Calendar.getInstance();
+        private int mTimeZoneVersion = IconTicker.getInstance().getTimeZoneVersion();
+        private final Canvas mCanvas = new Canvas();
+        private AdaptiveIconDrawable mFullDrawable;
+
         ClockBitmapInfo(Bitmap icon, int color, float scale, AnimationInfo animInfo,
                         Bitmap background, ThemeData themeData) {
             this(icon, color, scale, animInfo, background, themeData, null);
@@ -361,30 +374,79 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
             canvas.drawBitmap(mFlattenedBackground, null, bounds, paint);
             paint.setColorFilter(oldFilter);
         }
+
+        /**
+         * Returns the foreground at the current time, rendered for the given size. The result is
+         * shared by all the drawables of this icon until the next tick.
+         */
+        @Nullable
+        synchronized Bitmap getForeground(int width, int height) {
+            if (width <= 0 || height <= 0) {
+                return null;
+            }
+            if (mFullDrawable == null) {
+                mFullDrawable = (AdaptiveIconDrawable) animInfo.baseDrawableState
+                        .newDrawable().mutate();
+            }
+            int timeZoneVersion = IconTicker.getInstance().getTimeZoneVersion();
+            if (timeZoneVersion != mTimeZoneVersion) {
+                // The foregrounds are cached by tick, which does not change with the time zone
+                mTimeZoneVersion = timeZoneVersion;
+                mTime.setTimeZone(TimeZone.getDefault());
+                mForegrounds.clear();
+            }
+            int key = (width << 16) | height;
+            CachedForeground cached = mForegrounds.get(key);
+            if (cached == null) {
+                if (mForegrounds.size() >= MAX_CACHED_SIZES) {
+                    mForegrounds.clear();
+                }
+                cached = new CachedForeground(
+                        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+                mForegrounds.put(key, cached);
+            }
+
+            long tick = IconTicker.getTick(System.currentTimeMillis());
+            if (cached.tick != tick) {
+                cached.tick = tick;
+                LayerDrawable foreground = (LayerDrawable) mFullDrawable.getForeground();
+                animInfo.applyTime(mTime, foreground);
+                mFullDrawable.setBounds(0, 0, width, height);
+
+                cached.bitmap.eraseColor(Color.TRANSPARENT);
+                mCanvas.setBitmap(cached.bitmap);
+                mCanvas.save();
+                mCanvas.scale(scale, scale, width / 2f + offset, height / 2f + offset);
+                mCanvas.clipPath(mFullDrawable.getIconMask());
+                foreground.draw(mCanvas);
+                mCanvas.restore();
+                mCanvas.setBitmap(null);
+            }
+            return cached.bitmap;
+        }
     }
 
-    private static class ClockIconDrawable extends FastBitmapDrawable implements Runnable {
+    private static class CachedForeground {
 
-        private final Calendar mTime = Calendar.getInstance();
+        final Bitmap bitmap;
+        long tick = -1;
+
+        CachedForeground(Bitmap bitmap) {
+            this.bitmap = bitmap;
+        }
+    }
+
+    private static class ClockIconDrawable extends FastBitmapDrawable
+            implements IconTicker.TickListener {
 
         private final ClockBitmapInfo mInfo;
 
-        private final AdaptiveIconDrawable mFullDrawable;
-        private final LayerDrawable mForeground;
+        private boolean mIsTicking;
 
         ClockIconDrawable(ClockBitmapInfo clockInfo) {
             super(clockInfo);
 
             mInfo = clockInfo;
-            mFullDrawable = (AdaptiveIconDrawable) mInfo.animInfo.baseDrawableState
-                    .newDrawable().mutate();
-            mForeground = (LayerDrawable) mFullDrawable.getForeground();
-        }
-
-        @Override
-        protected void onBoundsChange(Rect bounds) {
-            super.onBoundsChange(bounds);
-            mFullDrawable.setBounds(bounds);
         }
 
         @Override
@@ -395,15 +457,12 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
             }
             mInfo.drawBackground(canvas, bounds, mPaint);
 
-            // prepare and draw the foreground
-            mInfo.animInfo.applyTime(mTime, mForeground);
-
-            canvas.scale(mInfo.scale, mInfo.scale,
-                    bounds.exactCenterX() + mInfo.offset, bounds.exactCenterY() + mInfo.offset);
-            canvas.clipPath(mFullDrawable.getIconMask());
-            mForeground.draw(canvas);
+            Bitmap foreground = mInfo.getForeground(bounds.width(), bounds.height());
+            if (foreground != null) {
+                canvas.drawBitmap(foreground, bounds.left, bounds.top, mPaint);
+            }
 
-            reschedule();
+            startTicking();
         }
 
         @Override
@@ -412,40 +471,28 @@ public class ClockDrawableWrapper extends CustomAdaptiveIconDrawable implements
         }
 
         @Override
-        protected void updateFilter() {
-            super.updateFilter();
-            mFullDrawable.setColorFilter(mPaint.getColorFilter());
-        }
-
-        @Override
-        public void run() {
-            if (mInfo.animInfo.applyTime(mTime, mForeground)) {
-                invalidateSelf();
-            } else {
-                reschedule();
-            }
+        public void onTick() {
+            invalidateSelf();
         }
 
         @Override
         public boolean setVisible(boolean visible, boolean restart) {
             boolean result = super.setVisible(visible, restart);
             if (visible) {
-                reschedule();
-            } else {
-                unscheduleSelf(this);
+                startTicking();
+            } else if (mIsTicking) {
+                mIsTicking = false;
+                IconTicker.getInstance().removeTickListener(this);
             }
             return result;
         }
 
-        private void reschedule() {
-            if (!isVisible()) {
-                return;
+        private void startTicking() {
+            // Drawables can also be drawn in the background, like for the launcher preview
+            if (!mIsTicking && isVisible() && Looper.myLooper() == Looper.getMainLooper()) {
+                mIsTicking = true;
+                IconTicker.getInstance().addTickListener(this);
             }
-
-            unscheduleSelf(this);
-            final long upTime = SystemClock.uptimeMillis();
-            final long step = TICK_MS; /* tick every 200 ms */
-            scheduleSelf(this, upTime - ((upTime % step)) + step);
         }
 
         @Override
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static android.content.Intent.ACTION_DATE_CHANGED;
+import static android.content.Intent.ACTION_TIMEZONE_CHANGED;
+import static android.content.Intent.ACTION_TIME_CHANGED;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.android.launcher3.util.SafeCloseable;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide ticker for the icons which change with the time. Instead of every clock drawable
+ * scheduling its own callback, the visible ones register here and are all updated in the same
+ * frame, right after the tick boundary. Listeners interested in the date, like calendar icons,
+ * are notified once per day change from a single time broadcast receiver.
+ *
+ * Unless noted otherwise, the methods must be called on the main thread.
+ */
+public final class IconTicker {
+
+    /**
+     * Listener for every tick, at {@link ClockDrawableWrapper#TICK_MS} intervals
+     */
+    public interface TickListener {
+        void onTick();
+    }
+
+    /**
+     * Listener for changes of the current date, or of the time zone
+     */
+    public interface DateChangeListener {
+        void onDateChanged(boolean timeZoneChanged);
+    }
+
+    // Created on first use, from any thread, as the date listeners are added from the workers
+    private static final class Holder {
+        static final IconTicker INSTANCE = new IconTicker();
+    }
+
+    /**
+     * Returns the process-wide ticker, can be called from any thread
+     */
+    public static IconTicker getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mTickRunnable = this::onTickTime;
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> dispatchTick();
+
+    // Drawables are not unregistered when they are garbage collected while visible
+    private final Set<TickListener> mTickListeners =
+            Collections.newSetFromMap(new WeakHashMap<>());
+    private final ArrayList<TickListener> mTempListeners = new ArrayList<>();
+    private final ArrayList<DateChangeListener> mDateListeners = new ArrayList<>();
+
+    private final Calendar mTime = Calendar.getInstance();
+    private long mCurrentTick;
+    private int mCurrentDay;
+    private volatile int mTimeZoneVersion;
+
+    private Context mReceiverContext;
+    private final BroadcastReceiver mTimeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (ACTION_TIMEZONE_CHANGED.equals(action)) {
+                mTime.setTimeZone(TimeZone.getDefault());
+                mTimeZoneVersion++;
+                mCurrentDay = getDay();
+                notifyDateChanged(true);
+            } else if (ACTION_TIME_CHANGED.equals(action)) {
+                mCurrentDay = getDay();
+                notifyDateChanged(false);
+            } else {
+                checkDate();
+            }
+            if (!mTickListeners.isEmpty()) {
+                // The next tick boundary moved with the time
+                mHandler.removeCallbacks(mTickRunnable);
+                onTickTime();
+            }
+        }
+    };
+
+    private IconTicker() {
+        mCurrentTick = getTick(System.currentTimeMillis());
+        mCurrentDay = getDay();
+    }
+
+    /**
+     * Returns the index of the tick containing {@param timeMillis}, which identifies the content
+     * of the clock icons drawn at that time.
+     */
+    public static long getTick(long timeMillis) {
+        return timeMillis / ClockDrawableWrapper.TICK_MS;
+    }
+
+    /**
+     * Returns the index of the current tick, as of the last tick dispatched
+     */
+    public long getCurrentTick() {
+        return mCurrentTick;
+    }
+
+    /**
+     * Returns a number which changes every time the time zone changes, so that the icons drawn
+     * with their own calendar know when to update its time zone. Can be called from any thread.
+     */
+    public int getTimeZoneVersion() {
+        return mTimeZoneVersion;
+    }
+
+    /**
+     * Registers {@param listener} to be called on every tick, until it is removed
+     */
+    public void addTickListener(TickListener listener) {
+        boolean wasEmpty = mTickListeners.isEmpty();
+        mTickListeners.add(listener);
+        if (wasEmpty) {
+            mCurrentTick = getTick(System.currentTimeMillis());
+            scheduleNextTick();
+        }
+    }
+
+    public void removeTickListener(TickListener listener) {
+        mTickListeners.remove(listener);
+        if (mTickListeners.isEmpty()) {
+            mHandler.removeCallbacks(mTickRunnable);
+        }
+    }
+
+    /**
+     * Registers {@param listener} to be called when the date or the time zone changes. The
+     * listener is called on the main thread, until the returned closeable is closed. Can be
+     * called from any thread.
+     */
+    public SafeCloseable addDateChangeListener(Context context, DateChangeListener listener) {
+        mHandler.post(() -> addDateChangeListenerOnMainThread(context, listener));
+        return () -> mHandler.post(() -> removeDateChangeListener(listener));
+    }
+
+    private void addDateChangeListenerOnMainThread(Context context, DateChangeListener listener) {
+        if (mDateListeners.isEmpty()) {
+            mReceiverContext = context.getApplicationContext();
+            IntentFilter filter = new IntentFilter(ACTION_TIMEZONE_CHANGED);
+            filter.addAction(ACTION_TIME_CHANGED);
+            filter.addAction(ACTION_DATE_CHANGED);
+            mReceiverContext.registerReceiver(mTimeReceiver, filter, null, mHandler);
+            mCurrentDay = getDay();
+        }
+        mDateListeners.add(listener);
+    }
+
+    private void removeDateChangeListener(DateChangeListener listener) {
+        if (mDateListeners.remove(listener) && mDateListeners.isEmpty()) {
+            mReceiverContext.unregisterReceiver(mTimeReceiver);
+            mReceiverContext = null;
+        }
+    }
+
+    private void scheduleNextTick() {
+        mHandler.removeCallbacks(mTickRunnable);
+        long now = System.currentTimeMillis();
+        long nextTickTime = (getTick(now) + 1) * ClockDrawableWrapper.TICK_MS;
+        mHandler.postDelayed(mTickRunnable, nextTickTime - now);
+    }
+
+    private void onTickTime() {
+        // Wait for the next frame, so that all the clocks are invalidated together
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+
+    private void dispatchTick() {
+        mCurrentTick = getTick(System.currentTimeMillis());
+        checkDate();
+        if (mTickListeners.isEmpty()) {
+            return;
+        }
+        mTempListeners.addAll(mTickListeners);
+        for (TickListener listener : mTempListeners) {
+            listener.onTick();
+        }
+        mTempListeners.clear();
+        scheduleNextTick();
+    }
+
+    private void checkDate() {
+        int day = getDay();
+        if (day != mCurrentDay) {
+            mCurrentDay = day;
+            notifyDateChanged(false);
+        }
+    }
+
+    private void notifyDateChanged(boolean timeZoneChanged) {
+        for (int i = mDateListeners.size() - 1; i >= 0; i--) {
+            mDateListeners.get(i).onDateChanged(timeZoneChanged);
+        }
+    }
+
+    private int getDay() {
+        mTime.setTimeInMillis(System.currentTimeMillis());
+        return mTime.get(Calendar.YEAR) * 1000 + mTime.get(Calendar.DAY_OF_YEAR);
+    }
+}
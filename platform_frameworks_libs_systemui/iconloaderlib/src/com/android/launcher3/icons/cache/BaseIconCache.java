@@ -53,9 +53,12 @@ import com.android.launcher3.util.SQLiteCacheHelper;
 import com.saggitt.omega.icons.CustomAdaptiveIconDrawable;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -67,6 +70,12 @@ public abstract class BaseIconCache {
 
     private static final int INITIAL_ICON_CACHE_CAPACITY = 50;
 
+    // Stays below the default limit of 999 arguments per SQLite statement
+    private static final int MAX_QUERY_ARGS = 500;
+    private static final String[] COLUMNS_HIGH_RES_WITH_COMPONENT = new String[]{
+            IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL, IconDB.COLUMN_ICON,
+            IconDB.COLUMN_COMPONENT};
+
     // Empty class name is used for storing package default entry.
     public static final String EMPTY_CLASS_NAME = ".";
 
@@ -400,7 +409,7 @@ public abstract class BaseIconCache {
         }
     }
 
-    private static ComponentKey getPackageKey(String packageName, UserHandle user) {
+    protected static ComponentKey getPackageKey(String packageName, UserHandle user) {
         ComponentName cn = new ComponentName(packageName, packageName + EMPTY_CLASS_NAME);
         return new ComponentKey(cn, user);
     }
@@ -474,26 +483,7 @@ public abstract class BaseIconCache {
                             cacheKey.componentName.flattenToString(),
                             Long.toString(getSerialNumberForUser(cacheKey.user))});
             if (c.moveToNext()) {
-                // Set the alpha to be 255, so that we never have a wrong color
-                entry.bitmap = BitmapInfo.of(LOW_RES_ICON, setColorAlphaBound(c.getInt(0), 255));
-                entry.title = c.getString(1);
-                if (entry.title == null) {
-                    entry.title = "";
-                    entry.contentDescription = "";
-                } else {
-                    entry.contentDescription = mPackageManager.getUserBadgedLabel(
-                            entry.title, cacheKey.user);
-                }
-
-                if (!lowRes) {
-                    try {
-                        entry.bitmap = BitmapInfo.fromByteArray(
-                                c.getBlob(2), entry.bitmap.color, cacheKey.user, this, mContext);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                }
-                return entry.bitmap != null;
+                return readEntry(c, cacheKey, entry, lowRes);
             }
         } catch (SQLiteException e) {
             Log.d(TAG, "Error reading icon cache", e);
@@ -505,6 +495,88 @@ public abstract class BaseIconCache {
         return false;
     }
 
+    /**
+     * Loads the high-res entries of {@param keys} which are not already in memory, with a single
+     * DB query per user instead of one query per component. Components which are not in the DB,
+     * or whose label is missing from it, are left to the regular lookup, which loads the label
+     * from the component. Nothing is loaded if {@param cachingLogic}, which the
+     * entries are cached with, does not keep them in memory.
+     */
+    protected synchronized void preloadHighResEntries(Collection<ComponentKey> keys,
+            CachingLogic<?> cachingLogic) {
+        assertWorkerThread();
+        if (!cachingLogic.addToMemCache()) {
+            return;
+        }
+        HashMap<UserHandle, ArrayList<String>> componentsByUser = new HashMap<>();
+        for (ComponentKey key : keys) {
+            CacheEntry entry = mCache.get(key);
+            if (entry == null || entry.bitmap.isLowRes()) {
+                componentsByUser.computeIfAbsent(key.user, u -> new ArrayList<>())
+                        .add(key.componentName.flattenToString());
+            }
+        }
+
+        for (Map.Entry<UserHandle, ArrayList<String>> userComponents
+                : componentsByUser.entrySet()) {
+            UserHandle user = userComponents.getKey();
+            ArrayList<String> components = userComponents.getValue();
+            String serial = Long.toString(getSerialNumberForUser(user));
+            for (int start = 0; start < components.size(); start += MAX_QUERY_ARGS) {
+                List<String> chunk = components.subList(
+                        start, Math.min(components.size(), start + MAX_QUERY_ARGS));
+                String[] args = chunk.toArray(new String[chunk.size() + 1]);
+                args[chunk.size()] = serial;
+                String selection = IconDB.COLUMN_COMPONENT + " IN ("
+                        + TextUtils.join(",", Collections.nCopies(chunk.size(), "?"))
+                        + ") AND " + IconDB.COLUMN_USER + " = ?";
+                try (Cursor c = mIconDb.query(COLUMNS_HIGH_RES_WITH_COMPONENT, selection, args)) {
+                    while (c.moveToNext()) {
+                        ComponentName cn = ComponentName.unflattenFromString(c.getString(3));
+                        if (cn == null) {
+                            continue;
+                        }
+                        ComponentKey key = new ComponentKey(cn, user);
+                        CacheEntry entry = new CacheEntry();
+                        if (readEntry(c, key, entry, false /* lowRes */)
+                                && !TextUtils.isEmpty(entry.title)) {
+                            mCache.put(key, entry);
+                        }
+                    }
+                } catch (SQLiteException e) {
+                    Log.d(TAG, "Error reading icon cache", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the entry at the current position of {@param c}, which starts with the columns of
+     * {@link IconDB#COLUMNS_HIGH_RES} or {@link IconDB#COLUMNS_LOW_RES}.
+     */
+    private boolean readEntry(Cursor c, ComponentKey cacheKey, CacheEntry entry, boolean lowRes) {
+        // Set the alpha to be 255, so that we never have a wrong color
+        entry.bitmap = BitmapInfo.of(LOW_RES_ICON, setColorAlphaBound(c.getInt(0), 255));
+        entry.title = c.getString(1);
+        if (entry.title == null) {
+            entry.title = "";
+            entry.contentDescription = "";
+        } else {
+            entry.contentDescription = mPackageManager.getUserBadgedLabel(
+                    entry.title, cacheKey.user);
+        }
+
+        if (!lowRes) {
+            try {
+                entry.bitmap = BitmapInfo.fromByteArray(
+                        c.getBlob(2), entry.bitmap.color, cacheKey.user, this, mContext);
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return entry.bitmap != null;
+    }
+
     /**
      * Returns a cursor for an arbitrary query to the cache db
      */
@@ -537,7 +609,15 @@ public abstract class BaseIconCache {
                 IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL};
 
         public IconDB(Context context, String dbFileName, int iconPixelSize) {
-            super(context, dbFileName, (RELEASE_VERSION << 16) + iconPixelSize, TABLE_NAME);
+            super(context, dbFileName, getVersion(iconPixelSize), TABLE_NAME);
+        }
+
+        /**
+         * Returns the version of the DB for {@param iconPixelSize}, the DB is recreated when it
+         * changes
+         */
+        public static int getVersion(int iconPixelSize) {
+            return (RELEASE_VERSION << 16) + iconPixelSize;
         }
 
         @Override
@@ -45,6 +45,10 @@ import static com.android.quickstep.GestureState.STATE_END_TARGET_SET;
 import static com.android.quickstep.GestureState.STATE_RECENTS_ANIMATION_CANCELED;
 import static com.android.quickstep.GestureState.STATE_RECENTS_SCROLLING_FINISHED;
 import static com.android.quickstep.MultiStateCallback.DEBUG_STATES;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_CANCEL_RECENTS_ANIMATION;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_FINISH_RECENTS_ANIMATION;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_SETTLED_ON_END_TARGET;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_START_RECENTS_ANIMATION_CALLBACK;
 import static com.android.quickstep.views.RecentsView.UPDATE_SYSUI_FLAGS_THRESHOLD;
 import static com.android.systemui.shared.system.ActivityManagerWrapper.CLOSE_SYSTEM_WINDOWS_REASON_RECENTS;
 import static com.android.systemui.shared.system.RemoteAnimationTargetCompat.ACTIVITY_TYPE_HOME;
@@ -82,6 +86,7 @@ import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.anim.AnimationSuccessListener;
 import com.android.launcher3.anim.AnimatorPlaybackController;
+import com.android.launcher3.logging.PerfMetrics;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.logging.StatsLogManager.StatsLogger;
 import com.android.launcher3.statemanager.BaseState;
@@ -130,6 +135,9 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
         RecentsAnimationCallbacks.RecentsAnimationListener {
     private static final String TAG = "AbsSwipeUpHandler";
 
+    private static final PerfMetrics.Histogram GESTURE_TO_FIRST_FRAME =
+            PerfMetrics.histogram("gesture/first_frame");
+
     private static final String[] STATE_NAMES = DEBUG_STATES ? new String[17] : null;
 
     protected final BaseActivityInterface<S, T> mActivityInterface;
@@ -527,6 +535,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 TraceHelper.FLAG_IGNORE_BINDERS);
         LatencyTrackerCompat.logToggleRecents(
                 mContext, (int) (mLauncherFrameDrawnTime - mTouchTimeMs));
+        GESTURE_TO_FIRST_FRAME.recordMillis(mLauncherFrameDrawnTime - mTouchTimeMs);
         TraceHelper.INSTANCE.endSection(traceToken);
 
         // This method is only called when STATE_GESTURE_STARTED is set, so we can enable the
@@ -706,7 +715,8 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
     @Override
     public void onRecentsAnimationStart(RecentsAnimationController controller,
                                         RecentsAnimationTargets targets) {
-        ActiveGestureLog.INSTANCE.addLog("startRecentsAnimationCallback", targets.apps.length);
+        ActiveGestureLog.INSTANCE.addLog(EVENT_START_RECENTS_ANIMATION_CALLBACK,
+                targets.apps.length);
         mRecentsAnimationController = controller;
         mRecentsAnimationTargets = targets;
         mTransformParams.setTargetSet(mRecentsAnimationTargets);
@@ -754,7 +764,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
 
     @Override
     public void onRecentsAnimationCanceled(ThumbnailData thumbnailData) {
-        ActiveGestureLog.INSTANCE.addLog("cancelRecentsAnimation");
+        ActiveGestureLog.INSTANCE.addLog(EVENT_CANCEL_RECENTS_ANIMATION);
         mActivityInitListener.unregister();
         mStateCallback.setStateOnUiThread(STATE_GESTURE_CANCELLED | STATE_HANDLER_INVALIDATED);
 
@@ -888,7 +898,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 mStateCallback.setState(STATE_RESUME_LAST_TASK);
                 break;
         }
-        ActiveGestureLog.INSTANCE.addLog("onSettledOnEndTarget " + endTarget);
+        ActiveGestureLog.INSTANCE.addLog(EVENT_SETTLED_ON_END_TARGET, String.valueOf(endTarget));
     }
 
     /**
@@ -1384,7 +1394,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
     private void resumeLastTask() {
         if (mRecentsAnimationController != null) {
             mRecentsAnimationController.finish(false /* toRecents */, null);
-            ActiveGestureLog.INSTANCE.addLog("finishRecentsAnimation", false);
+            ActiveGestureLog.INSTANCE.addLog(EVENT_FINISH_RECENTS_ANIMATION, false);
         }
         doLogGesture(LAST_TASK, null);
         reset();
@@ -1580,7 +1590,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
             mRecentsAnimationController.finish(true /* toRecents */,
                     () -> mStateCallback.setStateOnUiThread(STATE_CURRENT_TASK_FINISHED));
         }
-        ActiveGestureLog.INSTANCE.addLog("finishRecentsAnimation", true);
+        ActiveGestureLog.INSTANCE.addLog(EVENT_FINISH_RECENTS_ANIMATION, true);
     }
 
     private void finishCurrentTransitionToHome() {
@@ -1592,7 +1602,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
             finishRecentsControllerToHome(
                     () -> mStateCallback.setStateOnUiThread(STATE_CURRENT_TASK_FINISHED));
         }
-        ActiveGestureLog.INSTANCE.addLog("finishRecentsAnimation", true);
+        ActiveGestureLog.INSTANCE.addLog(EVENT_FINISH_RECENTS_ANIMATION, true);
         doLogGesture(HOME, mRecentsView == null ? null : mRecentsView.getCurrentPageTaskView());
     }
 
@@ -1748,7 +1758,7 @@ public abstract class AbsSwipeUpHandler<T extends StatefulActivity<S>,
                 mRecentsAnimationController.finish(false /* toRecents */,
                         null /* onFinishComplete */);
                 mActivityInterface.onLaunchTaskSuccess();
-                ActiveGestureLog.INSTANCE.addLog("finishRecentsAnimation", false);
+                ActiveGestureLog.INSTANCE.addLog(EVENT_FINISH_RECENTS_ANIMATION, false);
             }
         }
     }
@@ -17,8 +17,10 @@ package com.android.quickstep;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.SystemClock;
 
 import com.android.launcher3.R;
+import com.android.launcher3.logging.PerfMetrics;
 import com.android.launcher3.util.Preconditions;
 import com.android.quickstep.util.CancellableTask;
 import com.android.quickstep.util.TaskKeyLruCache;
@@ -33,6 +35,11 @@ import java.util.function.Consumer;
 
 public class TaskThumbnailCache {
 
+    private static final PerfMetrics.Histogram LOAD_LATENCY =
+            PerfMetrics.histogram("recents/thumbnail_load");
+    private static final PerfMetrics.Counter CACHE_HITS =
+            PerfMetrics.counter("recents/thumbnail_cache_hit");
+
     private final Executor mBgExecutor;
 
     private final int mCacheSize;
@@ -151,6 +158,7 @@ public class TaskThumbnailCache {
         ThumbnailData cachedThumbnail = mCache.getAndInvalidateIfModified(key);
         if (cachedThumbnail != null && (!cachedThumbnail.reducedResolution || lowResolution)) {
             // Already cached, lets use that thumbnail
+            CACHE_HITS.increment();
             callback.accept(cachedThumbnail);
             return null;
         }
@@ -158,8 +166,11 @@ public class TaskThumbnailCache {
         CancellableTask<ThumbnailData> request = new CancellableTask<ThumbnailData>() {
             @Override
             public ThumbnailData getResultOnBg() {
-                return ActivityManagerWrapper.getInstance().getTaskThumbnail(
+                long startNanos = SystemClock.elapsedRealtimeNanos();
+                ThumbnailData thumbnail = ActivityManagerWrapper.getInstance().getTaskThumbnail(
                         key.id, lowResolution);
+                LOAD_LATENCY.recordSince(startNanos);
+                return thumbnail;
             }
 
             @Override
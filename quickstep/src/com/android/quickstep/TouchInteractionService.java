@@ -23,6 +23,8 @@ import static com.android.launcher3.config.FeatureFlags.ASSISTANT_GIVES_LAUNCHER
 import static com.android.launcher3.config.FeatureFlags.ENABLE_QUICKSTEP_LIVE_TILE;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.quickstep.GestureState.DEFAULT_STATE;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_MOTION_EVENT;
+import static com.android.quickstep.util.ActiveGestureLog.EVENT_SET_INPUT_CONSUMER;
 import static com.android.systemui.shared.system.ActivityManagerWrapper.CLOSE_SYSTEM_WINDOWS_REASON_RECENTS;
 import static com.android.systemui.shared.system.QuickStepContract.KEY_EXTRA_SHELL_ONE_HANDED;
 import static com.android.systemui.shared.system.QuickStepContract.KEY_EXTRA_SHELL_PIP;
@@ -97,6 +99,7 @@ import com.android.quickstep.inputconsumers.ScreenPinnedInputConsumer;
 import com.android.quickstep.inputconsumers.SysUiOverlayInputConsumer;
 import com.android.quickstep.util.ActiveGestureLog;
 import com.android.quickstep.util.AssistantUtilities;
+import com.android.quickstep.util.BinderTracker;
 import com.android.quickstep.util.ProtoTracer;
 import com.android.quickstep.util.SplitScreenBounds;
 import com.android.systemui.plugins.OverscrollPlugin;
@@ -116,8 +119,12 @@ import com.android.wm.shell.splitscreen.ISplitScreen;
 import com.android.wm.shell.startingsurface.IStartingWindow;
 import com.android.wm.shell.transition.IShellTransitions;
 
+import java.io.File;
 import java.io.FileDescriptor;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.LinkedList;
 
@@ -328,6 +335,7 @@ public class TouchInteractionService extends Service implements PluginListener<O
         super.onCreate();
         // Initialize anything here that is needed in direct boot mode.
         // Everything else should be initialized in onUserUnlocked() below.
+        BinderTracker.startCounting();
         mMainChoreographer = Choreographer.getInstance();
         mAM = ActivityManagerWrapper.getInstance();
         mDeviceState = new RecentsAnimationDeviceState(this, true);
@@ -548,7 +556,7 @@ public class TouchInteractionService extends Service implements PluginListener<O
                 mGestureState = newGestureState;
                 mConsumer = newConsumer(prevGestureState, mGestureState, event);
 
-                ActiveGestureLog.INSTANCE.addLog("setInputConsumer: " + mConsumer.getName());
+                ActiveGestureLog.INSTANCE.addLog(EVENT_SET_INPUT_CONSUMER, mConsumer.getName());
                 mUncheckedConsumer = mConsumer;
             } else if (mDeviceState.isUserUnlocked() && mDeviceState.isFullyGesturalNavMode()) {
                 mGestureState = createGestureState(mGestureState);
@@ -589,12 +597,11 @@ public class TouchInteractionService extends Service implements PluginListener<O
             switch (event.getActionMasked()) {
                 case ACTION_DOWN:
                 case ACTION_UP:
-                    ActiveGestureLog.INSTANCE.addLog("onMotionEvent("
-                                    + (int) event.getRawX() + ", " + (int) event.getRawY() + ")",
-                            event.getActionMasked());
+                    ActiveGestureLog.INSTANCE.addLog(EVENT_MOTION_EVENT, (int) event.getRawX(),
+                            (int) event.getRawY(), event.getActionMasked());
                     break;
                 default:
-                    ActiveGestureLog.INSTANCE.addLog("onMotionEvent", event.getActionMasked());
+                    ActiveGestureLog.INSTANCE.addLog(EVENT_MOTION_EVENT, event.getActionMasked());
                     break;
             }
         }
@@ -948,6 +955,8 @@ public class TouchInteractionService extends Service implements PluginListener<O
     private void printAvailableCommands(PrintWriter pw) {
         pw.println("Available commands:");
         pw.println("  clear-touch-log: Clears the touch interaction log");
+        pw.println("  export-touch-log: Writes the touch interaction log to a trace file which"
+                + " can be opened in Perfetto");
     }
 
     private void onCommand(PrintWriter pw, LinkedList<String> args) {
@@ -955,6 +964,15 @@ public class TouchInteractionService extends Service implements PluginListener<O
             case "clear-touch-log":
                 ActiveGestureLog.INSTANCE.clear();
                 break;
+            case "export-touch-log":
+                File traceFile = new File(getFilesDir(), "touch_interaction_log.json");
+                try (Writer writer = new FileWriter(traceFile)) {
+                    ActiveGestureLog.INSTANCE.writeTrace(writer);
+                    pw.println("Touch log written to " + traceFile);
+                } catch (IOException e) {
+                    pw.println("Failed to write touch log: " + e);
+                }
+                break;
         }
     }
 
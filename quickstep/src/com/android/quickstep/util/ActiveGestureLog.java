@@ -30,7 +30,22 @@ public class ActiveGestureLog extends EventLogArray {
      */
     public static final String INTENT_EXTRA_LOG_TRACE_ID = "INTENT_EXTRA_LOG_TRACE_ID";
 
+    // Events logged during gestures, interned once to keep the touch path allocation free
+    public static final int EVENT_START_QUICKSTEP = intern("startQuickstep");
+    public static final int EVENT_START_RECENTS_ANIMATION = intern("startRecentsAnimation");
+    public static final int EVENT_SET_INPUT_CONSUMER = intern("setInputConsumer");
+    public static final int EVENT_MOTION_EVENT = intern("onMotionEvent");
+    public static final int EVENT_START_RECENTS_ANIMATION_CALLBACK =
+            intern("startRecentsAnimationCallback");
+    public static final int EVENT_CANCEL_RECENTS_ANIMATION = intern("cancelRecentsAnimation");
+    public static final int EVENT_FINISH_RECENTS_ANIMATION = intern("finishRecentsAnimation");
+    public static final int EVENT_SETTLED_ON_END_TARGET = intern("onSettledOnEndTarget");
+    public static final int EVENT_SET_END_TARGET = intern("setEndTarget");
+
+    // Large enough to cover several gestures before a stuck gesture is reported
+    private static final int LOG_SIZE = 2048;
+
     private ActiveGestureLog() {
-        super("touch_interaction_log", 40);
+        super("touch_interaction_log", LOG_SIZE);
     }
 }
@@ -19,9 +19,11 @@ package com.android.quickstep.util;
 import android.os.Binder;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.logging.PerfMetrics;
 
 /**
  * Utility class to test and check binder calls during development.
@@ -39,6 +41,17 @@ public class BinderTracker {
         Binder.setProxyTransactListener(new Tracker());
     }
 
+    /**
+     * Counts binder calls made on the main thread and their duration in {@link PerfMetrics}.
+     * Unlike {@link #start()}, this is cheap enough to be used in released code, and is enabled
+     * by {@link FeatureFlags#COUNT_MAIN_THREAD_BINDER_CALLS}.
+     */
+    public static void startCounting() {
+        if (FeatureFlags.COUNT_MAIN_THREAD_BINDER_CALLS.get()) {
+            Binder.setProxyTransactListener(new CountingTracker());
+        }
+    }
+
     public static void stop() {
         if (!FeatureFlags.IS_STUDIO_BUILD) {
             Log.wtf(TAG, "Accessing tracker in released code.", new Exception());
@@ -60,4 +73,31 @@ public class BinderTracker {
         @Override
         public void onTransactEnded(Object session) { }
     }
+
+    private static class CountingTracker implements Binder.ProxyTransactListener {
+
+        private static final PerfMetrics.Histogram MAIN_THREAD_CALLS =
+                PerfMetrics.histogram("binder/main_thread");
+        // Returned as the session of main thread calls, so that no state is allocated per call
+        private static final Object MAIN_THREAD_SESSION = new Object();
+
+        // Main thread calls are synchronous and never overlap
+        private long mMainThreadStartNanos;
+
+        @Override
+        public Object onTransactStarted(IBinder iBinder, int code) {
+            if (Looper.myLooper() != Looper.getMainLooper()) {
+                return null;
+            }
+            mMainThreadStartNanos = SystemClock.elapsedRealtimeNanos();
+            return MAIN_THREAD_SESSION;
+        }
+
+        @Override
+        public void onTransactEnded(Object session) {
+            if (session == MAIN_THREAD_SESSION) {
+                MAIN_THREAD_CALLS.recordSince(mMainThreadStartNanos);
+            }
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.graphics.Bitmap;
+import android.os.Process;
+
+import com.android.launcher3.allapps.AllAppsGridAdapter.AdapterItem;
+import com.android.launcher3.icons.BitmapInfo;
+import com.android.launcher3.model.data.AppInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Robolectric unit tests for the change detection of {@link AdapterItem}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AdapterItemTest {
+
+    @Test
+    public void appItemsMatchByComponent() {
+        AppInfo app = createApp("a");
+        AdapterItem item = AdapterItem.asApp(0, "A", app, 0);
+
+        assertTrue(item.isSameAs(AdapterItem.asApp(5, "B", app, 5)));
+        assertTrue(item.isSameAs(AdapterItem.asApp(0, "A", createApp("a"), 0)));
+        assertFalse(item.isSameAs(AdapterItem.asApp(0, "A", createApp("b"), 0)));
+        assertFalse(item.isSameAs(AdapterItem.asSearchSuggestion(0, "a")));
+    }
+
+    @Test
+    public void appItemContentChangesWithAppUpdates() {
+        AppInfo app = createApp("a");
+        AdapterItem item = AdapterItem.asApp(0, "A", app, 0);
+        assertTrue(item.isContentSame(AdapterItem.asApp(1, "A", app, 1)));
+
+        app.title = "updated";
+        assertFalse(item.isContentSame(AdapterItem.asApp(0, "A", app, 0)));
+
+        AdapterItem titleUpdated = AdapterItem.asApp(0, "A", app, 0);
+        app.bitmap = BitmapInfo.fromBitmap(Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+        assertFalse(titleUpdated.isContentSame(AdapterItem.asApp(0, "A", app, 0)));
+    }
+
+    @Test
+    public void searchItemsMatchByValue() {
+        assertTrue(AdapterItem.asSearchSuggestion(0, "query")
+                .isSameAs(AdapterItem.asSearchSuggestion(3, "query")));
+        assertFalse(AdapterItem.asSearchSuggestion(0, "query")
+                .isSameAs(AdapterItem.asSearchSuggestion(0, "other")));
+        assertTrue(AdapterItem.asSectionHeader(0, "Apps")
+                .isSameAs(AdapterItem.asSectionHeader(1, "Apps")));
+        assertTrue(AdapterItem.asMarketSearch(0).isSameAs(AdapterItem.asMarketSearch(9)));
+        assertFalse(AdapterItem.asMarketSearch(0).isSameAs(AdapterItem.asAllAppsDivider(0)));
+    }
+
+    private static AppInfo createApp(String name) {
+        AppInfo app = new AppInfo();
+        app.componentName = new ComponentName("com.test." + name, "com.test." + name + ".Main");
+        app.user = Process.myUserHandle();
+        app.title = name;
+        return app;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+
+import androidx.core.graphics.ColorUtils;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.util.LabelComparator;
+import com.android.launcher3.util.TitleSortKey;
+import com.saggitt.omega.allapps.AppColorComparator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Robolectric unit tests for the precomputed sort keys of {@link AppInfo}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AppSortKeyTest {
+
+    private static final int APP_COUNT = 1000;
+    private static final String[] PREFIXES = {"", "", "", "1", "_", "Ä", "é", "#"};
+
+    private Context mContext;
+    private List<AppInfo> mApps;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        Random random = new Random(42);
+        mApps = new ArrayList<>();
+        for (int i = 0; i < APP_COUNT; i++) {
+            StringBuilder title = new StringBuilder(PREFIXES[random.nextInt(PREFIXES.length)]);
+            for (int j = random.nextInt(8) + 2; j > 0; j--) {
+                title.append((char) ('a' + random.nextInt(26)));
+            }
+            AppInfo app = new AppInfo();
+            app.componentName = new ComponentName("com.test.app" + i, "com.test.app" + i + ".Main");
+            app.user = Process.myUserHandle();
+            app.title = title;
+            app.iconColor = random.nextInt() | 0xFF000000;
+            mApps.add(app);
+        }
+    }
+
+    @Test
+    public void nameOrderMatchesLabelComparator() {
+        LabelComparator labels = new LabelComparator();
+        assertSameOrder(new AppInfoComparator(mContext), (a, b) -> {
+            int result = labels.compare(a.title.toString(), b.title.toString());
+            return result != 0 ? result : a.componentName.compareTo(b.componentName);
+        });
+    }
+
+    @Test
+    public void colorOrderMatchesHslBuckets() {
+        Comparator<AppInfo> names = new AppInfoComparator(mContext);
+        assertSameOrder(new AppColorComparator(mContext), (a, b) -> {
+            int result = compareHsl(a.iconColor, b.iconColor);
+            return result != 0 ? result : names.compare(a, b);
+        });
+    }
+
+    @Test
+    public void sortKeysFollowUpdates() {
+        AppInfo app = mApps.get(0);
+        TitleSortKey key = app.getTitleSortKey();
+        assertSame(key, app.getTitleSortKey());
+
+        app.title = "updated";
+        assertNotSame(key, app.getTitleSortKey());
+        assertEquals("updated", app.getTitleSortKey().collationKey.getSourceString());
+
+        app.iconColor = 0xFFFF0000;
+        assertEquals(AppColorComparator.getColorBucket(0xFFFF0000), app.getColorSortKey());
+        app.iconColor = 0xFF0000FF;
+        assertEquals(AppColorComparator.getColorBucket(0xFF0000FF), app.getColorSortKey());
+    }
+
+    private void assertSameOrder(Comparator<AppInfo> actual, Comparator<AppInfo> expected) {
+        List<AppInfo> sorted = new ArrayList<>(mApps);
+        sorted.sort(actual);
+        List<AppInfo> reference = new ArrayList<>(mApps);
+        Collections.shuffle(reference, new Random(7));
+        reference.sort(expected);
+        assertEquals(reference, sorted);
+    }
+
+    private static int compareHsl(int colorA, int colorB) {
+        int[] a = remapHsl(colorA);
+        int[] b = remapHsl(colorB);
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+
+    private static int[] remapHsl(int color) {
+        float[] hsl = new float[3];
+        ColorUtils.colorToHSL(color, hsl);
+        int h = AppColorComparator.remapHue(hsl[0]);
+        int s = AppColorComparator.remap(hsl[1]);
+        int l = AppColorComparator.remap(hsl[2]);
+        if (h % 2 == 1) {
+            s = AppColorComparator.REPETITIONS - s;
+            l = AppColorComparator.REPETITIONS - l;
+        }
+        return new int[] {h, l, s};
+    }
+}
@@ -26,9 +26,10 @@ import android.os.UserHandle;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.Executors;
+import com.android.launcher3.util.IntSparseArrayMap;
 
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
+import org.junit.Before;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
@@ -36,6 +37,7 @@ import org.robolectric.annotation.LooperMode;
 import org.robolectric.annotation.LooperMode.Mode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 @RunWith(RobolectricTestRunner.class)
 @LooperMode(Mode.PAUSED)
@@ -80,4 +82,21 @@ public final class FolderNameProviderTest {
         assertTrue(nameInfos.hasSuggestions());
         assertTrue(nameInfos.hasPrimary());
     }
+
+    @Test
+    public void getSuggestedFolderName_packageTitleFirst() throws Exception {
+        ArrayList<WorkspaceItemInfo> list = new ArrayList<>();
+        list.add(mItem1);
+        list.add(mItem2);
+        AppInfo otherUser = new AppInfo(new ComponentName("a.b.c", "a.b.c/a.b.c.d"),
+                "personal app", UserHandle.of(0), new Intent());
+        AppInfo app = new AppInfo(new ComponentName("a.b.c", "a.b.c/a.b.c.d"),
+                "work app", UserHandle.of(10), new Intent());
+        FolderNameInfos nameInfos = new FolderNameInfos();
+        Executors.MODEL_EXECUTOR.submit(() -> FolderNameProvider.newInstance(mContext,
+                Arrays.asList(otherUser, app), new IntSparseArrayMap<>())
+                .getSuggestedFolderName(mContext, list, nameInfos)).get();
+        assertEquals("work app", nameInfos.getLabels()[0]);
+        assertEquals("Work", nameInfos.getLabels()[1]);
+    }
 }
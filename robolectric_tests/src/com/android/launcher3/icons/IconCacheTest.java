@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Color;
+import android.os.Looper;
+import android.os.Process;
+import android.os.UserHandle;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.icons.cache.CachingLogic;
+import com.android.launcher3.logging.PerfMetrics;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.LauncherModelHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.annotation.LooperMode.Mode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the batched high-res icon loading of {@link IconCache} and {@link IconRequestBatcher}
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(Mode.PAUSED)
+public class IconCacheTest {
+
+    private static final String NAMED_APP = "com.example.named";
+    private static final String UNNAMED_APP = "com.example.unnamed";
+    private static final String LABEL = "Named";
+
+    private Context mContext;
+    private IconCache mIconCache;
+
+    @Before
+    public void setup() throws Exception {
+        LauncherModelHelper modelHelper = new LauncherModelHelper();
+        modelHelper.installApp(NAMED_APP);
+        modelHelper.installApp(UNNAMED_APP);
+        mContext = RuntimeEnvironment.application;
+        mIconCache = LauncherAppState.getInstance(mContext).getIconCache();
+
+        // Only in the DB, so that the requests have to read them
+        CachingLogic<ComponentName> dbOnlyLogic = new CachingLogic<ComponentName>() {
+            @Override
+            public ComponentName getComponent(ComponentName cn) {
+                return cn;
+            }
+
+            @Override
+            public UserHandle getUser(ComponentName cn) {
+                return Process.myUserHandle();
+            }
+
+            @Override
+            public CharSequence getLabel(ComponentName cn) {
+                return NAMED_APP.equals(cn.getPackageName()) ? LABEL : "";
+            }
+
+            @NonNull
+            @Override
+            public BitmapInfo loadIcon(Context context, ComponentName cn) {
+                return BitmapInfo.of(Bitmap.createBitmap(1, 1, Config.ARGB_8888), Color.RED);
+            }
+
+            @Override
+            public boolean addToMemCache() {
+                return false;
+            }
+        };
+        long serial = UserCache.INSTANCE.get(mContext)
+                .getSerialNumberForUser(Process.myUserHandle());
+        for (String app : Arrays.asList(NAMED_APP, UNNAMED_APP)) {
+            mIconCache.addIconToDBAndMemCache(new ComponentName(app, app), dbOnlyLogic,
+                    new PackageInfo(), serial, true);
+        }
+    }
+
+    @Test
+    public void testBatchedLoadReadsLabels() throws Exception {
+        AppInfo named = newAppInfo(NAMED_APP);
+        AppInfo unnamed = newAppInfo(UNNAMED_APP);
+
+        MODEL_EXECUTOR.submit(() -> mIconCache.loadHighResIcons(Arrays.asList(named, unnamed)))
+                .get();
+
+        assertEquals(LABEL, named.title);
+        assertFalse(named.bitmap.isNullOrLowRes());
+        // The label missing from the DB is loaded from the activity
+        assertFalse(TextUtils.isEmpty(unnamed.title));
+        assertFalse(unnamed.bitmap.isNullOrLowRes());
+    }
+
+    @Test
+    public void testRequestsResolvedInOneBatch() throws Exception {
+        PerfMetrics.Counter batches = PerfMetrics.counter("iconcache/request_batches");
+        long batchesBefore = batches.get();
+        List<ItemInfoWithIcon> applied = new ArrayList<>();
+        AppInfo named = newAppInfo(NAMED_APP);
+        AppInfo unnamed = newAppInfo(UNNAMED_APP);
+        AppInfo canceled = newAppInfo(NAMED_APP);
+
+        mIconCache.updateIconInBackground(applied::add, named);
+        mIconCache.updateIconInBackground(applied::add, unnamed);
+        mIconCache.updateIconInBackground(applied::add, canceled).cancel();
+        shadowOf(Looper.getMainLooper()).idle();
+        MODEL_EXECUTOR.submit(() -> null).get();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertEquals(batchesBefore + 1, batches.get());
+        assertEquals(Arrays.asList(named, unnamed), applied);
+        assertEquals(LABEL, named.title);
+        assertTrue(canceled.bitmap.isNullOrLowRes());
+    }
+
+    private static AppInfo newAppInfo(String app) {
+        ComponentName cn = new ComponentName(app, app);
+        AppInfo info = new AppInfo(cn, "", Process.myUserHandle(),
+                AppInfo.makeLaunchIntent(cn));
+        info.bitmap = BitmapInfo.LOW_RES_INFO;
+        return info;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.android.launcher3.icons.cache.BaseIconCache.IconDB;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Robolectric unit tests for {@link IconSnapshot}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IconSnapshotTest {
+
+    private static final int ICON_SIZE = 4;
+    private static final int DB_VERSION = IconDB.getVersion(ICON_SIZE);
+    private static final String SYSTEM_STATE = "en-US 1";
+
+    private static final String MAIL = "com.example.mail/.Inbox";
+    private static final String MAPS = "com.example.maps/.Café";
+    private static final String BROKEN = "com.example.broken/.Main";
+    private static final String MISSING = "com.example.missing/.Main";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private List<IconSnapshot.SnapshotEntry> mEntries;
+
+    @Before
+    public void setup() {
+        mFile = new File(mFolder.getRoot(), "app_icons.db_snapshot");
+        mEntries = Arrays.asList(
+                new IconSnapshot.SnapshotEntry(MAIL, 0, Color.RED, "Mail",
+                        createIconBlob(ICON_SIZE)),
+                new IconSnapshot.SnapshotEntry(MAPS, 10, Color.BLUE, "Maps",
+                        createIconBlob(ICON_SIZE)),
+                new IconSnapshot.SnapshotEntry(BROKEN, 0, Color.GREEN, "Broken",
+                        Arrays.copyOf(createIconBlob(ICON_SIZE), 8)),
+                new IconSnapshot.SnapshotEntry(MISSING, 0, 0, null, null));
+    }
+
+    @Test
+    public void writtenEntriesLoaded() {
+        assertTrue(IconSnapshot.write(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE, mEntries));
+
+        IconSnapshot snapshot = IconSnapshot.load(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE);
+        assertNotNull(snapshot);
+        IconSnapshot.MappedEntry mail = snapshot.getEntry(MAIL, 0);
+        assertNotNull(mail);
+        assertEquals(Color.RED, mail.color);
+        assertEquals("Mail", mail.title);
+        IconSnapshot.MappedEntry maps = snapshot.getEntry(MAPS, 10);
+        assertNotNull(maps);
+        assertEquals(Color.BLUE, maps.color);
+        assertEquals("Maps", maps.title);
+
+        Bitmap icon = snapshot.getIcon(maps);
+        assertEquals(ICON_SIZE, icon.getWidth());
+        assertEquals(ICON_SIZE, icon.getHeight());
+        assertNull(snapshot.getEntry(MAPS, 0));
+    }
+
+    @Test
+    public void undecodableIconsKeptWithoutEntry() {
+        IconSnapshot.write(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE, mEntries);
+
+        IconSnapshot snapshot = IconSnapshot.load(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE);
+        assertNotNull(snapshot);
+        assertNull(snapshot.getEntry(BROKEN, 0));
+        assertNull(snapshot.getEntry(MISSING, 0));
+        assertTrue(snapshot.hasEntries(new HashSet<>(Arrays.asList(
+                IconSnapshot.getKey(MAIL, 0), IconSnapshot.getKey(MAPS, 10),
+                IconSnapshot.getKey(BROKEN, 0), IconSnapshot.getKey(MISSING, 0)))));
+        assertFalse(snapshot.hasEntries(new HashSet<>(Arrays.asList(
+                IconSnapshot.getKey(MAIL, 0), IconSnapshot.getKey(MAPS, 10)))));
+    }
+
+    @Test
+    public void iconsOfOtherSizeKeptWithoutEntry() {
+        List<IconSnapshot.SnapshotEntry> entries = Arrays.asList(
+                new IconSnapshot.SnapshotEntry(MAIL, 0, Color.RED, "Mail",
+                        createIconBlob(ICON_SIZE * 2)));
+        IconSnapshot.write(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE, entries);
+
+        IconSnapshot snapshot = IconSnapshot.load(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE);
+        assertNotNull(snapshot);
+        assertNull(snapshot.getEntry(MAIL, 0));
+    }
+
+    @Test
+    public void snapshotOfOtherParamsIgnored() {
+        IconSnapshot.write(mFile, ICON_SIZE, DB_VERSION, SYSTEM_STATE, mEntries);
+
+        assertNull(IconSnapshot.load(mFile, ICON_SIZE, DB_VERSION + 1, SYSTEM_STATE));
+        assertNull(IconSnapshot.load(mFile, ICON_SIZE * 2, DB_VERSION, SYSTEM_STATE));
+        assertNull(IconSnapshot.load(mFile, ICON_SIZE, DB_VERSION, "fr-FR 1"));
+        assertNull(IconSnapshot.load(new File(mFolder.getRoot(), "missing"),
+                ICON_SIZE, DB_VERSION, SYSTEM_STATE));
+    }
+
+    private static byte[] createIconBlob(int size) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.MAGENTA);
+        return BitmapInfo.fromBitmap(bitmap).toByteArray();
+    }
+}
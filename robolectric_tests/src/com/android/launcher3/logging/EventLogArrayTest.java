@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Robolectric unit tests for {@link EventLogArray}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EventLogArrayTest {
+
+    @Test
+    public void dumpDecodesEntriesNewestFirst() {
+        EventLogArray log = new EventLogArray("test", 4);
+        int motion = EventLogArray.intern("onMotionEvent");
+        log.addLog("evicted");
+        log.addLog(motion, 10, -20, 1);
+        log.addLog(EventLogArray.intern("setEndTarget"), "HOME");
+        log.addLog(EventLogArray.intern("finish"), true);
+        log.addLog(motion, 2);
+
+        String[] lines = dump(log).split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[1].contains("onMotionEvent: 2"));
+        assertTrue(lines[2].contains("finish: true"));
+        assertTrue(lines[3].contains("setEndTarget: HOME"));
+        assertTrue(lines[4].contains("onMotionEvent(10, -20): 1"));
+        assertFalse(dump(log).contains("evicted"));
+    }
+
+    @Test
+    public void mergesRepeatedEvents() {
+        EventLogArray log = new EventLogArray("test", 8);
+        for (int i = 0; i < 10; i++) {
+            log.addLog("move", i);
+        }
+        String[] lines = dump(log).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains("move: 9"));
+        assertTrue(lines[2].contains("move: 0 & 8 similar events"));
+
+        log.clear();
+        assertEquals(1, dump(log).split("\n").length);
+    }
+
+    private static String dump(EventLogArray log) {
+        StringWriter out = new StringWriter();
+        log.dump("", new PrintWriter(out));
+        return out.toString().trim();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static com.android.launcher3.logging.PerfMetrics.Histogram.BUCKET_COUNT;
+import static com.android.launcher3.logging.PerfMetrics.Histogram.bucketIndex;
+import static com.android.launcher3.logging.PerfMetrics.Histogram.bucketLowerBound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Robolectric unit tests for {@link PerfMetrics}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PerfMetricsTest {
+
+    @Test
+    public void bucketsAreContiguousAndBounded() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long lowerBound = bucketLowerBound(i);
+            assertEquals(i, bucketIndex(lowerBound));
+            if (i > 0) {
+                assertEquals(i - 1, bucketIndex(lowerBound - 1));
+            }
+            if (i >= 4) {
+                // Log-linear buckets keep the relative error under 25%
+                long width = bucketLowerBound(i + 1 == BUCKET_COUNT ? i : i + 1) - lowerBound;
+                assertTrue(width * 4 <= lowerBound);
+            }
+        }
+        assertEquals(BUCKET_COUNT - 1, bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesAndProto() {
+        PerfMetrics.Histogram histogram = PerfMetrics.histogram("test/latency");
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordMillis(i);
+        }
+        assertEquals(100, histogram.getCount());
+        long p50 = histogram.getPercentileUs(50);
+        assertTrue(p50 >= 50_000 && p50 < 50_000 * 5 / 4);
+        assertEquals(100_000, histogram.getPercentileUs(100));
+
+        PerfMetricsProto.MetricsSnapshot snapshot = PerfMetrics.toProto();
+        PerfMetricsProto.Histogram proto = snapshot.getHistogramsList().stream()
+                .filter(h -> h.getName().equals("test/latency")).findFirst().get();
+        assertEquals(100, proto.getCount());
+        assertEquals(proto.getBucketIndexCount(), proto.getBucketCountCount());
+        assertEquals(100, proto.getBucketCountList().stream().mapToLong(Long::longValue).sum());
+    }
+}
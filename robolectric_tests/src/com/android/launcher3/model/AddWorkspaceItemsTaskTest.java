@@ -26,8 +26,8 @@ import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.launcher3.util.LauncherModelHelper;
 
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
+import org.junit.Before;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricTestRunner;
@@ -170,7 +170,7 @@ public class AddWorkspaceItemsTaskTest {
 
         for (int x = 0; x < mIdp.numColumns; x++) {
             for (int y = 0; y < mIdp.numRows; y++) {
-                if (!occupancy.cells[x][y]) {
+                if (!occupancy.isOccupied(x, y)) {
                     continue;
                 }
 
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
+import static com.android.launcher3.LauncherSettings.Favorites.TMP_TABLE;
+import static com.android.launcher3.provider.LauncherDbUtils.dropTable;
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+
+import static org.junit.Assert.assertFalse;
+
+import android.content.Context;
+import android.content.pm.LauncherActivityInfo;
+import android.content.pm.LauncherApps;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Point;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.allapps.search.DefaultAppSearchAlgorithm;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.icons.LauncherActivityCachingLogic;
+import com.android.launcher3.icons.cache.IconCacheUpdateHandler;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.BenchmarkConfig;
+import com.android.launcher3.util.BenchmarkReport;
+import com.android.launcher3.util.LauncherModelHelper;
+import com.android.launcher3.util.WorkspaceSynthesizer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.annotation.LooperMode.Mode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Benchmarks of the model layer on a synthesized workspace, each writing a JSON report. They are
+ * excluded from the regular unit tests, run them with
+ * {@code ./gradlew testAospWithoutQuickstepOmegaDebugUnitTest -Pbenchmark}
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(Mode.PAUSED)
+public class ModelBenchmarkTest {
+
+    private static final String[] QUERIES = {"c", "ma", "cal", "photo", "music no", "trans",
+            "wallet home", "zzz"};
+
+    private final BenchmarkConfig mConfig = BenchmarkConfig.fromSystemProperties();
+
+    private Context mContext;
+    private LauncherModelHelper mModelHelper;
+    private WorkspaceSynthesizer mWorkspace;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mWorkspace = new WorkspaceSynthesizer(mConfig);
+        mWorkspace.createProfiles();
+        mWorkspace.installApps();
+        mModelHelper = new LauncherModelHelper();
+        mWorkspace.writeWorkspace(mModelHelper);
+        assertFalse(mModelHelper.getBgDataModel().workspaceItems.isEmpty());
+    }
+
+    @Test
+    public void loaderTask() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("loader_task", mConfig);
+        report.startStages("loader/");
+        report.measure("load", () -> {
+            mModelHelper.getModel().forceReload();
+            mModelHelper.loadModelSync();
+        });
+        report.endStages();
+        report.write();
+    }
+
+    @Test
+    public void iconCacheUpdate() throws Exception {
+        LauncherApps launcherApps = mContext.getSystemService(LauncherApps.class);
+        List<LauncherActivityInfo> activities = new ArrayList<>();
+        for (UserHandle user : mWorkspace.getProfiles()) {
+            activities.addAll(launcherApps.getActivityList(null, user));
+        }
+        IconCache iconCache = LauncherAppState.getInstance(mContext).getIconCache();
+        LauncherActivityCachingLogic cachingLogic =
+                LauncherActivityCachingLogic.newInstance(mContext);
+        BenchmarkReport report = new BenchmarkReport("icon_cache_update", mConfig);
+
+        report.measure("cold", () -> MODEL_EXECUTOR.submit(() -> {
+            iconCache.clear();
+            updateIcons(iconCache, activities, cachingLogic);
+        }).get());
+        report.measure("warm", () -> MODEL_EXECUTOR.submit(
+                () -> updateIcons(iconCache, activities, cachingLogic)).get());
+        report.write();
+    }
+
+    private static void updateIcons(IconCache iconCache, List<LauncherActivityInfo> activities,
+            LauncherActivityCachingLogic cachingLogic) {
+        IconCacheUpdateHandler updateHandler = iconCache.getUpdateHandler();
+        updateHandler.updateIcons(activities, cachingLogic, (apps, user) -> { });
+        updateHandler.finish();
+    }
+
+    @Test
+    public void gridMigration() throws Exception {
+        SQLiteDatabase db = mModelHelper.provider.getDb();
+        db.execSQL("CREATE TABLE benchmark_src AS SELECT * FROM " + TABLE_NAME);
+        long userSerial = UserCache.INSTANCE.get(mContext)
+                .getSerialNumberForUser(Process.myUserHandle());
+        HashSet<String> validPackages = new HashSet<>(mWorkspace.getPackages());
+        BenchmarkReport report = new BenchmarkReport("grid_migration", mConfig);
+
+        report.measure("migrate_4x4_to_5x5", () -> {
+            // Like a grid change: the current workspace is the source and the table is rebuilt
+            dropTable(db, TMP_TABLE);
+            LauncherSettings.Favorites.addTableToDb(db, userSerial, false, TMP_TABLE);
+            db.execSQL("INSERT INTO " + TMP_TABLE + " SELECT * FROM benchmark_src");
+            db.delete(TABLE_NAME, null, null);
+        }, () -> {
+            db.beginTransaction();
+            try {
+                GridSizeMigrationTaskV2.DbReader srcReader = new GridSizeMigrationTaskV2.DbReader(
+                        db, TMP_TABLE, mContext, validPackages, 4);
+                GridSizeMigrationTaskV2.DbReader destReader = new GridSizeMigrationTaskV2.DbReader(
+                        db, TABLE_NAME, mContext, validPackages, 5);
+                new GridSizeMigrationTaskV2(mContext, db, srcReader, destReader, 5,
+                        new Point(5, 5)).migrate();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+        report.write();
+    }
+
+    @Test
+    public void modelWriterBurst() throws Exception {
+        List<AppInfo> apps = getAllApps();
+        ModelWriter writer = mModelHelper.getModel().getWriter(false, false);
+        BenchmarkReport report = new BenchmarkReport("model_writer", mConfig);
+
+        ArrayList<ItemInfo> items = new ArrayList<>();
+        // Pages far after the synthesized workspace, so that items never overlap
+        int screen = 1000;
+        for (int i = 0; i < mConfig.iterations + mConfig.warmupIterations; i++) {
+            long start = System.nanoTime();
+            items.clear();
+            for (int j = 0; j < mConfig.writeBurst; j++) {
+                WorkspaceItemInfo item = new WorkspaceItemInfo(apps.get(j % apps.size()));
+                writer.addItemToDatabase(item, CONTAINER_DESKTOP, screen + j / 16,
+                        j % 4, (j / 4) % 4);
+                items.add(item);
+            }
+            MODEL_EXECUTOR.submit(() -> { }).get();
+            long addUs = (System.nanoTime() - start) / 1000;
+
+            start = System.nanoTime();
+            writer.deleteItemsFromDatabase(items);
+            MODEL_EXECUTOR.submit(() -> { }).get();
+            long deleteUs = (System.nanoTime() - start) / 1000;
+
+            if (i >= mConfig.warmupIterations) {
+                report.addSample("add_burst", addUs);
+                report.addSample("delete_burst", deleteUs);
+            }
+        }
+        report.write();
+    }
+
+    @Test
+    public void appSearch() throws Exception {
+        List<AppInfo> apps = getAllApps();
+        DefaultAppSearchAlgorithm algorithm = new DefaultAppSearchAlgorithm(mContext);
+        BenchmarkReport report = new BenchmarkReport("app_search", mConfig);
+        for (String query : QUERIES) {
+            report.measure("query/" + query, () -> algorithm.getTitleMatchResult(apps, query));
+        }
+        report.measure("all_queries", () -> {
+            for (String query : QUERIES) {
+                algorithm.getTitleMatchResult(apps, query);
+            }
+        });
+        report.write();
+    }
+
+    private List<AppInfo> getAllApps() throws Exception {
+        return MODEL_EXECUTOR.submit(
+                () -> new ArrayList<>(mModelHelper.getAllAppsList().data)).get();
+    }
+}
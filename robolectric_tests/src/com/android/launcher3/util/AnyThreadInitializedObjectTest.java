@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Robolectric unit tests for {@link AnyThreadInitializedObject}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AnyThreadInitializedObjectTest {
+
+    @Test
+    public void createsDependenciesFirstAndOnlyOnce() throws Exception {
+        Context context = RuntimeEnvironment.application;
+        List<String> created = new ArrayList<>();
+        AnyThreadInitializedObject<String> database = new AnyThreadInitializedObject<>(
+                "TestDatabase", c -> {
+                    synchronized (created) {
+                        created.add("database");
+                    }
+                    return "database";
+                });
+        AtomicInteger repositoryCount = new AtomicInteger();
+        AnyThreadInitializedObject<String> repository = new AnyThreadInitializedObject<>(
+                "TestRepository", c -> {
+                    synchronized (created) {
+                        created.add("repository");
+                    }
+                    repositoryCount.incrementAndGet();
+                    return database.getNoCreate() + "+repository";
+                }, database);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(THREAD_POOL_EXECUTOR.submit(() -> repository.get(context)));
+        }
+        for (Future<String> result : results) {
+            assertEquals("database+repository", result.get());
+        }
+
+        assertEquals(1, repositoryCount.get());
+        assertEquals(Arrays.asList("database", "repository"), created);
+        assertSame(repository.get(context), repository.getNoCreate());
+
+        StringWriter out = new StringWriter();
+        StartupInitializer.dump("", new PrintWriter(out));
+        assertTrue(out.toString().contains("TestRepository: "));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+
+/**
+ * Size of the synthesized workspace and number of iterations of a benchmark run. Every value can
+ * be overridden with a {@code benchmark.*} gradle property, for example:
+ * {@code ./gradlew testAospWithoutQuickstepOmegaDebugUnitTest -Pbenchmark -Pbenchmark.apps=500}
+ */
+public class BenchmarkConfig {
+
+    /** Apps installed, in every profile */
+    public final int apps;
+    /** Profiles, including the personal profile */
+    public final int profiles;
+    /** Apps placed directly on the workspace, spread over the profiles */
+    public final int workspaceApps;
+    public final int folders;
+    public final int folderSize;
+    public final int widgets;
+    /** Items added and removed at once by the {@link com.android.launcher3.model.ModelWriter} */
+    public final int writeBurst;
+    public final int warmupIterations;
+    public final int iterations;
+    public final File outputDir;
+
+    private BenchmarkConfig() {
+        apps = getInt("apps", 200);
+        profiles = getInt("profiles", 2);
+        workspaceApps = getInt("workspaceApps", 120);
+        folders = getInt("folders", 20);
+        folderSize = getInt("folderSize", 8);
+        widgets = getInt("widgets", 8);
+        writeBurst = getInt("writeBurst", 50);
+        warmupIterations = getInt("warmupIterations", 1);
+        iterations = getInt("iterations", 5);
+        outputDir = new File(System.getProperty("benchmark.outputDir", "build/benchmark"));
+    }
+
+    public static BenchmarkConfig fromSystemProperties() {
+        return new BenchmarkConfig();
+    }
+
+    private static int getInt(String name, int defaultValue) {
+        return Integer.getInteger("benchmark." + name, defaultValue);
+    }
+
+    public JSONObject toJson() throws JSONException {
+        return new JSONObject()
+                .put("apps", apps)
+                .put("profiles", profiles)
+                .put("workspaceApps", workspaceApps)
+                .put("folders", folders)
+                .put("folderSize", folderSize)
+                .put("widgets", widgets)
+                .put("writeBurst", writeBurst)
+                .put("warmupIterations", warmupIterations)
+                .put("iterations", iterations);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.util.Log;
+
+import com.android.launcher3.logging.PerfMetrics;
+import com.android.launcher3.logging.PerfMetricsProto;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the samples of a benchmark and writes them as JSON, so that results can be compared
+ * across runs. Besides the measured samples, the report includes the delta of the
+ * {@link PerfMetrics} histograms with a given prefix, like the stages of the loader.
+ *
+ * Output: {@code <outputDir>/<name>.json} with the config and, per metric, the samples in
+ * microseconds and their min, median, p90, max and mean.
+ */
+public class BenchmarkReport {
+
+    private static final String TAG = "BenchmarkReport";
+
+    /**
+     * Measured block which can throw
+     */
+    public interface Block {
+        void run() throws Exception;
+    }
+
+    private final String mName;
+    private final BenchmarkConfig mConfig;
+    private final LinkedHashMap<String, List<Long>> mSamples = new LinkedHashMap<>();
+    private final JSONObject mStages = new JSONObject();
+
+    private String mStagePrefix;
+    private Map<String, PerfMetricsProto.Histogram> mStagesBefore;
+
+    public BenchmarkReport(String name, BenchmarkConfig config) {
+        mName = name;
+        mConfig = config;
+    }
+
+    /**
+     * Runs {@param block} for the warmup iterations and then for the measured iterations,
+     * recording the duration of each measured run under {@param metric}.
+     */
+    public void measure(String metric, Block block) throws Exception {
+        measure(metric, () -> { }, block);
+    }
+
+    /**
+     * Like {@link #measure(String, Block)}, running {@param setup} before every run of
+     * {@param block}, outside of the measured duration.
+     */
+    public void measure(String metric, Block setup, Block block) throws Exception {
+        for (int i = 0; i < mConfig.warmupIterations; i++) {
+            setup.run();
+            block.run();
+        }
+        for (int i = 0; i < mConfig.iterations; i++) {
+            setup.run();
+            long start = System.nanoTime();
+            block.run();
+            addSample(metric, (System.nanoTime() - start) / 1000);
+        }
+    }
+
+    public void addSample(String metric, long us) {
+        mSamples.computeIfAbsent(metric, m -> new ArrayList<>()).add(us);
+    }
+
+    /**
+     * Starts recording the {@link PerfMetrics} histograms whose name starts with {@param prefix}
+     */
+    public void startStages(String prefix) {
+        mStagePrefix = prefix;
+        mStagesBefore = getHistograms(prefix);
+    }
+
+    /**
+     * Adds the count and mean of every histogram recorded since {@link #startStages(String)}
+     */
+    public void endStages() throws JSONException {
+        for (PerfMetricsProto.Histogram after : getHistograms(mStagePrefix).values()) {
+            PerfMetricsProto.Histogram before = mStagesBefore.get(after.getName());
+            long count = after.getCount() - (before == null ? 0 : before.getCount());
+            long sumUs = after.getSumUs() - (before == null ? 0 : before.getSumUs());
+            if (count > 0) {
+                mStages.put(after.getName(), new JSONObject()
+                        .put("count", count)
+                        .put("meanUs", sumUs / count));
+            }
+        }
+    }
+
+    private static Map<String, PerfMetricsProto.Histogram> getHistograms(String prefix) {
+        Map<String, PerfMetricsProto.Histogram> histograms = new HashMap<>();
+        for (PerfMetricsProto.Histogram h : PerfMetrics.toProto().getHistogramsList()) {
+            if (h.getName().startsWith(prefix)) {
+                histograms.put(h.getName(), h);
+            }
+        }
+        return histograms;
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject metrics = new JSONObject();
+        for (Map.Entry<String, List<Long>> entry : mSamples.entrySet()) {
+            List<Long> sorted = new ArrayList<>(entry.getValue());
+            Collections.sort(sorted);
+            long sum = 0;
+            for (long sample : sorted) {
+                sum += sample;
+            }
+            metrics.put(entry.getKey(), new JSONObject()
+                    .put("unit", "us")
+                    .put("count", sorted.size())
+                    .put("min", sorted.get(0))
+                    .put("median", sorted.get(sorted.size() / 2))
+                    .put("p90", sorted.get((int) Math.ceil(sorted.size() * 0.9) - 1))
+                    .put("max", sorted.get(sorted.size() - 1))
+                    .put("mean", sum / sorted.size())
+                    .put("samples", new JSONArray(entry.getValue())));
+        }
+        return new JSONObject()
+                .put("benchmark", mName)
+                .put("timestampMillis", System.currentTimeMillis())
+                .put("config", mConfig.toJson())
+                .put("metrics", metrics)
+                .put("stages", mStages);
+    }
+
+    /**
+     * Writes the report to the output directory and returns the written file
+     */
+    public File write() throws IOException, JSONException {
+        File file = new File(mConfig.outputDir, mName + ".json");
+        file.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(toJson().toString(2));
+        }
+        Log.i(TAG, "Benchmark " + mName + " written to " + file.getAbsolutePath());
+        return file;
+    }
+}
@@ -4,10 +4,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
-import org.junit.jupiter.api.Test;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Random;
+
 /**
  * Unit tests for {@link GridOccupancy}
  */
@@ -52,13 +54,121 @@ public class GridOccupancyTest {
         assertFalse(grid.isRegionVacant(0, 0, 2, 1));
     }
 
+    @Test
+    public void testIsRegionVacantWithBlock() {
+        GridOccupancy grid = initGrid(4,
+                1, 1, 1, 0, 0,
+                0, 0, 1, 1, 0,
+                0, 0, 0, 0, 0,
+                1, 1, 0, 0, 0
+        );
+        // An L shaped block which interlocks with the occupied cells
+        GridOccupancy block = initGrid(2,
+                1, 0,
+                1, 1
+        );
+
+        assertFalse(grid.isRegionVacant(1, 1, 2, 2));
+        assertTrue(grid.isRegionVacant(1, 1, 2, 2, block));
+        assertTrue(grid.isRegionVacant(3, 2, 2, 2, block));
+        assertTrue(grid.isRegionVacant(0, 1, 2, 2, block));
+        assertFalse(grid.isRegionVacant(2, 0, 2, 2, block));
+        assertFalse(grid.isRegionVacant(4, 0, 2, 2, block));
+    }
+
+    @Test
+    public void testWideGrid() {
+        GridOccupancy grid = new GridOccupancy(64, 2);
+        grid.markCells(60, 0, 10, 1, true);
+        assertTrue(grid.isOccupied(63, 0));
+        assertFalse(grid.isOccupied(59, 0));
+        assertFalse(grid.isRegionVacant(58, 0, 4, 1));
+        assertFalse(grid.isRegionVacant(61, 1, 4, 1));
+        assertTrue(grid.isRegionVacant(0, 0, 60, 2));
+
+        int[] vacant = new int[2];
+        assertTrue(grid.findVacantCell(vacant, 64, 1));
+        assertEquals(vacant[0], 0);
+        assertEquals(vacant[1], 1);
+    }
+
+    @Test
+    public void testMatchesCellByCellOccupancy() {
+        // Replay a random sequence of drag style updates against a plain cell array
+        Random random = new Random(42);
+        int countX = 8;
+        int countY = 10;
+        GridOccupancy grid = new GridOccupancy(countX, countY);
+        boolean[][] cells = new boolean[countX][countY];
+        int[] vacant = new int[2];
+
+        for (int step = 0; step < 2000; step++) {
+            int x = random.nextInt(countX);
+            int y = random.nextInt(countY);
+            int spanX = 1 + random.nextInt(4);
+            int spanY = 1 + random.nextInt(4);
+            boolean value = random.nextBoolean();
+
+            grid.markCells(x, y, spanX, spanY, value);
+            for (int i = x; i < x + spanX && i < countX; i++) {
+                for (int j = y; j < y + spanY && j < countY; j++) {
+                    cells[i][j] = value;
+                }
+            }
+
+            for (int i = 0; i < countX; i++) {
+                for (int j = 0; j < countY; j++) {
+                    assertEquals(cells[i][j], grid.isOccupied(i, j));
+                }
+            }
+            assertEquals(isRegionVacant(cells, x, y, spanX, spanY),
+                    grid.isRegionVacant(x, y, spanX, spanY));
+
+            boolean found = findVacantCell(cells, vacant, spanX, spanY);
+            int[] gridVacant = new int[2];
+            assertEquals(found, grid.findVacantCell(gridVacant, spanX, spanY));
+            if (found) {
+                assertEquals(vacant[0], gridVacant[0]);
+                assertEquals(vacant[1], gridVacant[1]);
+            }
+        }
+    }
+
+    private static boolean isRegionVacant(boolean[][] cells, int x, int y, int spanX, int spanY) {
+        if (x + spanX > cells.length || y + spanY > cells[0].length) {
+            return false;
+        }
+        for (int i = x; i < x + spanX; i++) {
+            for (int j = y; j < y + spanY; j++) {
+                if (cells[i][j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean findVacantCell(boolean[][] cells, int[] vacantOut,
+            int spanX, int spanY) {
+        for (int y = 0; y + spanY <= cells[0].length; y++) {
+            for (int x = 0; x + spanX <= cells.length; x++) {
+                if (isRegionVacant(cells, x, y, spanX, spanY)) {
+                    vacantOut[0] = x;
+                    vacantOut[1] = y;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private GridOccupancy initGrid(int rows, int... cells) {
         int cols = cells.length / rows;
         int i = 0;
         GridOccupancy grid = new GridOccupancy(cols, rows);
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                grid.cells[x][y] = cells[i] != 0;
+                grid.markCells(x, y, 1, 1, cells[i] != 0);
                 i++;
             }
         }
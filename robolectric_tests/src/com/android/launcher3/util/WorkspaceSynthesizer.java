@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.android.launcher3.util.LauncherModelHelper.APP_ICON;
+import static com.android.launcher3.util.LauncherModelHelper.DESKTOP;
+
+import static org.robolectric.Shadows.shadowOf;
+import static org.robolectric.util.ReflectionHelpers.setField;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInstaller;
+import android.content.pm.PackageInstaller.SessionParams;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import com.android.launcher3.icons.BitmapInfo;
+import com.android.launcher3.pm.UserCache;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowPackageManager;
+import org.robolectric.shadows.ShadowUserManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthesizes a large workspace for the benchmarks: apps installed in several profiles, the
+ * personal profile items written through the default layout like on a first boot, and the items
+ * of the other profiles added to the DB directly. The content only depends on the
+ * {@link BenchmarkConfig}, so that runs can be compared.
+ */
+public class WorkspaceSynthesizer {
+
+    public static final String APP_PACKAGE_PREFIX = "com.android.launcher3.benchmark.app";
+    private static final String WIDGET_PACKAGE = "com.android.launcher3.benchmark.widget";
+
+    private static final int FIRST_PROFILE_ID = 10;
+    private static final int GRID_SIZE = 4;
+    private static final int HOTSEAT_SIZE = 4;
+    private static final int WIDGET_SPAN = 2;
+
+    // Label parts, combined so that search queries match a realistic number of apps
+    private static final String[] WORDS = {"Camera", "Photos", "Maps", "Mail", "Music", "Notes",
+            "Calendar", "Clock", "Weather", "News", "Chat", "Bank", "Shop", "Games", "Fit",
+            "Drive", "Files", "Radio", "Books", "Translate", "Wallet", "Travel", "Video", "Home"};
+
+    private final BenchmarkConfig mConfig;
+    private final List<String> mPackages = new ArrayList<>();
+    private final List<UserHandle> mProfiles = new ArrayList<>();
+
+    // Last used 1x1 cell on the workspace
+    private int mScreen;
+    private int mCellX;
+    private int mCellY;
+
+    public WorkspaceSynthesizer(BenchmarkConfig config) {
+        mConfig = config;
+        for (int i = 0; i < config.apps; i++) {
+            mPackages.add(APP_PACKAGE_PREFIX + i);
+        }
+    }
+
+    /**
+     * Creates the work profiles, this must be done before the model is created
+     */
+    public void createProfiles() {
+        Context context = RuntimeEnvironment.application;
+        ShadowUserManager sum = shadowOf(context.getSystemService(UserManager.class));
+        mProfiles.add(Process.myUserHandle());
+        for (int i = 1; i < mConfig.profiles; i++) {
+            int userId = FIRST_PROFILE_ID + i - 1;
+            sum.addProfile(Process.myUserHandle().getIdentifier(), userId, "Work " + i,
+                    ShadowUserManager.FLAG_MANAGED_PROFILE);
+            mProfiles.add(UserHandle.of(userId));
+        }
+    }
+
+    /**
+     * Installs the apps, with labels made of a few common words
+     */
+    public void installApps() {
+        ShadowPackageManager spm = shadowOf(RuntimeEnvironment.application.getPackageManager());
+        Random random = new Random(mConfig.apps);
+        for (String pkg : mPackages) {
+            ComponentName cn = new ComponentName(pkg, pkg + ".Main");
+            ActivityInfo info = spm.addActivityIfNotPresent(cn);
+            info.nonLocalizedLabel = WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)];
+
+            IntentFilter filter = new IntentFilter(Intent.ACTION_MAIN);
+            filter.addCategory(Intent.CATEGORY_LAUNCHER);
+            filter.addCategory(Intent.CATEGORY_DEFAULT);
+            spm.addIntentFilterForActivity(cn, filter);
+        }
+    }
+
+    /**
+     * Writes the workspace and loads it once, so that the DB exists for the benchmarks
+     */
+    public void writeWorkspace(LauncherModelHelper helper) throws Exception {
+        LauncherLayoutBuilder builder = new LauncherLayoutBuilder();
+        int nextApp = 0;
+        for (int i = 0; i < HOTSEAT_SIZE; i++) {
+            String pkg = getPackage(nextApp++);
+            builder.atHotseat(i).putApp(pkg, pkg + ".Main");
+        }
+
+        // Widgets fill the first pages, then folders and apps follow in 1x1 cells
+        if (mConfig.widgets > 0) {
+            addWidgetInstallSession();
+        }
+        int widgetsPerScreen = (GRID_SIZE / WIDGET_SPAN) * (GRID_SIZE / WIDGET_SPAN);
+        for (int i = 0; i < mConfig.widgets; i++) {
+            int quadrant = i % widgetsPerScreen;
+            builder.atWorkspace((quadrant % 2) * WIDGET_SPAN, (quadrant / 2) * WIDGET_SPAN,
+                    i / widgetsPerScreen)
+                    .putWidget(WIDGET_PACKAGE, "Widget" + i, WIDGET_SPAN, WIDGET_SPAN);
+        }
+        mScreen = (mConfig.widgets + widgetsPerScreen - 1) / widgetsPerScreen;
+        mCellX = -1;
+
+        for (int i = 0; i < mConfig.folders; i++) {
+            LauncherLayoutBuilder.FolderBuilder folder =
+                    nextLocation(builder).putFolder("Folder " + i);
+            for (int j = 0; j < mConfig.folderSize; j++) {
+                String pkg = getPackage(nextApp++);
+                folder.addApp(pkg, pkg + ".Main");
+            }
+            folder.build();
+        }
+
+        int profileApps = mConfig.workspaceApps / mProfiles.size();
+        for (int i = 0; i < mConfig.workspaceApps - profileApps * (mProfiles.size() - 1); i++) {
+            String pkg = getPackage(nextApp++);
+            nextLocation(builder).putApp(pkg, pkg + ".Main");
+        }
+        helper.setupDefaultLayoutProvider(builder).loadModelSync();
+
+        // The default layout only applies to the personal profile
+        UserCache userCache = UserCache.INSTANCE.get(RuntimeEnvironment.application);
+        for (int p = 1; p < mProfiles.size(); p++) {
+            long serial = userCache.getSerialNumberForUser(mProfiles.get(p));
+            for (int i = 0; i < profileApps; i++) {
+                moveToNextCell();
+                helper.addItem(APP_ICON, mScreen, DESKTOP, mCellX, mCellY, serial,
+                        getPackage(nextApp++));
+            }
+        }
+        helper.getModel().forceReload();
+        helper.loadModelSync();
+    }
+
+    public List<String> getPackages() {
+        return mPackages;
+    }
+
+    public List<UserHandle> getProfiles() {
+        return mProfiles;
+    }
+
+    private String getPackage(int index) {
+        return mPackages.get(index % mPackages.size());
+    }
+
+    private LauncherLayoutBuilder.Location nextLocation(LauncherLayoutBuilder builder) {
+        moveToNextCell();
+        return builder.atWorkspace(mCellX, mCellY, mScreen);
+    }
+
+    private void moveToNextCell() {
+        mCellX++;
+        if (mCellX == GRID_SIZE) {
+            mCellX = 0;
+            mCellY++;
+        }
+        if (mCellY == GRID_SIZE) {
+            mCellY = 0;
+            mScreen++;
+        }
+    }
+
+    private void addWidgetInstallSession() throws Exception {
+        // A pending install keeps the widgets in the DB without a real provider
+        SessionParams params = new SessionParams(SessionParams.MODE_FULL_INSTALL);
+        params.setAppPackageName(WIDGET_PACKAGE);
+        PackageInstaller installer =
+                RuntimeEnvironment.application.getPackageManager().getPackageInstaller();
+        PackageInstaller.SessionInfo sessionInfo =
+                installer.getSessionInfo(installer.createSession(params));
+        setField(sessionInfo, "installerPackageName", "com.test");
+        setField(sessionInfo, "appIcon", BitmapInfo.LOW_RES_ICON);
+    }
+}
@@ -0,0 +1,201 @@
+package com.saggitt.omega.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.Contacts;
+import android.provider.ContactsContract.DeletedContacts;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests for {@link ContactsSync}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ContactsSyncTest {
+
+    private static final long NOW = 10 * DeletedContacts.DAYS_KEPT_MILLISECONDS;
+
+    private FakeContactsProvider mProvider;
+    private ContactsSync mSync;
+
+    @Before
+    public void setup() {
+        mProvider = Robolectric.setupContentProvider(FakeContactsProvider.class,
+                ContactsContract.AUTHORITY);
+        mProvider.addContact("1", "Ann", NOW - 500, "555 0100");
+        mProvider.addContact("2", "Bob", NOW - 500, "555 0200", "555 0201");
+        mProvider.addContact("3", "Carl", NOW - 500);
+        mSync = new ContactsSync(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void testFirstSyncReadsEverything() {
+        ContactsSync.Changes changes = mSync.readChanges(0, NOW);
+
+        assertTrue(changes.getFull());
+        assertEquals(Arrays.asList("1", "2"), ids(changes.getUpdated()));
+        assertEquals("555 0200", changes.getUpdated().get(1).getContactPhone());
+        assertTrue(changes.getDeletedIds().isEmpty());
+        assertEquals(NOW, changes.getSyncTime());
+    }
+
+    @Test
+    public void testOnlyChangesAreRead() {
+        mProvider.addContact("2", "Bobby", NOW - 100, "555 0200");
+        mProvider.addContact("3", "Carl", NOW - 100, "555 0300");
+        mProvider.addContact("4", "Dan", NOW - 100);
+        mProvider.deleteContact("1", NOW - 100);
+
+        ContactsSync.Changes changes = mSync.readChanges(NOW - 200, NOW);
+
+        assertFalse(changes.getFull());
+        assertEquals(Arrays.asList("2", "3"), ids(changes.getUpdated()));
+        assertEquals("Bobby", changes.getUpdated().get(0).getContactName());
+        assertEquals(new HashSet<>(Arrays.asList("1", "4")), changes.getDeletedIds());
+    }
+
+    @Test
+    public void testLostNumberIsDeleted() {
+        mProvider.addContact("1", "Ann", NOW - 100);
+
+        ContactsSync.Changes changes = mSync.readChanges(NOW - 200, NOW);
+
+        assertTrue(changes.getUpdated().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("1")), changes.getDeletedIds());
+    }
+
+    @Test
+    public void testOldSyncReadsEverything() {
+        ContactsSync.Changes changes =
+                mSync.readChanges(NOW - DeletedContacts.DAYS_KEPT_MILLISECONDS - 1, NOW);
+
+        assertTrue(changes.getFull());
+        assertEquals(2, changes.getUpdated().size());
+    }
+
+    private static List<String> ids(List<PeopleInfo> people) {
+        List<String> ids = new ArrayList<>();
+        for (PeopleInfo person : people) {
+            ids.add(person.getContactId());
+        }
+        return ids;
+    }
+
+    /**
+     * Serves the contacts, phone numbers and deleted contacts, filtered by the timestamp given as
+     * the only selection argument
+     */
+    public static class FakeContactsProvider extends ContentProvider {
+
+        private final List<Object[]> mContacts = new ArrayList<>();
+        private final List<Object[]> mPhones = new ArrayList<>();
+        private final List<Object[]> mDeleted = new ArrayList<>();
+
+        void addContact(String id, String name, long updated, String... numbers) {
+            removeRows(id);
+            mContacts.add(new Object[] {id, name, updated});
+            for (int i = 0; i < numbers.length; i++) {
+                // The first number is the primary one
+                mPhones.add(new Object[] {id, name, numbers[i], updated, i == 0 ? 1 : 0});
+            }
+        }
+
+        void deleteContact(String id, long deleted) {
+            removeRows(id);
+            mDeleted.add(new Object[] {id, deleted});
+        }
+
+        private void removeRows(String id) {
+            mContacts.removeIf(row -> row[0].equals(id));
+            mPhones.removeIf(row -> row[0].equals(id));
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection,
+                String[] selectionArgs, String sortOrder) {
+            List<Object[]> rows;
+            List<String> columns;
+            String timestamp;
+            if (uri.equals(Contacts.CONTENT_URI)) {
+                rows = mContacts;
+                columns = Arrays.asList(Contacts._ID, Contacts.DISPLAY_NAME,
+                        Contacts.CONTACT_LAST_UPDATED_TIMESTAMP);
+                timestamp = Contacts.CONTACT_LAST_UPDATED_TIMESTAMP;
+            } else if (uri.equals(Phone.CONTENT_URI)) {
+                rows = new ArrayList<>(mPhones);
+                // Primary numbers first
+                rows.sort((a, b) -> (int) b[4] - (int) a[4]);
+                columns = Arrays.asList(Phone.CONTACT_ID, Phone.DISPLAY_NAME, Phone.NUMBER,
+                        Phone.CONTACT_LAST_UPDATED_TIMESTAMP, Phone.IS_SUPER_PRIMARY);
+                timestamp = Phone.CONTACT_LAST_UPDATED_TIMESTAMP;
+            } else if (uri.equals(DeletedContacts.CONTENT_URI)) {
+                rows = mDeleted;
+                columns = Arrays.asList(DeletedContacts.CONTACT_ID,
+                        DeletedContacts.CONTACT_DELETED_TIMESTAMP);
+                timestamp = DeletedContacts.CONTACT_DELETED_TIMESTAMP;
+            } else {
+                return null;
+            }
+
+            long since = selectionArgs == null ? Long.MIN_VALUE : Long.parseLong(selectionArgs[0]);
+            int timestampColumn = columns.indexOf(timestamp);
+            MatrixCursor cursor = new MatrixCursor(projection);
+            for (Object[] row : rows) {
+                if ((long) row[timestampColumn] < since) {
+                    continue;
+                }
+                Object[] values = new Object[projection.length];
+                for (int i = 0; i < projection.length; i++) {
+                    values[i] = row[columns.indexOf(projection[i])];
+                }
+                cursor.addRow(values);
+            }
+            return cursor;
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection,
+                String[] selectionArgs) {
+            return 0;
+        }
+    }
+}
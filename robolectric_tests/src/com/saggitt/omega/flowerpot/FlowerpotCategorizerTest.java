@@ -0,0 +1,148 @@
+package com.saggitt.omega.flowerpot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Process;
+
+import com.android.launcher3.util.ComponentKey;
+import com.saggitt.omega.flowerpot.rules.Rule;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowPackageManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Tests for {@link FlowerpotCategorizer}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FlowerpotCategorizerTest {
+
+    private static final int APP_COUNT = 500;
+    private static final String TOOL_ACTION = "com.test.action.TOOL";
+
+    private Context mContext;
+    private Flowerpot mSocial;
+    private Flowerpot mTools;
+    private FlowerpotCategorizer mCategorizer;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        for (int i = 0; i < APP_COUNT; i++) {
+            installApp(getPackage(i), i % 3 == 0);
+        }
+
+        mSocial = new Flowerpot(mContext, "SOCIAL", pot -> {
+            for (int i = 0; i < APP_COUNT; i += 2) {
+                pot.getRules().add(new Rule.Package(getPackage(i)));
+            }
+            return Unit.INSTANCE;
+        });
+        mTools = new Flowerpot(mContext, "TOOLS", pot -> {
+            pot.getRules().add(new Rule.IntentAction(TOOL_ACTION));
+            return Unit.INSTANCE;
+        });
+        List<Flowerpot> pots = Arrays.asList(mSocial, mTools);
+        mCategorizer = new FlowerpotCategorizer(mContext, () -> pots);
+    }
+
+    @Test
+    public void testClassifiesAllPots() {
+        mCategorizer.ensureClassified();
+
+        assertEquals((APP_COUNT + 1) / 2, mSocial.getApps().getMatches().size());
+        assertEquals((APP_COUNT + 2) / 3, mTools.getApps().getMatches().size());
+        assertTrue(mSocial.getApps().getMatches().contains(getKey(0)));
+        assertTrue(mTools.getApps().getMatches().contains(getKey(0)));
+        assertFalse(mSocial.getApps().getMatches().contains(getKey(1)));
+        assertFalse(mTools.getApps().getMatches().contains(getKey(1)));
+    }
+
+    @Test
+    public void testPackageEventsUpdateMembership() {
+        mCategorizer.ensureClassified();
+
+        String pkg = getPackage(APP_COUNT);
+        installApp(pkg, true);
+        mCategorizer.onPackageAdded(pkg, Process.myUserHandle());
+        assertTrue(mTools.getApps().getMatches().contains(getKey(APP_COUNT)));
+        assertFalse(mSocial.getApps().getMatches().contains(getKey(APP_COUNT)));
+
+        mCategorizer.onPackageRemoved(getPackage(0), Process.myUserHandle());
+        assertFalse(mSocial.getApps().getMatches().contains(getKey(0)));
+        assertFalse(mTools.getApps().getMatches().contains(getKey(0)));
+        assertEquals((APP_COUNT + 1) / 2 - 1, mSocial.getApps().getMatches().size());
+    }
+
+    @Test
+    public void testPackageEventsNotifyListeners() {
+        mCategorizer.ensureClassified();
+
+        List<ComponentKey> added = new ArrayList<>();
+        List<ComponentKey> removed = new ArrayList<>();
+        mTools.getApps().addListener(new FlowerpotApps.Listener() {
+            @Override
+            public void onAppAdded(FlowerpotApps apps, ComponentKey key) {
+                added.add(key);
+            }
+
+            @Override
+            public void onAppRemoved(FlowerpotApps apps, ComponentKey key) {
+                removed.add(key);
+            }
+        });
+
+        String pkg = getPackage(APP_COUNT);
+        installApp(pkg, true);
+        mCategorizer.onPackageAdded(pkg, Process.myUserHandle());
+        mCategorizer.onPackageRemoved(getPackage(0), Process.myUserHandle());
+
+        assertEquals(Collections.singletonList(getKey(APP_COUNT)), added);
+        assertEquals(Collections.singletonList(getKey(0)), removed);
+    }
+
+    private void installApp(String pkg, boolean isTool) {
+        ShadowPackageManager spm = shadowOf(mContext.getPackageManager());
+        ComponentName cn = new ComponentName(pkg, pkg + ".Main");
+        spm.addActivityIfNotPresent(cn);
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_MAIN);
+        filter.addCategory(Intent.CATEGORY_LAUNCHER);
+        filter.addCategory(Intent.CATEGORY_DEFAULT);
+        spm.addIntentFilterForActivity(cn, filter);
+
+        if (isTool) {
+            ComponentName tool = new ComponentName(pkg, pkg + ".Tool");
+            spm.addActivityIfNotPresent(tool);
+            IntentFilter toolFilter = new IntentFilter(TOOL_ACTION);
+            toolFilter.addCategory(Intent.CATEGORY_DEFAULT);
+            spm.addIntentFilterForActivity(tool, toolFilter);
+        }
+    }
+
+    private static String getPackage(int index) {
+        return "com.test.app" + index;
+    }
+
+    private static ComponentKey getKey(int index) {
+        String pkg = getPackage(index);
+        return new ComponentKey(new ComponentName(pkg, pkg + ".Main"), Process.myUserHandle());
+    }
+}
@@ -0,0 +1,56 @@
+package com.saggitt.omega.iconpack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import com.android.launcher3.logging.PerfMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import kotlin.Unit;
+
+/**
+ * Tests for {@link IconPackProvider}, using the appfilter of the test package as icon pack
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IconPackProviderTest {
+
+    private Context mContext;
+    private IconPackProvider mProvider;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.getApplication();
+        mProvider = new IconPackProvider(mContext);
+    }
+
+    @Test
+    public void testFootprintReportedOnceLoaded() throws Exception {
+        String packageName = mContext.getPackageName();
+        IconPack pack = mProvider.getIconPackOrSystem(packageName);
+        assertNotNull(pack);
+
+        CountDownLatch loaded = new CountDownLatch(1);
+        pack.doOnLoaded(() -> {
+            loaded.countDown();
+            return Unit.INSTANCE;
+        });
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+
+        assertTrue(pack.isLoaded());
+        assertEquals(2, pack.getIcons().size());
+        assertTrue(pack.getMemoryFootprint() > 0);
+        assertEquals(pack.getMemoryFootprint(),
+                PerfMetrics.gauge("iconpack/bytes/" + packageName).get());
+    }
+}
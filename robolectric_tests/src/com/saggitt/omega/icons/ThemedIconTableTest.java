@@ -0,0 +1,103 @@
+package com.saggitt.omega.icons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.ComponentName;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link ThemedIconTable}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThemedIconTableTest {
+
+    private static final long[] VERSIONS = {12, 1000, -1, -1};
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private Map<ComponentName, ThemedIconTable.Icon> mIcons;
+    private File mFile;
+
+    @Before
+    public void setup() throws Exception {
+        mIcons = new HashMap<>();
+        mIcons.put(new ComponentName("com.example.mail", ""), new ThemedIconTable.Icon(0, 1));
+        mIcons.put(new ComponentName("com.example.mail", "com.example.mail.Compose"),
+                new ThemedIconTable.Icon(1, 2));
+        mIcons.put(new ComponentName("com.example.maps", "com.example.maps.Café"),
+                new ThemedIconTable.Icon(1, 3));
+        mFile = new File(mFolder.getRoot(), "themed_icon_map.bin");
+    }
+
+    @Test
+    public void testComponentThenPackage() {
+        ThemedIconTable table = ThemedIconTable.create(VERSIONS, mIcons);
+        assertEquals(3, table.getSize());
+        assertEquals(new ThemedIconTable.Icon(1, 2),
+                table.get(new ComponentName("com.example.mail", "com.example.mail.Compose")));
+        assertEquals(new ThemedIconTable.Icon(0, 1),
+                table.get(new ComponentName("com.example.mail", "com.example.mail.Inbox")));
+        assertEquals(new ThemedIconTable.Icon(1, 3),
+                table.get(new ComponentName("com.example.maps", "com.example.maps.Café")));
+        assertNull(table.get(new ComponentName("com.example.maps", "com.example.maps.Main")));
+        assertNull(table.get(new ComponentName("com.example", "")));
+    }
+
+    @Test
+    public void testEveryEntryFound() {
+        mIcons.clear();
+        for (int i = 0; i < 500; i++) {
+            mIcons.put(new ComponentName("com.example.app" + (i * 7919 % 500), "Ä" + i),
+                    new ThemedIconTable.Icon(i % 2, i));
+        }
+        ThemedIconTable table = ThemedIconTable.create(VERSIONS, mIcons);
+        for (Map.Entry<ComponentName, ThemedIconTable.Icon> entry : mIcons.entrySet()) {
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testWrittenTableMapped() throws Exception {
+        ThemedIconTable.create(VERSIONS, mIcons).write(mFile);
+
+        ThemedIconTable table = ThemedIconTable.read(mFile, VERSIONS.clone());
+        assertNotNull(table);
+        assertEquals(3, table.getSize());
+        for (Map.Entry<ComponentName, ThemedIconTable.Icon> entry : mIcons.entrySet()) {
+            assertEquals(entry.getValue(), table.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testOtherVersionsIgnored() throws Exception {
+        ThemedIconTable.create(VERSIONS, mIcons).write(mFile);
+
+        assertNull(ThemedIconTable.read(mFile, new long[]{12, 1000, 3, 2000}));
+        assertNull(ThemedIconTable.read(mFile, new long[]{12, 1000}));
+        assertNull(ThemedIconTable.read(new File(mFolder.getRoot(), "missing"), VERSIONS));
+    }
+
+    @Test
+    public void testTruncatedFileIgnored() throws Exception {
+        ThemedIconTable.create(VERSIONS, mIcons).write(mFile);
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        assertNull(ThemedIconTable.read(mFile, VERSIONS));
+    }
+}
@@ -0,0 +1,72 @@
+package com.saggitt.omega.search;
+
+import com.android.launcher3.util.BenchmarkConfig;
+import com.android.launcher3.util.BenchmarkReport;
+import com.saggitt.omega.data.PeopleInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks {@link ContactSearchIndex} over 10000 synthesized contacts. Run with
+ * {@code ./gradlew testAospWithoutQuickstepOmegaDebugUnitTest -Pbenchmark}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ContactSearchIndexBenchmarkTest {
+
+    private static final int CONTACT_COUNT = 10000;
+    private static final int MAX_RESULTS = 5;
+
+    private static final String[] FIRST_NAMES = {"Ana", "José", "Marie", "John", "Léa", "Omar",
+            "Yuki", "Chloé", "Pedro", "Anna", "Björn", "Fatima", "Liam", "Noah", "Zoë", "Iván"};
+    private static final String[] LAST_NAMES = {"García", "Smith", "Müller", "Dubois", "Rossi",
+            "Nguyen", "Silva", "Kowalski", "Jansen", "Novák", "Öztürk", "Tanaka", "Brown"};
+    private static final String[] QUERIES = {"a", "jo", "jose", "marie dub", "muller",
+            "555", "612345", "+34 6", "zzz"};
+
+    private final BenchmarkConfig mConfig = BenchmarkConfig.fromSystemProperties();
+    private final List<PeopleInfo> mPeople = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        Random random = new Random(CONTACT_COUNT);
+        for (int i = 0; i < CONTACT_COUNT; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String phone = String.format("+%d %03d %03d %04d", 1 + random.nextInt(99),
+                    random.nextInt(1000), random.nextInt(1000), random.nextInt(10000));
+            mPeople.add(new PeopleInfo(String.valueOf(i), name, phone));
+        }
+    }
+
+    @Test
+    public void contactSearch() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("contact_search", mConfig);
+        ContactSearchIndex index = new ContactSearchIndex();
+
+        report.measure("index_build", () -> {
+            ContactSearchIndex built = new ContactSearchIndex();
+            built.putAll(mPeople);
+            built.search("", MAX_RESULTS);
+        });
+        index.putAll(mPeople);
+        index.search("", MAX_RESULTS);
+        report.measure("index_rebuild_one_changed", () -> {
+            PeopleInfo person = mPeople.get(0);
+            index.put(new PeopleInfo(person.getContactId(), person.getContactName() + " Jr",
+                    person.getContactPhone()));
+            index.search("", MAX_RESULTS);
+        });
+
+        for (String query : QUERIES) {
+            report.measure("query/" + query, () -> index.search(query, MAX_RESULTS));
+        }
+        report.write();
+    }
+}
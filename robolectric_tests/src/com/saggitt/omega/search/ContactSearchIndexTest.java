@@ -0,0 +1,87 @@
+package com.saggitt.omega.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.saggitt.omega.data.PeopleInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link ContactSearchIndex}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ContactSearchIndexTest {
+
+    private ContactSearchIndex mIndex;
+
+    @Before
+    public void setup() {
+        mIndex = new ContactSearchIndex();
+        mIndex.putAll(Arrays.asList(
+                new PeopleInfo("1", "José Álvarez", "+34 612 345 678"),
+                new PeopleInfo("2", "Ann Smith", "(555) 010-2030"),
+                new PeopleInfo("3", "Joseph Brown", "555 0199"),
+                new PeopleInfo("4", "Marie-Anne Joly", "06 12 34 56 78")));
+    }
+
+    @Test
+    public void testWordPrefixMatches() {
+        assertEquals(names("José Álvarez", "Joseph Brown", "Marie-Anne Joly"),
+                names(mIndex.search("jo", 5)));
+        assertEquals(names("Ann Smith", "Marie-Anne Joly"), names(mIndex.search("ann", 5)));
+        assertTrue(mIndex.search("mith", 5).isEmpty());
+    }
+
+    @Test
+    public void testEveryWordMustMatch() {
+        assertEquals(names("Marie-Anne Joly"), names(mIndex.search("jol mar", 5)));
+        assertTrue(mIndex.search("jose smith", 5).isEmpty());
+    }
+
+    @Test
+    public void testDiacriticsIgnored() {
+        assertEquals(names("José Álvarez"), names(mIndex.search("ALVAREZ", 5)));
+        assertEquals(names("José Álvarez", "Joseph Brown"), names(mIndex.search("jose", 5)));
+    }
+
+    @Test
+    public void testDigitSequenceMatches() {
+        assertEquals(names("Ann Smith", "Joseph Brown"), names(mIndex.search("5550", 5)));
+        assertEquals(names("José Álvarez", "Marie-Anne Joly"),
+                names(mIndex.search("12 345", 5)));
+        assertEquals(names("Ann Smith"), names(mIndex.search("010-20", 5)));
+    }
+
+    @Test
+    public void testChangesAreSearchable() {
+        mIndex.search("jo", 5);
+        mIndex.remove("3");
+        mIndex.put(new PeopleInfo("2", "Ann Jones", "555 0100"));
+
+        assertEquals(names("José Álvarez", "Ann Jones", "Marie-Anne Joly"),
+                names(mIndex.search("jo", 5)));
+        assertEquals(names("Ann Jones"), names(mIndex.search("5550", 5)));
+        mIndex.clear();
+        assertTrue(mIndex.search("jo", 5).isEmpty());
+    }
+
+    private static List<String> names(String... names) {
+        return Arrays.asList(names);
+    }
+
+    private static List<String> names(List<PeopleInfo> people) {
+        List<String> names = new ArrayList<>();
+        for (PeopleInfo person : people) {
+            names.add(person.getContactName());
+        }
+        return names;
+    }
+}
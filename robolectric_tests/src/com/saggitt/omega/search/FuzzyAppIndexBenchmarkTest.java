@@ -0,0 +1,87 @@
+package com.saggitt.omega.search;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.util.BenchmarkConfig;
+import com.android.launcher3.util.BenchmarkReport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+import me.xdrop.fuzzywuzzy.algorithms.WeightedRatio;
+
+/**
+ * Compares {@link FuzzyAppIndex} with the previous FuzzySearch based fuzzy search, over 1000
+ * synthesized titles. Run with
+ * {@code ./gradlew testAospWithoutQuickstepOmegaDebugUnitTest -Pbenchmark}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FuzzyAppIndexBenchmarkTest {
+
+    private static final int TITLE_COUNT = 1000;
+    private static final int MAX_RESULTS = 5;
+
+    private static final String[] WORDS = {"Camera", "Photos", "Maps", "Mail", "Music", "Notes",
+            "Calendar", "Clock", "Weather", "News", "Chat", "Bank", "Shop", "Games", "Fit",
+            "Drive", "Files", "Radio", "Books", "Translate", "Wallet", "Travel", "Video", "Home",
+            "Pro", "Lite", "Plus", "Studio", "Scanner", "Editor", "Player", "Manager"};
+    private static final String[] QUERIES = {"c", "ma", "cal", "calender", "photo edtor",
+            "music player", "trnslate", "zzz"};
+
+    private final BenchmarkConfig mConfig = BenchmarkConfig.fromSystemProperties();
+    private final List<AppInfo> mApps = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        Random random = new Random(TITLE_COUNT);
+        for (int i = 0; i < TITLE_COUNT; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)];
+            if (random.nextBoolean()) {
+                title += " " + WORDS[random.nextInt(WORDS.length)];
+            }
+            AppInfo app = new AppInfo();
+            app.componentName = new ComponentName("com.test.app" + i, "com.test.app" + i + ".Main");
+            app.title = title;
+            app.user = Process.myUserHandle();
+            mApps.add(app);
+        }
+    }
+
+    @Test
+    public void fuzzySearch() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("fuzzy_app_search", mConfig);
+        FuzzyAppIndex index = new FuzzyAppIndex();
+
+        report.measure("index_build", () -> new FuzzyAppIndex().update(mApps));
+        index.update(mApps);
+        report.measure("index_update_unchanged", () -> index.update(mApps));
+        report.measure("index_update_one_renamed", () -> {
+            AppInfo renamed = new AppInfo(mApps.get(0));
+            renamed.title = renamed.title + " 2";
+            mApps.set(0, renamed);
+            index.update(mApps);
+        });
+
+        for (String query : QUERIES) {
+            report.measure("extract_sorted/" + query, () -> extractSorted(query));
+            report.measure("index/" + query, () -> index.search(query, MAX_RESULTS));
+        }
+        report.write();
+    }
+
+    private void extractSorted(String query) {
+        FuzzySearch.extractSorted(query.toLowerCase(Locale.getDefault()), mApps,
+                app -> app.title.toString(), new WeightedRatio(), 65);
+    }
+}
@@ -0,0 +1,102 @@
+package com.saggitt.omega.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.os.Process;
+
+import com.android.launcher3.model.data.AppInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link FuzzyAppIndex}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FuzzyAppIndexTest {
+
+    private List<AppInfo> mApps;
+    private FuzzyAppIndex mIndex;
+
+    @Before
+    public void setup() {
+        mApps = new ArrayList<>(Arrays.asList(createApp("Calendar"), createApp("Calculator"),
+                createApp("Local Radio"), createApp("Café Finder"), createApp("Gmail")));
+        mIndex = new FuzzyAppIndex();
+        mIndex.update(mApps);
+    }
+
+    @Test
+    public void testTypoMatches() {
+        assertEquals(titles("Calendar"), titles(mIndex.search("calender", 1)));
+        assertEquals(titles("Gmail"), titles(mIndex.search("gmal", 5)));
+    }
+
+    @Test
+    public void testWordPrefixRanksFirst() {
+        List<String> results = titles(mIndex.search("cal", 5));
+        assertEquals(titles("Calendar", "Calculator", "Local Radio"), results.subList(0, 3));
+    }
+
+    @Test
+    public void testAccentsAndSeparatorsIgnored() {
+        assertEquals(titles("Café Finder"), titles(mIndex.search("CAFE-finder", 5)));
+    }
+
+    @Test
+    public void testUnrelatedQueryMatchesNothing() {
+        assertTrue(mIndex.search("zzz", 5).isEmpty());
+    }
+
+    @Test
+    public void testUpdateFollowsChanges() {
+        AppInfo gmail = mApps.remove(4);
+        AppInfo renamed = new AppInfo(gmail);
+        renamed.title = "Inbox";
+        mApps.add(renamed);
+        mApps.remove(0);
+        mIndex.update(mApps);
+
+        assertEquals(4, mIndex.getSize());
+        assertTrue(mIndex.search("gmail", 5).isEmpty());
+        assertTrue(mIndex.search("calendar", 5).isEmpty());
+        assertEquals(titles("Inbox"), titles(mIndex.search("inbox", 5)));
+    }
+
+    @Test
+    public void testSubstringDistance() {
+        FuzzyAppIndex.Companion index = FuzzyAppIndex.Companion;
+        assertEquals(0, index.substringDistance("mail", " gmail", 1));
+        assertEquals(1, index.substringDistance("maul", " gmail", 1));
+        assertEquals(2, index.substringDistance("xyz", " gmail", 1));
+    }
+
+    private static List<String> titles(String... titles) {
+        return Arrays.asList(titles);
+    }
+
+    private static List<String> titles(List<AppInfo> apps) {
+        List<String> titles = new ArrayList<>();
+        for (AppInfo app : apps) {
+            titles.add(app.title.toString());
+        }
+        return titles;
+    }
+
+    private static AppInfo createApp(String title) {
+        String pkg = "com.test." + title.replace(" ", "").toLowerCase();
+        AppInfo app = new AppInfo();
+        app.componentName = new ComponentName(pkg, pkg + ".Main");
+        app.title = title;
+        app.user = Process.myUserHandle();
+        return app;
+    }
+}
@@ -113,6 +113,21 @@ public class CellLayout extends ViewGroup {
     private GridOccupancy mOccupied;
     private GridOccupancy mTmpOccupied;
 
+    // Scratch state for the reorder search, reused across drag moves to avoid allocations
+    private GridOccupancy mTmpBlockOccupied;
+    private ViewCluster mTmpViewCluster;
+    private final ItemConfiguration mTmpSwapSolution = new ItemConfiguration();
+    private final ItemConfiguration mTmpNoShuffleSolution = new ItemConfiguration();
+    private final int[] mTmpReorderResult = new int[2];
+    private final int[] mTmpDirectionDestination = new int[2];
+    private final Rect mTmpDragRect = new Rect();
+    private final Rect mTmpDropRegionRect = new Rect();
+    private final Rect mTmpBlockRect = new Rect();
+    private final Rect mTmpIntersectRect = new Rect();
+    private final Rect mTmpChildRect = new Rect();
+    private final Rect mTmpBestRect = new Rect();
+    private final Stack<Rect> mTmpValidRegions = new Stack<>();
+
     private OnTouchListener mInterceptTouchListener;
 
     private final ArrayList<DelegatedCellDrawing> mDelegatedCellDrawings = new ArrayList<>();
@@ -259,6 +274,8 @@ public class CellLayout extends ViewGroup {
         mCountY = deviceProfile.inv.numRows;
         mOccupied = new GridOccupancy(mCountX, mCountY);
         mTmpOccupied = new GridOccupancy(mCountX, mCountY);
+        mTmpBlockOccupied = new GridOccupancy(mCountX, mCountY);
+        mTmpViewCluster = null;
 
         mPreviousReorderDirection[0] = INVALID_DIRECTION;
         mPreviousReorderDirection[1] = INVALID_DIRECTION;
@@ -388,6 +405,8 @@ public class CellLayout extends ViewGroup {
         mCountY = y;
         mOccupied = new GridOccupancy(mCountX, mCountY);
         mTmpOccupied = new GridOccupancy(mCountX, mCountY);
+        mTmpBlockOccupied = new GridOccupancy(mCountX, mCountY);
+        mTmpViewCluster = null;
         mTempRectStack.clear();
         mShortcutsAndWidgets.setCellDimensions(mCellWidth, mCellHeight, mCountX, mCountY,
                 mBorderSpacing);
@@ -459,7 +478,7 @@ public class CellLayout extends ViewGroup {
             cd.setBounds(0, 0, mCellWidth, mCellHeight);
             for (int i = 0; i < mCountX; i++) {
                 for (int j = 0; j < mCountY; j++) {
-                    if (mOccupied.cells[i][j]) {
+                    if (mOccupied.isOccupied(i, j)) {
                         cellToPoint(i, j, pt);
                         canvas.save();
                         canvas.translate(pt[0], pt[1]);
@@ -1182,8 +1201,9 @@ public class CellLayout extends ViewGroup {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         double bestDistance = Double.MAX_VALUE;
-        final Rect bestRect = new Rect(-1, -1, -1, -1);
-        final Stack<Rect> validRegions = new Stack<>();
+        final Rect bestRect = mTmpBestRect;
+        bestRect.set(-1, -1, -1, -1);
+        final Stack<Rect> validRegions = mTmpValidRegions;
 
         final int countX = mCountX;
         final int countY = mCountY;
@@ -1194,18 +1214,13 @@ public class CellLayout extends ViewGroup {
         }
 
         for (int y = 0; y < countY - (minSpanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (minSpanX - 1); x++) {
                 int ySize = -1;
                 int xSize = -1;
                 if (ignoreOccupied) {
                     // First, let's see if this thing fits anywhere
-                    for (int i = 0; i < minSpanX; i++) {
-                        for (int j = 0; j < minSpanY; j++) {
-                            if (mOccupied.cells[x + i][y + j]) {
-                                continue inner;
-                            }
-                        }
+                    if (!mOccupied.isRegionVacant(x, y, minSpanX, minSpanY)) {
+                        continue;
                     }
                     xSize = minSpanX;
                     ySize = minSpanY;
@@ -1218,23 +1233,17 @@ public class CellLayout extends ViewGroup {
                     boolean hitMaxY = ySize >= spanY;
                     while (!(hitMaxX && hitMaxY)) {
                         if (incX && !hitMaxX) {
-                            for (int j = 0; j < ySize; j++) {
-                                if (x + xSize > countX -1 || mOccupied.cells[x + xSize][y + j]) {
-                                    // We can't move out horizontally
-                                    hitMaxX = true;
-                                }
-                            }
-                            if (!hitMaxX) {
+                            if (!mOccupied.isRegionVacant(x + xSize, y, 1, ySize)) {
+                                // We can't move out horizontally
+                                hitMaxX = true;
+                            } else {
                                 xSize++;
                             }
                         } else if (!hitMaxY) {
-                            for (int i = 0; i < xSize; i++) {
-                                if (y + ySize > countY - 1 || mOccupied.cells[x + i][y + ySize]) {
-                                    // We can't move out vertically
-                                    hitMaxY = true;
-                                }
-                            }
-                            if (!hitMaxY) {
+                            if (!mOccupied.isRegionVacant(x, y + ySize, xSize, 1)) {
+                                // We can't move out vertically
+                                hitMaxY = true;
+                            } else {
                                 ySize++;
                             }
                         }
@@ -1298,16 +1307,17 @@ public class CellLayout extends ViewGroup {
      * @param spanX Horizontal span of the object.
      * @param spanY Vertical span of the object.
      * @param direction The favored direction in which the views should move from x, y
-     * @param occupied The array which represents which cells in the CellLayout are occupied
-     * @param blockOccupied The array which represents which cells in the specified block (cellX,
-     *        cellY, spanX, spanY) are occupied. This is used when try to move a group of views.
+     * @param occupied The occupancy which represents which cells in the CellLayout are occupied
+     * @param blockOccupied The occupancy which represents which cells in the specified block
+     *        (cellX, cellY, spanX, spanY) are occupied, relative to its top-left cell. This is
+     *        used when try to move a group of views.
      * @param result Array in which to place the result, or null (in which case a new array will
      *        be allocated)
      * @return The X, Y cell of a vacant area that can contain this object,
      *         nearest the requested location.
      */
     private int[] findNearestArea(int cellX, int cellY, int spanX, int spanY, int[] direction,
-            boolean[][] occupied, boolean blockOccupied[][], int[] result) {
+            GridOccupancy occupied, GridOccupancy blockOccupied, int[] result) {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         float bestDistance = Float.MAX_VALUE;
@@ -1317,15 +1327,13 @@ public class CellLayout extends ViewGroup {
         final int countY = mCountY;
 
         for (int y = 0; y < countY - (spanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (spanX - 1); x++) {
                 // First, let's see if this thing fits anywhere
-                for (int i = 0; i < spanX; i++) {
-                    for (int j = 0; j < spanY; j++) {
-                        if (occupied[x + i][y + j] && (blockOccupied == null || blockOccupied[i][j])) {
-                            continue inner;
-                        }
-                    }
+                boolean fits = blockOccupied == null
+                        ? occupied.isRegionVacant(x, y, spanX, spanY)
+                        : occupied.isRegionVacant(x, y, spanX, spanY, blockOccupied);
+                if (!fits) {
+                    continue;
                 }
 
                 float distance = (float) Math.hypot(x - cellX, y - cellY);
@@ -1362,7 +1370,7 @@ public class CellLayout extends ViewGroup {
         mTmpOccupied.markCells(rectOccupiedByPotentialDrop, true);
 
         findNearestArea(c.cellX, c.cellY, c.spanX, c.spanY, direction,
-                mTmpOccupied.cells, null, mTempLocation);
+                mTmpOccupied, null, mTempLocation);
 
         if (mTempLocation[0] >= 0 && mTempLocation[1] >= 0) {
             c.cellX = mTempLocation[0];
@@ -1385,8 +1393,8 @@ public class CellLayout extends ViewGroup {
         final static int RIGHT = 1 << 2;
         final static int BOTTOM = 1 << 3;
 
-        final ArrayList<View> views;
-        final ItemConfiguration config;
+        final ArrayList<View> views = new ArrayList<>();
+        ItemConfiguration config;
         final Rect boundingRect = new Rect();
 
         final int[] leftEdge = new int[mCountY];
@@ -1396,9 +1404,12 @@ public class CellLayout extends ViewGroup {
         int dirtyEdges;
         boolean boundingRectDirty;
 
-        @SuppressWarnings("unchecked")
-        public ViewCluster(ArrayList<View> views, ItemConfiguration config) {
-            this.views = (ArrayList<View>) views.clone();
+        /**
+         * Reinitializes this cluster so that it can be reused for another push
+         */
+        void reset(ArrayList<View> views, ItemConfiguration config) {
+            this.views.clear();
+            this.views.addAll(views);
             this.config = config;
             resetEdges();
         }
@@ -1561,7 +1572,11 @@ public class CellLayout extends ViewGroup {
     private boolean pushViewsToTempLocation(ArrayList<View> views, Rect rectOccupiedByPotentialDrop,
             int[] direction, View dragView, ItemConfiguration currentState) {
 
-        ViewCluster cluster = new ViewCluster(views, currentState);
+        if (mTmpViewCluster == null) {
+            mTmpViewCluster = new ViewCluster();
+        }
+        ViewCluster cluster = mTmpViewCluster;
+        cluster.reset(views, currentState);
         Rect clusterRect = cluster.getBoundingRect();
         int whichEdge;
         int pushDistance;
@@ -1658,7 +1673,7 @@ public class CellLayout extends ViewGroup {
         if (views.size() == 0) return true;
 
         boolean success = false;
-        Rect boundingRect = new Rect();
+        Rect boundingRect = mTmpBlockRect;
         // We construct a rect which represents the entire group of views passed in
         currentState.getBoundingRectForViews(views, boundingRect);
 
@@ -1668,7 +1683,8 @@ public class CellLayout extends ViewGroup {
             mTmpOccupied.markCells(c, false);
         }
 
-        GridOccupancy blockOccupied = new GridOccupancy(boundingRect.width(), boundingRect.height());
+        GridOccupancy blockOccupied = mTmpBlockOccupied;
+        blockOccupied.clear();
         int top = boundingRect.top;
         int left = boundingRect.left;
         // We mark more precisely which parts of the bounding rect are truly occupied, allowing
@@ -1682,7 +1698,7 @@ public class CellLayout extends ViewGroup {
 
         findNearestArea(boundingRect.left, boundingRect.top, boundingRect.width(),
                 boundingRect.height(), direction,
-                mTmpOccupied.cells, blockOccupied.cells, mTempLocation);
+                mTmpOccupied, blockOccupied, mTempLocation);
 
         // If we successfuly found a location by pushing the block of views, we commit it
         if (mTempLocation[0] >= 0 && mTempLocation[1] >= 0) {
@@ -1817,11 +1833,12 @@ public class CellLayout extends ViewGroup {
                 c.cellY = cellY;
             }
         }
-        Rect r0 = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
-        Rect r1 = new Rect();
-        for (View child: solution.map.keySet()) {
+        Rect r0 = mOccupiedRect;
+        Rect r1 = mTmpChildRect;
+        for (int i = 0; i < solution.map.size(); i++) {
+            View child = solution.map.keyAt(i);
             if (child == ignoreView) continue;
-            CellAndSpan c = solution.map.get(child);
+            CellAndSpan c = solution.map.valueAt(i);
             LayoutParams lp = (LayoutParams) child.getLayoutParams();
             r1.set(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY);
             if (Rect.intersects(r0, r1)) {
@@ -1832,7 +1849,7 @@ public class CellLayout extends ViewGroup {
             }
         }
 
-        solution.intersectingViews = new ArrayList<>(mIntersectingViews);
+        solution.setIntersectingViews(mIntersectingViews);
 
         // First we try to find a solution which respects the push mechanic. That is,
         // we try to find a solution such that no displaced item travels through another item
@@ -1885,8 +1902,7 @@ public class CellLayout extends ViewGroup {
 
         // We find the nearest cell into which we would place the dragged item, assuming there's
         // nothing in its way.
-        int result[] = new int[2];
-        result = findNearestArea(pixelX, pixelY, spanX, spanY, result);
+        int[] result = findNearestArea(pixelX, pixelY, spanX, spanY, mTmpReorderResult);
 
         boolean success;
         // First we try the exact nearest position of the item being dragged,
@@ -1920,13 +1936,11 @@ public class CellLayout extends ViewGroup {
         for (int i = 0; i < childCount; i++) {
             View child = mShortcutsAndWidgets.getChildAt(i);
             LayoutParams lp = (LayoutParams) child.getLayoutParams();
-            CellAndSpan c;
             if (temp) {
-                c = new CellAndSpan(lp.tmpCellX, lp.tmpCellY, lp.cellHSpan, lp.cellVSpan);
+                solution.add(child, lp.tmpCellX, lp.tmpCellY, lp.cellHSpan, lp.cellVSpan);
             } else {
-                c = new CellAndSpan(lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
+                solution.add(child, lp.cellX, lp.cellY, lp.cellHSpan, lp.cellVSpan);
             }
-            solution.add(child, c);
         }
     }
 
@@ -2238,14 +2252,14 @@ public class CellLayout extends ViewGroup {
                                            int spanY, View dragView, int[] resultDirection) {
 
         //TODO(adamcohen) b/151776141 use the items visual center for the direction vector
-        int[] targetDestination = new int[2];
+        int[] targetDestination = mTmpDirectionDestination;
 
         findNearestArea(dragViewCenterX, dragViewCenterY, spanX, spanY, targetDestination);
-        Rect dragRect = new Rect();
+        Rect dragRect = mTmpDragRect;
         cellToRect(targetDestination[0], targetDestination[1], spanX, spanY, dragRect);
         dragRect.offset(dragViewCenterX - dragRect.centerX(), dragViewCenterY - dragRect.centerY());
 
-        Rect dropRegionRect = new Rect();
+        Rect dropRegionRect = mTmpDropRegionRect;
         getViewsIntersectingRegion(targetDestination[0], targetDestination[1], spanX, spanY,
                 dragView, dropRegionRect, mIntersectingViews);
 
@@ -2281,8 +2295,9 @@ public class CellLayout extends ViewGroup {
             boundingRect.set(cellX, cellY, cellX + spanX, cellY + spanY);
         }
         intersectingViews.clear();
-        Rect r0 = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
-        Rect r1 = new Rect();
+        Rect r0 = mTmpIntersectRect;
+        r0.set(cellX, cellY, cellX + spanX, cellY + spanY);
+        Rect r1 = mTmpChildRect;
         final int count = mShortcutsAndWidgets.getChildCount();
         for (int i = 0; i < count; i++) {
             View child = mShortcutsAndWidgets.getChildAt(i);
@@ -2331,7 +2346,7 @@ public class CellLayout extends ViewGroup {
 
         // First we determine if things have moved enough to cause a different layout
         ItemConfiguration swapSolution = findReorderSolution(pixelXY[0], pixelXY[1], spanX, spanY,
-                spanX, spanY, direction, dragView, true, new ItemConfiguration());
+                spanX, spanY, direction, dragView, true, mTmpSwapSolution.reset());
 
         setUseTempCoords(true);
         if (swapSolution != null && swapSolution.isSolution) {
@@ -2384,11 +2399,11 @@ public class CellLayout extends ViewGroup {
 
         // Find a solution involving pushing / displacing any items in the way
         ItemConfiguration swapSolution = findReorderSolution(pixelX, pixelY, minSpanX, minSpanY,
-                 spanX,  spanY, mDirectionVector, dragView,  true,  new ItemConfiguration());
+                 spanX,  spanY, mDirectionVector, dragView,  true,  mTmpSwapSolution.reset());
 
         // We attempt the approach which doesn't shuffle views at all
         ItemConfiguration noShuffleSolution = findConfigurationNoShuffle(pixelX, pixelY, minSpanX,
-                minSpanY, spanX, spanY, dragView, new ItemConfiguration());
+                minSpanY, spanX, spanY, dragView, mTmpNoShuffleSolution.reset());
 
         ItemConfiguration finalSolution = null;
 
@@ -2472,6 +2487,35 @@ public class CellLayout extends ViewGroup {
         ArrayList<View> intersectingViews;
         boolean isSolution = false;
 
+        // Recycled objects, so that a configuration can be reused without allocations
+        private final ArrayList<CellAndSpan> mCellPool = new ArrayList<>();
+        private final ArrayList<View> mIntersectingViewsCache = new ArrayList<>();
+
+        /**
+         * Clears this configuration so that it can be used for a new search
+         */
+        ItemConfiguration reset() {
+            for (int i = map.size() - 1; i >= 0; i--) {
+                mCellPool.add(map.valueAt(i));
+                mCellPool.add(savedMap.valueAt(i));
+            }
+            map.clear();
+            savedMap.clear();
+            sortedViews.clear();
+            mIntersectingViewsCache.clear();
+            intersectingViews = null;
+            isSolution = false;
+            cellX = cellY = -1;
+            spanX = spanY = 1;
+            return this;
+        }
+
+        void setIntersectingViews(ArrayList<View> views) {
+            mIntersectingViewsCache.clear();
+            mIntersectingViewsCache.addAll(views);
+            intersectingViews = mIntersectingViewsCache;
+        }
+
         void save() {
             // Copy current state into savedMap
             for (View v: map.keySet()) {
@@ -2486,20 +2530,30 @@ public class CellLayout extends ViewGroup {
             }
         }
 
-        void add(View v, CellAndSpan cs) {
+        void add(View v, int cellX, int cellY, int spanX, int spanY) {
+            CellAndSpan cs = obtainCell();
+            cs.cellX = cellX;
+            cs.cellY = cellY;
+            cs.spanX = spanX;
+            cs.spanY = spanY;
             map.put(v, cs);
-            savedMap.put(v, new CellAndSpan());
+            savedMap.put(v, obtainCell());
             sortedViews.add(v);
         }
 
+        private CellAndSpan obtainCell() {
+            int size = mCellPool.size();
+            return size > 0 ? mCellPool.remove(size - 1) : new CellAndSpan();
+        }
+
         int area() {
             return spanX * spanY;
         }
 
         void getBoundingRectForViews(ArrayList<View> views, Rect outRect) {
             boolean first = true;
-            for (View v: views) {
-                CellAndSpan c = map.get(v);
+            for (int i = 0; i < views.size(); i++) {
+                CellAndSpan c = map.get(views.get(i));
                 if (first) {
                     outRect.set(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY);
                     first = false;
@@ -2646,7 +2700,7 @@ public class CellLayout extends ViewGroup {
 
     public boolean isOccupied(int x, int y) {
         if (x < mCountX && y < mCountY) {
-            return mOccupied.cells[x][y];
+            return mOccupied.isOccupied(x, y);
         } else {
             return false;
             // TODO manage changing grid sizes better
@@ -2875,7 +2929,7 @@ public class CellLayout extends ViewGroup {
                 cellToPoint(cellX, cellY, cellPoint);
                 if (findReorderSolution(cellPoint[0], cellPoint[1], itemInfo.minSpanX,
                         itemInfo.minSpanY, itemInfo.spanX, itemInfo.spanY, mDirectionVector, null,
-                        true, new ItemConfiguration()).isSolution) {
+                        true, mTmpSwapSolution.reset()).isSolution) {
                     return true;
                 }
             }
@@ -89,6 +89,7 @@ import android.os.StrictMode;
 import android.os.SystemClock;
 import android.text.TextUtils;
 import android.text.method.TextKeyListener;
+import android.util.Base64;
 import android.util.Log;
 import android.util.SparseArray;
 import android.view.KeyEvent;
@@ -136,6 +137,7 @@ import com.android.launcher3.logger.LauncherAtom;
 import com.android.launcher3.logging.FileLog;
 import com.android.launcher3.logging.InstanceId;
 import com.android.launcher3.logging.InstanceIdSequence;
+import com.android.launcher3.logging.PerfMetrics;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.ItemInstallQueue;
@@ -175,6 +177,7 @@ import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.PendingRequestArgs;
 import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.util.StartupInitializer;
 import com.android.launcher3.util.SystemUiController;
 import com.android.launcher3.util.Themes;
 import com.android.launcher3.util.Thunk;
@@ -194,6 +197,7 @@ import com.android.launcher3.widget.PendingAddWidgetInfo;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
 import com.android.launcher3.widget.WidgetAddFlowHandler;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetUpdateScheduler;
 import com.android.launcher3.widget.custom.CustomWidgetManager;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 import com.android.launcher3.widget.picker.WidgetsFullSheet;
@@ -210,12 +214,12 @@ import com.saggitt.omega.preferences.OmegaPreferences;
 import com.saggitt.omega.util.Config;
 import com.saggitt.omega.appusage.UsageDataCollector;
 import com.saggitt.omega.appusage.AppUsage;
-import com.saggitt.omega.appusage.AppUsageDao;
 import com.saggitt.omega.appusage.AppUsageDatabase;
 
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -236,8 +240,6 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
     
     public static final ActivityTracker<Launcher> ACTIVITY_TRACKER = new ActivityTracker<>();
 
-    private AppUsageDatabase appUsageDB;
-    private AppUsageDao appUsageDao;
 
     private UsageDataCollector usageDataCollector;
     private HashMap<String, String> appPackageToRandomStringMap = new HashMap<>();
@@ -309,6 +311,7 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
 
     private WidgetManagerHelper mAppWidgetManager;
     private LauncherAppWidgetHost mAppWidgetHost;
+    private WidgetUpdateScheduler mWidgetUpdateScheduler;
 
     private final int[] mTmpAddItemCellCoordinates = new int[2];
 
@@ -337,6 +340,8 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
     private Runnable mOnDeferredActivityLaunchCallback;
 
     private ViewOnDrawExecutor mPendingExecutor;
+    // Start of the current bind, 0 when not binding
+    private long mBindStartNanos;
 
     private LauncherModel mModel;
     private ModelWriter mModelWriter;
@@ -386,11 +391,7 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        appUsageDB = AppUsageDatabase.Companion.getDatabase(this);
-        appUsageDao = appUsageDB.appUsageDao();
         usageDataCollector = new UsageDataCollector(this);
-        prefs_uuid_map = getSharedPreferences(PREFS_UUID_MAP, MODE_PRIVATE);
-        loadAppUUIDMap();
         Object traceToken = TraceHelper.INSTANCE.beginSection(ON_CREATE_EVT,
             TraceHelper.FLAG_UI_EVENT);
         if (DEBUG_STRICT_MODE) {
@@ -471,6 +472,7 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
         mAppWidgetManager = new WidgetManagerHelper(this);
         mAppWidgetHost = createAppWidgetHost();
         mAppWidgetHost.startListening();
+        mWidgetUpdateScheduler = new WidgetUpdateScheduler(this);
 
         inflateRootView(R.layout.launcher);
         setupViews();
@@ -533,6 +535,22 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
             getWindow().setSoftInputMode(LayoutParams.SOFT_INPUT_ADJUST_NOTHING);
         }
     }
+    /**
+     * Returns the random id used instead of {@param packageName} in the usage data. The ids are
+     * loaded from disk on first use, so this must not be called on the main thread.
+     */
+    private synchronized String getAppUUID(String packageName) {
+        if (prefs_uuid_map == null) {
+            prefs_uuid_map = getSharedPreferences(PREFS_UUID_MAP, MODE_PRIVATE);
+            loadAppUUIDMap();
+        }
+        return appPackageToRandomStringMap.computeIfAbsent(packageName, k -> {
+            String uuid = UUID.randomUUID().toString();
+            saveAppUUIDMap(k, uuid);
+            return uuid;
+        });
+    }
+
     private void loadAppUUIDMap() {
         Map<String, ?> allEntries = prefs_uuid_map.getAll();
         for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
@@ -1065,6 +1083,7 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
             scheduleDeferredCheck();
         }
         addActivityFlags(ACTIVITY_STATE_TRANSITION_ACTIVE);
+        mWidgetUpdateScheduler.onVisibilityChanged();
 
         if (state.hasFlag(FLAG_CLOSE_POPUPS)) {
             AbstractFloatingView.closeAllOpenViews(this, !state.hasFlag(FLAG_NON_INTERACTIVE));
@@ -1517,6 +1536,10 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
         return mAppWidgetHost;
     }
 
+    public WidgetUpdateScheduler getWidgetUpdateScheduler() {
+        return mWidgetUpdateScheduler;
+    }
+
     protected LauncherAppWidgetHost createAppWidgetHost() {
         return new LauncherAppWidgetHost(this,
                 appWidgetId -> getWorkspace().removeWidget(appWidgetId));
@@ -2071,21 +2094,16 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
             return true;
         }
         String packageName = item.getTargetPackage();
-        String packageUUID = appPackageToRandomStringMap.computeIfAbsent(packageName, k -> {
-            String uuid = UUID.randomUUID().toString();
-            saveAppUUIDMap(k, uuid);
-            return uuid;
-        });
         Set<String> hiddenUsageApps = Utilities.getOmegaPrefs(this).getHiddenUsageApps();
         if (packageName != null && !hiddenUsageApps.contains(packageName)) {
             new Thread(() -> {
                 AppUsage appUsageData;
                 if(Utilities.getOmegaPrefs(this).getAnonymizePackageName().onGetValue()) {
-                    appUsageData = usageDataCollector.collectUsageData(packageUUID);
+                    appUsageData = usageDataCollector.collectUsageData(getAppUUID(packageName));
                 }else{
                     appUsageData = usageDataCollector.collectUsageData(packageName);
                 }
-                appUsageDao.insert(appUsageData);
+                AppUsageDatabase.Companion.getDatabase(this).appUsageDao().insert(appUsageData);
             }).start();
         }
         
@@ -2202,6 +2220,7 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
      */
     public void startBinding() {
         Object traceToken = TraceHelper.INSTANCE.beginSection("startBinding");
+        mBindStartNanos = SystemClock.elapsedRealtimeNanos();
         // Floating panels (except the full widget sheet) are associated with individual icons. If
         // we are starting a fresh bind, close all such panels as all the icons are about
         // to go away.
@@ -2687,6 +2706,10 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
                 mDeviceProfile.inv.numFolderColumns * mDeviceProfile.inv.numFolderRows);
         getViewCache().setCacheSize(R.layout.folder_page, 2);
 
+        if (mBindStartNanos != 0) {
+            PerfMetrics.histogram("launcher/bind").recordSince(mBindStartNanos);
+            mBindStartNanos = 0;
+        }
         TraceHelper.INSTANCE.endSection(traceToken);
     }
 
@@ -2830,6 +2853,7 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
                 + " mPendingActivityResult=" + mPendingActivityResult);
         writer.println(prefix + "\tmRotationHelper: " + mRotationHelper);
         writer.println(prefix + "\tmAppWidgetHost.isListening: " + mAppWidgetHost.isListening());
+        mWidgetUpdateScheduler.dump(prefix + "\t", writer);
 
         // Extra logging for general debugging
         mDragLayer.dump(prefix, writer);
@@ -2849,6 +2873,12 @@ public class Launcher extends StatefulActivity<LauncherState> implements Launche
             mLauncherCallbacks.dump(prefix, fd, writer, args);
         }
         mOverlayManager.dump(prefix, writer);
+        StartupInitializer.dump(prefix, writer);
+        PerfMetrics.dump(prefix, writer);
+        if (Arrays.asList(args).contains("--metrics-proto")) {
+            writer.println(prefix + "PerfMetrics proto: " + Base64.encodeToString(
+                    PerfMetrics.toProto().toByteArray(), Base64.NO_WRAP));
+        }
     }
 
     @Override
@@ -35,6 +35,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.android.launcher3.config.FeatureFlags;
+import com.android.launcher3.graphics.GridPreviewCache;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.logging.FileLog;
 import com.android.launcher3.model.AddWorkspaceItemsTask;
@@ -292,6 +293,11 @@ public class LauncherModel extends LauncherApps.Callback implements InstallSessi
             stopLoader();
             mModelLoaded = false;
         }
+        // Icons or theme might have changed, drop any previews rendered with the old values
+        GridPreviewCache previewCache = GridPreviewCache.INSTANCE.getNoCreate();
+        if (previewCache != null) {
+            previewCache.clear();
+        }
 
         // Start the loader if launcher is already running, otherwise the loader will run,
         // the next time launcher starts
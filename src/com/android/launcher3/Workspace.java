@@ -1002,6 +1002,7 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
+        mLauncher.getWidgetUpdateScheduler().onVisibilityChanged();
 
         // Update the page indicator progress.
         // Unlike from other states, we show the page indicator when transitioning from HINT_STATE.
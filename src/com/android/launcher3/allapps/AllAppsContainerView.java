@@ -100,6 +100,7 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
     private final ItemInfoMatcher mPersonalMatcher = ItemInfoMatcher.ofUser(Process.myUserHandle());
     private final ItemInfoMatcher mWorkMatcher = mPersonalMatcher.negate();
     private final AllAppsStore mAllAppsStore = new AllAppsStore();
+    private final AllAppsPrewarmer mPrewarmer = new AllAppsPrewarmer(this);
 
     private final RecyclerView.OnScrollListener mScrollListener =
             new RecyclerView.OnScrollListener() {
@@ -486,8 +487,16 @@ public class AllAppsContainerView extends SpringRelativeLayout implements DragSo
         return super.dispatchApplyWindowInsets(insets);
     }
 
+    /**
+     * Prepares the first page of apps, for when all apps is about to be shown
+     */
+    public void prewarm() {
+        mPrewarmer.prewarm();
+    }
+
     @Override
     protected void dispatchDraw(Canvas canvas) {
+        mPrewarmer.onDraw();
         super.dispatchDraw(canvas);
 
         if (mNavBarScrimHeight > 0) {
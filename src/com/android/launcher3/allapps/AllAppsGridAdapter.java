@@ -47,6 +47,7 @@ import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.folder.FolderIcon;
+import com.android.launcher3.icons.BitmapInfo;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.saggitt.omega.data.PeopleInfo;
@@ -58,6 +59,7 @@ import com.saggitt.omega.search.WebSearchProvider;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * The grid view adapter of all the apps.
@@ -144,6 +146,12 @@ public class AllAppsGridAdapter extends
         public PeopleInfo peopleInfo;
         public String sectionHeader;
 
+        // Bound state of the app when this item was created, as AppInfo is updated in place
+        private BitmapInfo mBoundBitmap;
+        private CharSequence mBoundTitle;
+        private int mBoundStatusFlags;
+        private int mBoundProgressLevel;
+
         /**
          * Factory method for AppIcon AdapterItem
          */
@@ -155,6 +163,10 @@ public class AllAppsGridAdapter extends
             item.sectionName = sectionName;
             item.appInfo = appInfo;
             item.appIndex = appIndex;
+            item.mBoundBitmap = appInfo.bitmap;
+            item.mBoundTitle = appInfo.title;
+            item.mBoundStatusFlags = appInfo.runtimeStatusFlags;
+            item.mBoundProgressLevel = appInfo.getProgressLevel();
             return item;
         }
 
@@ -226,6 +238,60 @@ public class AllAppsGridAdapter extends
         protected boolean isCountedForAccessibility() {
             return viewType == VIEW_TYPE_ICON || viewType == VIEW_TYPE_SEARCH_MARKET;
         }
+
+        /**
+         * Returns true if this item represents the same entity as {@param other}, used to compute
+         * the changes between two lists of items
+         */
+        public boolean isSameAs(AdapterItem other) {
+            if (viewType != other.viewType) {
+                return false;
+            }
+            switch (viewType) {
+                case VIEW_TYPE_ICON:
+                    return appInfo != null && other.appInfo != null
+                            && Objects.equals(appInfo.componentName, other.appInfo.componentName)
+                            && Objects.equals(appInfo.user, other.appInfo.user);
+                case VIEW_TYPE_FOLDER:
+                    return appIndex == other.appIndex;
+                case VIEW_TYPE_SEARCH_SUGGESTION:
+                    return Objects.equals(suggestion, other.suggestion);
+                case VIEW_TYPE_SECTION_HEADER:
+                    return Objects.equals(sectionHeader, other.sectionHeader);
+                case VIEW_TYPE_SECTION_CONTACT:
+                    return peopleInfo != null && other.peopleInfo != null
+                            && peopleInfo.getContactId().equals(other.peopleInfo.getContactId());
+                case VIEW_TYPE_EMPTY_SEARCH:
+                case VIEW_TYPE_SEARCH_MARKET:
+                case VIEW_TYPE_ALL_APPS_DIVIDER:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Returns true if a view bound to {@param other} can be kept for this item, assuming
+         * {@link #isSameAs} is true
+         */
+        public boolean isContentSame(AdapterItem other) {
+            switch (viewType) {
+                case VIEW_TYPE_ICON:
+                    return appInfo == other.appInfo
+                            && decorationInfo == other.decorationInfo
+                            && mBoundBitmap == other.mBoundBitmap
+                            && Objects.equals(mBoundTitle, other.mBoundTitle)
+                            && mBoundStatusFlags == other.mBoundStatusFlags
+                            && mBoundProgressLevel == other.mBoundProgressLevel;
+                case VIEW_TYPE_FOLDER:
+                    // The folder contents are not tracked here
+                    return false;
+                case VIEW_TYPE_SECTION_CONTACT:
+                    return Objects.equals(peopleInfo, other.peopleInfo);
+                default:
+                    return true;
+            }
+        }
     }
 
     /**
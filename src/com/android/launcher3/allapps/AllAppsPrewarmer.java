@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import android.os.SystemClock;
+import android.view.View;
+
+import com.android.launcher3.BubbleTextView;
+import com.android.launcher3.LauncherAppState;
+import com.android.launcher3.icons.cache.HandlerRunnable;
+import com.android.launcher3.logging.PerfMetrics;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
+
+import java.util.List;
+
+/**
+ * Prepares the first page of all apps as soon as a swipe toward it starts: the icon views are
+ * inflated ahead of the first layout and the low-res icons are upgraded in a single background
+ * task, so that the first frames of the transition do not show low-res icons.
+ */
+class AllAppsPrewarmer {
+
+    private static final PerfMetrics.Histogram PREWARM_LATENCY =
+            PerfMetrics.histogram("allapps/prewarm");
+    private static final PerfMetrics.Counter PREWARM_HIT =
+            PerfMetrics.counter("allapps/prewarm_hit");
+    private static final PerfMetrics.Counter PREWARM_MISS =
+            PerfMetrics.counter("allapps/prewarm_miss");
+
+    private final AllAppsContainerView mAppsView;
+
+    private HandlerRunnable<List<ItemInfoWithIcon>> mIconRequest;
+    private long mStartNanos;
+    // Whether a prewarm was started and all apps was not drawn since
+    private boolean mWaitingForDraw;
+
+    AllAppsPrewarmer(AllAppsContainerView appsView) {
+        mAppsView = appsView;
+    }
+
+    /**
+     * Starts preparing the first page, unless it is already being prepared
+     */
+    void prewarm() {
+        if (mIconRequest != null) {
+            return;
+        }
+        AllAppsRecyclerView rv = mAppsView.getActiveRecyclerView();
+        if (rv == null || rv.getApps() == null) {
+            return;
+        }
+        mWaitingForDraw = true;
+        mStartNanos = SystemClock.elapsedRealtimeNanos();
+
+        List<ItemInfoWithIcon> lowResApps = rv.prewarmFirstPage();
+        if (lowResApps.isEmpty()) {
+            PREWARM_LATENCY.recordSince(mStartNanos);
+            return;
+        }
+        mIconRequest = LauncherAppState.getInstance(mAppsView.getContext()).getIconCache()
+                .updateIconsInBackground(lowResApps, apps -> {
+                    mIconRequest = null;
+                    PREWARM_LATENCY.recordSince(mStartNanos);
+                    reapplyIcons(rv, apps);
+                });
+    }
+
+    /**
+     * Called before all apps is drawn, to record whether the prewarm was done in time
+     */
+    void onDraw() {
+        if (!mWaitingForDraw) {
+            return;
+        }
+        mWaitingForDraw = false;
+        if (mIconRequest == null) {
+            PREWARM_HIT.increment();
+        } else {
+            PREWARM_MISS.increment();
+        }
+    }
+
+    private static void reapplyIcons(AllAppsRecyclerView rv, List<ItemInfoWithIcon> apps) {
+        // Views bound before the icons were loaded still show the low-res icons
+        for (int i = rv.getChildCount() - 1; i >= 0; i--) {
+            View child = rv.getChildAt(i);
+            if (child instanceof BubbleTextView && apps.contains(child.getTag())) {
+                ((BubbleTextView) child).reapplyItemInfo((ItemInfoWithIcon) child.getTag());
+            }
+        }
+    }
+}
@@ -42,6 +42,8 @@ import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.R;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.logging.StatsLogManager;
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.views.ActivityContext;
 import com.android.launcher3.views.RecyclerViewFastScroller;
 
@@ -125,6 +127,38 @@ public class AllAppsRecyclerView extends BaseRecyclerView {
         mViewHeights.put(AllAppsGridAdapter.VIEW_TYPE_FOLDER, grid.allAppsCellHeightPx);
     }
 
+    /**
+     * Inflates the icon views needed for the first page into the recycled view pool, unless they
+     * are already attached or pooled, and returns the apps of the first page which only have a
+     * low-res icon.
+     */
+    public List<ItemInfoWithIcon> prewarmFirstPage() {
+        DeviceProfile grid = BaseDraggingActivity.fromContext(getContext()).getDeviceProfile();
+        int iconCount = mNumAppsPerRow
+                * (int) Math.ceil((float) grid.availableHeightPx / grid.allAppsCellHeightPx);
+
+        RecyclerView.RecycledViewPool pool = getRecycledViewPool();
+        int missingViews = iconCount - getChildCount()
+                - pool.getRecycledViewCount(AllAppsGridAdapter.VIEW_TYPE_ICON);
+        for (int i = 0; i < missingViews; i++) {
+            pool.putRecycledView(
+                    getAdapter().createViewHolder(this, AllAppsGridAdapter.VIEW_TYPE_ICON));
+        }
+
+        List<ItemInfoWithIcon> lowResApps = new ArrayList<>();
+        List<AllAppsGridAdapter.AdapterItem> items = mApps.getAdapterItems();
+        for (int i = 0, icons = 0; i < items.size() && icons < iconCount; i++) {
+            AppInfo info = items.get(i).appInfo;
+            if (info != null) {
+                icons++;
+                if (info.usingLowResIcon()) {
+                    lowResApps.add(info);
+                }
+            }
+        }
+        return lowResApps;
+    }
+
 
     @Override
     public void onDraw(Canvas c) {
@@ -99,6 +99,13 @@ public class AllAppsStore {
         return index < 0 ? null : mApps[index];
     }
 
+    /**
+     * Notifies the listeners again with the same apps, like after their order changed
+     */
+    public void notifyAppsUpdated() {
+        notifyUpdate();
+    }
+
     public void enableDeferUpdates(int flag) {
         mDeferUpdatesFlags |= flag;
     }
@@ -15,14 +15,14 @@
  */
 package com.android.launcher3.allapps;
 
-import static com.saggitt.omega.util.Config.SORT_AZ;
-import static com.saggitt.omega.util.Config.SORT_BY_COLOR;
-import static com.saggitt.omega.util.Config.SORT_MOST_USED;
-import static com.saggitt.omega.util.Config.SORT_ZA;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import android.content.Context;
 import android.graphics.Color;
 
+import androidx.recyclerview.widget.DiffUtil;
+
 import com.android.launcher3.BaseDraggingActivity;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherModel;
@@ -35,16 +35,12 @@ import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.LabelComparator;
+import com.android.launcher3.util.TraceHelper;
 import com.saggitt.omega.OmegaLauncher;
-import com.saggitt.omega.allapps.AppColorComparator;
-import com.saggitt.omega.allapps.AppUsageComparator;
-import com.saggitt.omega.data.AppTracker;
-import com.saggitt.omega.data.AppTrackerRepository;
 import com.saggitt.omega.groups.DrawerFolderInfo;
 import com.saggitt.omega.preferences.OmegaPreferences;
 import com.saggitt.omega.util.OmegaUtilsKt;
 
-import java.text.Collator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -76,28 +72,23 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     private final List<AppInfo> mApps = new ArrayList<>();
     private final AllAppsStore mAllAppsStore;
 
-    // The number of results in current adapter
-    private int mAccessibilityResultsCount = 0;
-    // The current set of adapter items
-    private final ArrayList<AdapterItem> mAdapterItems = new ArrayList<>();
-    // The set of sections that we allow fast-scrolling to (includes non-merged sections)
-    private final List<FastScrollSectionInfo> mFastScrollerSections = new ArrayList<>();
+    // The state currently shown by the adapter
+    private AdapterState mState = new AdapterState();
+    // The most recently computed state, differs from mState while its changes are being computed
+    private AdapterState mLatestState = mState;
+    // Incremented for every new state, to drop changes computed for outdated states
+    private int mStateGeneration;
 
     // The of ordered component names as a result of a search query
     private ArrayList<AdapterItem> mSearchResults;
     private AllAppsGridAdapter mAdapter;
-    private final AppInfoComparator mAppNameComparator;
-    private final AppColorComparator mAppColorComparator;
     private final int mNumAppsPerRow;
-    private int mNumAppRowsInAdapter;
     private ItemInfoMatcher mItemFilter;
 
     public AlphabeticalAppsList(Context context, AllAppsStore appsStore,
                                 WorkAdapterProvider adapterProvider) {
         mAllAppsStore = appsStore;
         mLauncher = BaseDraggingActivity.fromContext(context);
-        mAppNameComparator = new AppInfoComparator(context);
-        mAppColorComparator = new AppColorComparator(context);
         mWorkAdapterProvider = adapterProvider;
         mNumAppsPerRow = mLauncher.getDeviceProfile().inv.numColumns;
         mAllAppsStore.addUpdateListener(this);
@@ -154,8 +145,10 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     }
 
     public void updateItemFilter(ItemInfoMatcher itemFilter) {
+        Object traceToken = TraceHelper.INSTANCE.beginSection("AllAppsList.updateItemFilter");
         this.mItemFilter = itemFilter;
         onAppsUpdated();
+        TraceHelper.INSTANCE.endSection(traceToken);
     }
 
     /**
@@ -172,62 +165,41 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
         return mApps;
     }
 
-    private void sortApps(int sortType) {
-        switch (sortType) {
-            case SORT_ZA:
-                mApps.sort((p2, p1) -> Collator
-                        .getInstance()
-                        .compare(p1.title, p2.title));
-                break;
-
-            case SORT_MOST_USED:
-                AppTrackerRepository repository = AppTrackerRepository.Companion.getINSTANCE().get(mLauncher);
-                List<AppTracker> appsCounter = repository.getAppsCount();
-                AppUsageComparator mostUsedComparator = new AppUsageComparator(appsCounter);
-                mApps.sort(mostUsedComparator);
-                break;
-
-            case SORT_BY_COLOR:
-                mApps.sort(mAppColorComparator);
-                break;
-            case SORT_AZ:
-            default:
-                mApps.sort(mAppNameComparator);
-                break;
-        }
-    }
-
     /**
      * Returns fast scroller sections of all the current filtered applications.
      */
     public List<FastScrollSectionInfo> getFastScrollerSections() {
-        return mFastScrollerSections;
+        return mState.sections;
     }
 
     /**
      * Returns the current filtered list of applications broken down into their sections.
      */
     public List<AdapterItem> getAdapterItems() {
-        return mAdapterItems;
+        return mState.items;
     }
 
     /**
      * Returns the child adapter item with IME launch focus.
      */
     public AdapterItem getFocusedChild() {
-        if (mAdapterItems.size() == 0 || getFocusedChildIndex() == -1) {
+        // Use the latest items, so that launching works before the adapter has caught up
+        List<AdapterItem> items = mLatestState.items;
+        int index = getFocusedChildIndex();
+        if (items.size() == 0 || index == -1) {
             return null;
         }
-        return mAdapterItems.get(getFocusedChildIndex());
+        return items.get(index);
     }
 
     /**
      * Returns the index of the child with IME launch focus.
      */
     public int getFocusedChildIndex() {
-        for (AdapterItem item : mAdapterItems) {
-            if (item.isCountedForAccessibility()) {
-                return mAdapterItems.indexOf(item);
+        List<AdapterItem> items = mLatestState.items;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).isCountedForAccessibility()) {
+                return i;
             }
         }
         return -1;
@@ -237,14 +209,14 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
      * Returns the number of rows of applications
      */
     public int getNumAppRows() {
-        return mNumAppRowsInAdapter;
+        return mState.numAppRows;
     }
 
     /**
      * Returns the number of applications in this list.
      */
     public int getNumFilteredApps() {
-        return mAccessibilityResultsCount;
+        return mState.accessibilityResultsCount;
     }
 
     /**
@@ -258,8 +230,16 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
      * Returns whether there are no filtered results.
      */
     public boolean hasNoFilteredResults() {
+        return hasNoFilteredResults(mLatestState.accessibilityResultsCount);
+    }
+
+    /**
+     * Returns whether there are no filtered results, given the number of results of the state
+     * being built.
+     */
+    private boolean hasNoFilteredResults(int resultsCount) {
         return (mSearchResults != null)
-                && mAccessibilityResultsCount == 0
+                && resultsCount == 0
                 && (mSearchSuggestions != null)
                 && mSearchSuggestions.isEmpty();
     }
@@ -286,7 +266,8 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
     public boolean setSearchSuggestions(List<String> suggestions) {
         if (mSearchSuggestions != suggestions) {
             mSearchSuggestions = suggestions;
-            onAppsUpdated();
+            // Suggestions only change the search segment, the app list doesn't need to be sorted
+            updateAdapterItems();
             return true;
         }
         return false;
@@ -294,46 +275,43 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
 
     public boolean appendSearchResults(ArrayList<AdapterItem> results) {
         if (mSearchResults != null && results != null && results.size() > 0) {
-            updateSearchAdapterItems(results, mSearchResults.size());
-            refreshRecyclerView();
+            AdapterState state = new AdapterState(mLatestState);
+            updateSearchAdapterItems(state, results, mSearchResults.size());
+            publishState(state);
             return true;
         }
         return false;
     }
 
-    void updateSearchAdapterItems(ArrayList<AdapterItem> list, int offset) {
+    void updateSearchAdapterItems(AdapterState state, ArrayList<AdapterItem> list, int offset) {
         for (int i = 0; i < list.size(); i++) {
             AdapterItem adapterItem = list.get(i);
             adapterItem.position = offset + i;
-            mAdapterItems.add(adapterItem);
+            state.items.add(adapterItem);
 
             if (adapterItem.isCountedForAccessibility()) {
-                mAccessibilityResultsCount++;
+                state.accessibilityResultsCount++;
             }
         }
     }
 
-    private void refillAdapterItems() {
+    private AdapterState createAdapterState() {
+        AdapterState state = new AdapterState();
         String lastSectionName = null;
         FastScrollSectionInfo lastFastScrollerSectionInfo = null;
         int position = 0;
         int appIndex = 0;
         int folderIndex = 0;
 
-        // Prepare to update the list of sections, filtered apps, etc.
-        mAccessibilityResultsCount = 0;
-        mFastScrollerSections.clear();
-        mAdapterItems.clear();
-
         // Recreate the filtered and sectioned apps (for convenience for the grid layout) from the
         // ordered set of sections
 
         if (!hasFilter()) {
-            mAccessibilityResultsCount = mApps.size();
+            state.accessibilityResultsCount = mApps.size();
             if (mWorkAdapterProvider != null) {
-                position += mWorkAdapterProvider.addWorkItems(mAdapterItems);
+                position += mWorkAdapterProvider.addWorkItems(state.items);
                 if (!mWorkAdapterProvider.shouldShowWorkApps()) {
-                    return;
+                    return state;
                 }
             }
 
@@ -344,7 +322,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                 if (!sectionName.equals(lastSectionName)) {
                     lastSectionName = sectionName;
                     lastFastScrollerSectionInfo = new FastScrollSectionInfo(sectionName, Color.WHITE);
-                    mFastScrollerSections.add(lastFastScrollerSectionInfo);
+                    state.sections.add(lastFastScrollerSectionInfo);
                 }
 
                 info.setAppsStore(mAllAppsStore);
@@ -354,7 +332,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                 if (lastFastScrollerSectionInfo.fastScrollToItem == null) {
                     lastFastScrollerSectionInfo.fastScrollToItem = appItem;
                 }
-                mAdapterItems.add(appItem);
+                state.items.add(appItem);
             }
 
             Set<ComponentKey> folderFilters = getFolderFilteredApps();
@@ -370,7 +348,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                 if (!sectionName.equals(lastSectionName)) {
                     lastSectionName = sectionName;
                     lastFastScrollerSectionInfo = new FastScrollSectionInfo(sectionName, Color.WHITE);
-                    mFastScrollerSections.add(lastFastScrollerSectionInfo);
+                    state.sections.add(lastFastScrollerSectionInfo);
                 }
 
                 // Create an app item
@@ -380,35 +358,35 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                     lastFastScrollerSectionInfo.fastScrollToItem = appItem;
                 }
 
-                mAdapterItems.add(appItem);
+                state.items.add(appItem);
             }
         }
 
         if (hasFilter()) {
             if (mSearchResults.size() > 0 && prefs.getSearchGlobal().onGetValue())
-                mAdapterItems.add(AdapterItem.asSectionHeader(position++, mLauncher.getString(R.string.section_apps)));
-            updateSearchAdapterItems(mSearchResults, 0);
+                state.items.add(AdapterItem.asSectionHeader(position++, mLauncher.getString(R.string.section_apps)));
+            updateSearchAdapterItems(state, mSearchResults, 0);
 
             if (mSearchResults.size() > 0 && prefs.getSearchGlobal().onGetValue())
-                mAdapterItems.add(AdapterItem.asAllAppsDivider(position++));
+                state.items.add(AdapterItem.asAllAppsDivider(position++));
 
             if (hasSuggestions()) {
-                mAdapterItems.add(AdapterItem.asSectionHeader(position++, mLauncher.getString(R.string.section_web)));
+                state.items.add(AdapterItem.asSectionHeader(position++, mLauncher.getString(R.string.section_web)));
                 for (String suggestion : mSearchSuggestions) {
-                    mAdapterItems.add(AdapterItem.asSearchSuggestion(position++, suggestion));
+                    state.items.add(AdapterItem.asSearchSuggestion(position++, suggestion));
                 }
 
-                mAdapterItems.add(AdapterItem.asAllAppsDivider(position++));
+                state.items.add(AdapterItem.asAllAppsDivider(position++));
             }
 
             if (!FeatureFlags.ENABLE_DEVICE_SEARCH.get()) {
                 // Append the search market item
-                if (hasNoFilteredResults()) {
-                    mAdapterItems.add(AdapterItem.asEmptySearch(position++));
+                if (hasNoFilteredResults(state.accessibilityResultsCount)) {
+                    state.items.add(AdapterItem.asEmptySearch(position++));
                 } else {
-                    mAdapterItems.add(AdapterItem.asAllAppsDivider(position++));
+                    state.items.add(AdapterItem.asAllAppsDivider(position++));
                 }
-                mAdapterItems.add(AdapterItem.asMarketSearch(position++));
+                state.items.add(AdapterItem.asMarketSearch(position++));
 
             }
         }
@@ -418,7 +396,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
             int numAppsInSection = 0;
             int numAppsInRow = 0;
             int rowIndex = -1;
-            for (AdapterItem item : mAdapterItems) {
+            for (AdapterItem item : state.items) {
                 item.rowIndex = 0;
                 if (AllAppsGridAdapter.isDividerViewType(item.viewType)) {
                     numAppsInSection = 0;
@@ -433,13 +411,13 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                     numAppsInRow++;
                 }
             }
-            mNumAppRowsInAdapter = rowIndex + 1;
+            state.numAppRows = rowIndex + 1;
 
             // Pre-calculate all the fast scroller fractions
             switch (mFastScrollDistributionMode) {
                 case FAST_SCROLL_FRACTION_DISTRIBUTE_BY_ROWS_FRACTION:
-                    float rowFraction = 1f / mNumAppRowsInAdapter;
-                    for (FastScrollSectionInfo info : mFastScrollerSections) {
+                    float rowFraction = 1f / state.numAppRows;
+                    for (FastScrollSectionInfo info : state.sections) {
                         AdapterItem item = info.fastScrollToItem;
                         if (!AllAppsGridAdapter.isIconViewType(item.viewType)) {
                             info.touchFraction = 0f;
@@ -451,9 +429,9 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                     }
                     break;
                 case FAST_SCROLL_FRACTION_DISTRIBUTE_BY_NUM_SECTIONS:
-                    float perSectionTouchFraction = 1f / mFastScrollerSections.size();
+                    float perSectionTouchFraction = 1f / state.sections.size();
                     float cumulativeTouchFraction = 0f;
-                    for (FastScrollSectionInfo info : mFastScrollerSections) {
+                    for (FastScrollSectionInfo info : state.sections) {
                         AdapterItem item = info.fastScrollToItem;
                         if (!AllAppsGridAdapter.isIconViewType(item.viewType)) {
                             info.touchFraction = 0f;
@@ -465,6 +443,7 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
                     break;
             }
         }
+        return state;
     }
 
     private List<AppInfo> getFiltersAppInfos() {
@@ -517,16 +496,103 @@ public class AlphabeticalAppsList implements AllAppsStore.OnUpdateListener {
      * mCachedSectionNames to have been calculated for the set of all apps in mApps.
      */
     public void updateAdapterItems() {
-        refillAdapterItems();
-        refreshRecyclerView();
+        publishState(createAdapterState());
+    }
+
+    /**
+     * Shows {@param state} in the adapter. The changes to the current items are computed in the
+     * background and dispatched as fine grained notifications, so that only the affected views
+     * get rebound. Changes computed for a state which has been replaced in the meantime are
+     * dropped.
+     */
+    private void publishState(AdapterState state) {
+        mLatestState = state;
+        int generation = ++mStateGeneration;
+        if (mAdapter == null || !mAdapter.hasObservers() || mState.items.isEmpty()) {
+            applyState(state, null);
+            return;
+        }
+
+        ArrayList<AdapterItem> oldItems = new ArrayList<>(mState.items);
+        ArrayList<AdapterItem> newItems = new ArrayList<>(state.items);
+        UI_HELPER_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new AdapterItemDiffCallback(oldItems, newItems), false);
+            MAIN_EXECUTOR.execute(() -> {
+                if (generation != mStateGeneration) {
+                    return;
+                }
+                // The items might have been changed directly, eg. by WorkEduCard
+                applyState(state, mState.items.size() == oldItems.size() ? result : null);
+            });
+        });
     }
 
-    private void refreshRecyclerView() {
-        if (mAdapter != null) {
+    private void applyState(AdapterState state, DiffUtil.DiffResult diff) {
+        mState = state;
+        if (mAdapter == null) {
+            return;
+        }
+        if (diff != null) {
+            diff.dispatchUpdatesTo(mAdapter);
+        } else {
             mAdapter.notifyDataSetChanged();
         }
     }
 
+    /**
+     * A set of adapter items with the sections and rows derived from them
+     */
+    private static class AdapterState {
+        // The adapter items
+        final ArrayList<AdapterItem> items = new ArrayList<>();
+        // The set of sections that we allow fast-scrolling to (includes non-merged sections)
+        final List<FastScrollSectionInfo> sections = new ArrayList<>();
+        // The number of results in the adapter
+        int accessibilityResultsCount;
+        int numAppRows;
+
+        AdapterState() { }
+
+        AdapterState(AdapterState other) {
+            items.addAll(other.items);
+            sections.addAll(other.sections);
+            accessibilityResultsCount = other.accessibilityResultsCount;
+            numAppRows = other.numAppRows;
+        }
+    }
+
+    private static class AdapterItemDiffCallback extends DiffUtil.Callback {
+
+        private final List<AdapterItem> mOldItems;
+        private final List<AdapterItem> mNewItems;
+
+        AdapterItemDiffCallback(List<AdapterItem> oldItems, List<AdapterItem> newItems) {
+            mOldItems = oldItems;
+            mNewItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).isSameAs(mNewItems.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).isContentSame(mNewItems.get(newItemPosition));
+        }
+    }
+
     /**
      * Info about a fast scroller section, depending if sections are merged, the fast scroller
      * sections will not be the same set as the section headers.
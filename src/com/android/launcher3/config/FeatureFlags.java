@@ -260,6 +260,10 @@ public final class FeatureFlags {
             "WIDGETS_IN_LAUNCHER_PREVIEW", true,
             "Enables widgets in Launcher preview for the Wallpaper app.");
 
+    public static final BooleanFlag COUNT_MAIN_THREAD_BINDER_CALLS = new DeviceFlag(
+            "COUNT_MAIN_THREAD_BINDER_CALLS", false,
+            "Counts binder calls made on the main thread in the performance metrics.");
+
     public static void initialize(Context context) {
         synchronized (sDebugFlags) {
             for (DebugFlag flag : sDebugFlags) {
@@ -697,6 +697,9 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
         updateTextViewFocus();
 
         mIsOpen = true;
+        if (FeatureFlags.FOLDER_NAME_SUGGEST.get() && mInfo.suggestedFolderNames == null) {
+            FolderNameProvider.ensureSuggestions(getContext(), mInfo);
+        }
         if (mFolderIcon.isCustomIcon) {
             mFolderIcon.mFolderName.setIconVisible(false);
         }
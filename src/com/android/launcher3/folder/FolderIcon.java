@@ -129,6 +129,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
     FolderGridOrganizer mPreviewVerifier;
     ClippedFolderIconLayoutRule mPreviewLayoutRule;
     private PreviewItemManager mPreviewItemManager;
+    private PreviewRenderCache mPreviewCache;
     private PreviewItemDrawingParams mTmpParams = new PreviewItemDrawingParams(0, 0, 0);
     private List<WorkspaceItemInfo> mCurrentPreviewItems = new ArrayList<>();
 
@@ -184,6 +185,7 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         mLongPressHelper = new CheckLongPressHelper(this);
         mPreviewLayoutRule = new ClippedFolderIconLayoutRule();
         mPreviewItemManager = new PreviewItemManager(this);
+        mPreviewCache = new PreviewRenderCache(this);
         mDotParams = new DotRenderer.DrawParams();
     }
 
@@ -635,29 +637,59 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         return mPreviewItemManager;
     }
 
+    /**
+     * Invalidates the icon after a change of the preview, which also needs to be rendered again
+     */
+    void invalidatePreview() {
+        mPreviewCache.invalidate();
+        invalidate();
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        // Can be called by the parent constructor before the preview is initialized
+        if (mPreviewCache != null && mPreviewItemManager.verifyDrawable(drawable)) {
+            mPreviewCache.invalidate();
+        }
+        super.invalidateDrawable(drawable);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mPreviewCache.recycle();
+    }
+
     @Override
     protected void dispatchDraw(Canvas canvas) {
         super.dispatchDraw(canvas);
 
-        if (mBackgroundIsVisible) {
-            mPreviewItemManager.recomputePreviewDrawingParams();
+        if (!mBackgroundIsVisible || isCustomIcon) return;
+
+        mPreviewItemManager.recomputePreviewDrawingParams();
 
-            if (!mBackground.drawingDelegated() && !isCustomIcon) {
+        if (mCurrentPreviewItems.isEmpty() && !mAnimating) {
+            if (!mBackground.drawingDelegated()) {
                 mBackground.drawBackground(canvas);
             }
-        } else if (!isCustomIcon || mInfo.container == LauncherSettings.Favorites.CONTAINER_HOTSEAT)
             return;
+        }
 
-        if (isCustomIcon) return;
+        // The preview is only drawn live while any part of it is animating
+        boolean isStatic = !mAnimating && !mBackground.drawingDelegated()
+                && !mBackground.isAnimating() && mPreviewItemManager.isStatic();
+        if (!isStatic || !mPreviewCache.draw(canvas, this::drawPreview)) {
+            drawPreview(canvas);
+        }
 
-        mPreviewItemManager.recomputePreviewDrawingParams();
+        drawDot(canvas);
+    }
 
+    private void drawPreview(Canvas canvas) {
         if (!mBackground.drawingDelegated()) {
             mBackground.drawBackground(canvas);
         }
 
-        if (mCurrentPreviewItems.isEmpty() && !mAnimating) return;
-
         final int saveCount = canvas.save();
         canvas.clipPath(mBackground.getClipPath());
         mPreviewItemManager.draw(canvas);
@@ -666,8 +698,6 @@ public class FolderIcon extends FrameLayout implements FolderListener, IconLabel
         if (!mBackground.drawingDelegated()) {
             mBackground.drawBackgroundStroke(canvas);
         }
-
-        drawDot(canvas);
     }
 
     public void drawDot(Canvas canvas) {
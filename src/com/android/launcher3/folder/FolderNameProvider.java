@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.folder;
 
+import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+
 import android.content.ComponentName;
 import android.content.Context;
 import android.os.Process;
@@ -31,12 +33,16 @@ import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.FolderInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.util.ResourceBasedOverride;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -55,8 +61,16 @@ public class FolderNameProvider implements ResourceBasedOverride {
      * name edit box can also be used to provide suggestion.
      */
     public static final int SUGGEST_MAX = 4;
+
+    /**
+     * Number of folders handled by each task of {@link #computeSuggestions}
+     */
+    private static final int SUGGEST_BATCH_SIZE = 8;
+
     protected IntSparseArrayMap<FolderInfo> mFolderInfos;
     protected List<AppInfo> mAppInfos;
+    // Index of mAppInfos, built once when the apps are loaded
+    private Map<PackageUserKey, AppInfo> mAppsByPackage = Collections.emptyMap();
 
     /**
      * Retrieve instance of this object that can be overridden in runtime based on the build
@@ -89,6 +103,68 @@ public class FolderNameProvider implements ResourceBasedOverride {
     private void load(List<AppInfo> appInfos, IntSparseArrayMap<FolderInfo> folderInfos) {
         mAppInfos = appInfos;
         mFolderInfos = folderInfos;
+        mAppsByPackage = indexByPackage(appInfos);
+    }
+
+    private static Map<PackageUserKey, AppInfo> indexByPackage(List<AppInfo> appInfos) {
+        Map<PackageUserKey, AppInfo> index = new HashMap<>(appInfos.size());
+        for (AppInfo info : appInfos) {
+            if (info.componentName != null) {
+                index.putIfAbsent(
+                        new PackageUserKey(info.componentName.getPackageName(), info.user), info);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Computes the suggested names of all {@param folders} which have none yet. The folders are
+     * handled in small batches on the model thread, so that the work neither delays the loader
+     * nor other model tasks, and the model lock is not held while computing.
+     */
+    public void computeSuggestions(Context context, List<FolderInfo> folders) {
+        MODEL_EXECUTOR.post(new Runnable() {
+            private int mNext = 0;
+
+            @Override
+            public void run() {
+                int end = Math.min(mNext + SUGGEST_BATCH_SIZE, folders.size());
+                for (; mNext < end; mNext++) {
+                    FolderInfo info = folders.get(mNext);
+                    if (info.suggestedFolderNames == null) {
+                        FolderNameInfos nameInfos = new FolderNameInfos();
+                        getSuggestedFolderName(context, new ArrayList<>(info.contents), nameInfos);
+                        info.suggestedFolderNames = nameInfos;
+                    }
+                }
+                if (mNext < folders.size()) {
+                    MODEL_EXECUTOR.post(this);
+                }
+            }
+        });
+    }
+
+    /**
+     * Computes the suggested names of {@param info} in the background, unless it already has
+     * them. Used for folders opened before {@link #computeSuggestions} got to them.
+     */
+    public static void ensureSuggestions(Context context, FolderInfo info) {
+        LauncherAppState.getInstance(context).getModel().enqueueModelUpdateTask(
+                new BaseModelUpdateTask() {
+                    @Override
+                    public void execute(LauncherAppState app, BgDataModel dataModel,
+                            AllAppsList apps) {
+                        if (info.suggestedFolderNames != null) {
+                            return;
+                        }
+                        FolderNameProvider fnp = newInstance(app.getContext(), apps.data,
+                                dataModel.folders);
+                        FolderNameInfos nameInfos = new FolderNameInfos();
+                        fnp.getSuggestedFolderName(app.getContext(),
+                                new ArrayList<>(info.contents), nameInfos);
+                        info.suggestedFolderNames = nameInfos;
+                    }
+                });
     }
 
     /**
@@ -119,7 +195,8 @@ public class FolderNameProvider implements ResourceBasedOverride {
                 .collect(Collectors.toSet());
 
         if (packageNames.size() == 1) {
-            Optional<AppInfo> info = getAppInfoByPackageName(packageNames.iterator().next());
+            Optional<AppInfo> info = getAppInfoByPackageName(packageNames.iterator().next(),
+                    users);
             // Place it as first viable suggestion and shift everything else
             info.ifPresent(i -> setAsFirstSuggestion(nameInfos, i.title.toString()));
         }
@@ -128,14 +205,15 @@ public class FolderNameProvider implements ResourceBasedOverride {
         }
     }
 
-    private Optional<AppInfo> getAppInfoByPackageName(String packageName) {
-        if (mAppInfos == null || mAppInfos.isEmpty()) {
-            return Optional.empty();
+    private Optional<AppInfo> getAppInfoByPackageName(String packageName,
+            Set<UserHandle> users) {
+        for (UserHandle user : users) {
+            AppInfo info = mAppsByPackage.get(new PackageUserKey(packageName, user));
+            if (info != null) {
+                return Optional.of(info);
+            }
         }
-        return mAppInfos.stream()
-                .filter(info -> info.componentName != null)
-                .filter(info -> info.componentName.getPackageName().equals(packageName))
-                .findAny();
+        return Optional.empty();
     }
 
     private void setAsFirstSuggestion(FolderNameInfos nameInfos, CharSequence label) {
@@ -174,8 +252,7 @@ public class FolderNameProvider implements ResourceBasedOverride {
     private class FolderNameWorker extends BaseModelUpdateTask {
         @Override
         public void execute(LauncherAppState app, BgDataModel dataModel, AllAppsList apps) {
-            mFolderInfos = dataModel.folders.clone();
-            mAppInfos = Arrays.asList(apps.copyData());
+            load(Arrays.asList(apps.copyData()), dataModel.folders.clone());
         }
     }
 
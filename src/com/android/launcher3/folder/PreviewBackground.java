@@ -394,6 +394,13 @@ public class PreviewBackground extends CellLayout.DelegatedCellDrawing {
         invalidate();
     }
 
+    /**
+     * Returns whether any of the background animations is running
+     */
+    boolean isAnimating() {
+        return mScaleAnimator != null || mStrokeAlphaAnimator != null || mShadowAnimator != null;
+    }
+
     boolean drawingDelegated() {
         return mDrawingDelegate != null;
     }
@@ -147,6 +147,7 @@ public class PreviewItemManager {
                     Utilities.isRtl(mIcon.getResources()));
 
             updatePreviewItems(false);
+            mIcon.invalidatePreview();
         }
     }
 
@@ -208,7 +209,26 @@ public class PreviewItemManager {
     }
 
     public void onParamsChanged() {
-        mIcon.invalidate();
+        mIcon.invalidatePreview();
+    }
+
+    /**
+     * Returns whether all preview items are at rest, so that the preview can be drawn from a
+     * cached rendering. Items which are still downloading update continuously and are always
+     * drawn live.
+     */
+    boolean isStatic() {
+        if (!mCurrentPageParams.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            PreviewItemDrawingParams p = mFirstPageParams.get(i);
+            if (p.anim != null || p.index == EXIT_INDEX
+                    || p.drawable instanceof PreloadIconDrawable) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -249,6 +269,7 @@ public class PreviewItemManager {
                 mFirstPageParams.get(index) : null;
         if (params != null) {
             params.hidden = hidden;
+            mIcon.invalidatePreview();
         }
     }
 
@@ -336,7 +357,7 @@ public class PreviewItemManager {
             }
         }
         if (modified) {
-            mIcon.invalidate();
+            mIcon.invalidatePreview();
         }
     }
 
@@ -434,6 +455,7 @@ public class PreviewItemManager {
         }
         p.drawable.setBounds(0, 0, mIconSize, mIconSize);
         p.item = item;
+        mIcon.invalidatePreview();
 
         // Set the callback to FolderIcon as it is responsible to drawing the icon. The
         // callback will be released when the folder is opened.
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.folder;
+
+import android.graphics.Canvas;
+import android.graphics.RenderNode;
+
+import com.android.launcher3.Utilities;
+import com.android.launcher3.icons.BitmapRenderer;
+
+/**
+ * Caches the static preview of a {@link FolderIcon}, that is its background, shadow and clipped
+ * preview items, in a single display list. An idle folder icon then records one render node draw
+ * instead of a path clip per preview item and a layer for the shadow, which is replayed on every
+ * frame while the workspace scrolls or animates.
+ *
+ * The display list is never rasterized on the UI thread, so it stays sharp under the folder open
+ * and close scale, and re-recording it when a preview item animates, like a clock, costs the same
+ * as drawing the preview live. Before Q, the preview is always drawn live.
+ */
+@SuppressWarnings("NewApi")
+class PreviewRenderCache {
+
+    private final FolderIcon mIcon;
+
+    private RenderNode mNode;
+    private boolean mDirty = true;
+
+    // State of the icon the preview was recorded for, which can change without invalidation
+    private int mWidth;
+    private int mHeight;
+    private int mBgColor;
+    private float mBgScale;
+
+    PreviewRenderCache(FolderIcon icon) {
+        mIcon = icon;
+    }
+
+    /**
+     * Marks the cached preview as outdated, it is recorded again on the next draw
+     */
+    void invalidate() {
+        mDirty = true;
+    }
+
+    /**
+     * Drops the cached display list, for when the icon is not going to be drawn for a while
+     */
+    void recycle() {
+        if (mNode != null) {
+            mNode.discardDisplayList();
+        }
+        mDirty = true;
+    }
+
+    /**
+     * Draws the cached preview, recording it with {@param renderer} first if it is outdated.
+     * Returns false without drawing anything if the preview can not be cached on this canvas.
+     */
+    boolean draw(Canvas canvas, BitmapRenderer renderer) {
+        int width = mIcon.getWidth();
+        int height = mIcon.getHeight();
+        if (!Utilities.ATLEAST_Q || !canvas.isHardwareAccelerated()
+                || width <= 0 || height <= 0) {
+            return false;
+        }
+
+        PreviewBackground bg = mIcon.getFolderBackground();
+        int bgColor = bg.getBgColor();
+        if (mNode == null) {
+            mNode = new RenderNode("FolderPreview");
+        }
+        if (mDirty || !mNode.hasDisplayList() || mWidth != width || mHeight != height
+                || mBgColor != bgColor || mBgScale != bg.mScale) {
+            mNode.setPosition(0, 0, width, height);
+            renderer.draw(mNode.beginRecording(width, height));
+            mNode.endRecording();
+            mWidth = width;
+            mHeight = height;
+            mBgColor = bgColor;
+            mBgScale = bg.mScale;
+            mDirty = false;
+        }
+        canvas.drawRenderNode(mNode);
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.graphics;
+
+import android.app.WallpaperColors;
+import android.appwidget.AppWidgetProviderInfo;
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.LauncherProvider;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.BgDataModel;
+import com.android.launcher3.util.ComponentKey;
+import com.android.launcher3.util.MainThreadInitializedObject;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache for grid previews generated by {@link PreviewSurfaceRenderer}.
+ *
+ * Migrated preview models are kept per grid name, and rendered previews are kept per grid name,
+ * preview size and wallpaper colors. All entries are keyed by a version of the launcher database,
+ * so any change to the workspace invalidates them.
+ */
+public class GridPreviewCache {
+
+    private static final String TAG = "GridPreviewCache";
+
+    public static final MainThreadInitializedObject<GridPreviewCache> INSTANCE =
+            new MainThreadInitializedObject<>(c -> new GridPreviewCache());
+
+    private static final int MAX_CACHED_MODELS = 3;
+    // A few previews of the size of the screen
+    private static final int MAX_CACHED_PREVIEW_BYTES = 24 * 1024 * 1024;
+
+    private final LruCache<String, PreviewModel> mModels = new LruCache<>(MAX_CACHED_MODELS);
+    private final LruCache<String, Bitmap> mPreviews =
+            new LruCache<String, Bitmap>(MAX_CACHED_PREVIEW_BYTES) {
+                @Override
+                protected int sizeOf(String key, Bitmap preview) {
+                    return preview.getAllocationByteCount();
+                }
+            };
+
+    private GridPreviewCache() { }
+
+    /**
+     * Returns a key identifying the current state of the workspace when previewed as
+     * {@param gridName}. The key changes whenever the schema, the source grid or any workspace
+     * item changes.
+     */
+    @WorkerThread
+    public String getVersionKey(Context context, String gridName) {
+        StringBuilder key = new StringBuilder(gridName)
+                .append('_').append(LauncherProvider.SCHEMA_VERSION)
+                .append('_').append(InvariantDeviceProfile.getCurrentGridName(context));
+        try (Cursor c = context.getContentResolver().query(Favorites.CONTENT_URI,
+                new String[]{"MAX(" + Favorites.MODIFIED + ")", "COUNT(*)"},
+                null, null, null)) {
+            if (c != null && c.moveToNext()) {
+                key.append('_').append(c.getLong(0)).append('_').append(c.getInt(1));
+            }
+        } catch (Exception e) {
+            // Return a unique key, so that nothing gets served from the cache
+            Log.e(TAG, "Unable to read workspace version", e);
+            key.append('_').append(System.nanoTime());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the migrated model for the provided version key, or null if it is not cached
+     */
+    @Nullable
+    public PreviewModel getModel(String versionKey) {
+        return mModels.get(versionKey);
+    }
+
+    public void putModel(String versionKey, BgDataModel dataModel,
+            Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap) {
+        mModels.put(versionKey, new PreviewModel(dataModel, widgetProviderInfoMap));
+    }
+
+    /**
+     * Returns a previously rendered preview, or null if it is not cached
+     */
+    @Nullable
+    public Bitmap getPreview(String versionKey, int width, int height,
+            @Nullable WallpaperColors colors) {
+        return mPreviews.get(getPreviewKey(versionKey, width, height, colors));
+    }
+
+    public void putPreview(String versionKey, int width, int height,
+            @Nullable WallpaperColors colors, Bitmap preview) {
+        mPreviews.put(getPreviewKey(versionKey, width, height, colors), preview);
+    }
+
+    /**
+     * Removes all cached entries, for eg, when the icons or theme changes
+     */
+    public void clear() {
+        mModels.evictAll();
+        mPreviews.evictAll();
+    }
+
+    private static String getPreviewKey(String versionKey, int width, int height,
+            @Nullable WallpaperColors colors) {
+        return versionKey + '_' + width + 'x' + height + '_' + Objects.hashCode(colors);
+    }
+
+    /**
+     * Data model loaded from the preview table after a grid migration
+     */
+    public static class PreviewModel {
+
+        public final BgDataModel dataModel;
+        public final Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap;
+
+        PreviewModel(BgDataModel dataModel,
+                Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap) {
+            this.dataModel = dataModel;
+            this.widgetProviderInfoMap = widgetProviderInfoMap;
+        }
+    }
+}
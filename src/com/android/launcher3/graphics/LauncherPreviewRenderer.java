@@ -96,6 +96,8 @@ import com.saggitt.omega.DeviceProfileOverrides;
 import com.saggitt.omega.data.IconOverrideRepository;
 import com.saggitt.omega.iconpack.IconPackProvider;
 import com.saggitt.omega.icons.CustomAdaptiveIconDrawable;
+import com.saggitt.omega.icons.IconResolver;
+import com.saggitt.omega.icons.ThemedIconMap;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -132,6 +134,8 @@ public class LauncherPreviewRenderer extends ContextWrapper
             mIdp = idp;
             putBaseInstance(IconPackProvider.INSTANCE);
             putBaseInstance(IconOverrideRepository.INSTANCE);
+            putBaseInstance(IconResolver.INSTANCE);
+            putBaseInstance(ThemedIconMap.INSTANCE);
             putBaseInstance(DeviceProfileOverrides.INSTANCE);
             mObjectMap.put(InvariantDeviceProfile.INSTANCE, idp);
             mObjectMap.put(LauncherAppState.INSTANCE,
@@ -19,10 +19,14 @@ package com.android.launcher3.graphics;
 import static com.android.launcher3.config.FeatureFlags.MULTI_DB_GRID_MIRATION_ALGO;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import android.app.WallpaperColors;
 import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
 import android.hardware.display.DisplayManager;
 import android.os.Bundle;
 import android.os.IBinder;
@@ -34,6 +38,7 @@ import android.view.SurfaceControlViewHost.SurfacePackage;
 import android.view.View;
 import android.view.WindowManager.LayoutParams;
 import android.view.animation.AccelerateDecelerateInterpolator;
+import android.widget.ImageView;
 
 import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
@@ -43,7 +48,9 @@ import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.graphics.GridPreviewCache.PreviewModel;
 import com.android.launcher3.graphics.LauncherPreviewRenderer.PreviewContext;
+import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.GridSizeMigrationTask;
 import com.android.launcher3.model.GridSizeMigrationTaskV2;
@@ -75,6 +82,7 @@ public class PreviewSurfaceRenderer {
     private static final String KEY_COLORS = "wallpaper_colors";
 
     private final Context mContext;
+    private final String mGridName;
     private final InvariantDeviceProfile mIdp;
     private final IBinder mHostToken;
     private final int mWidth;
@@ -95,6 +103,7 @@ public class PreviewSurfaceRenderer {
         if (gridName == null) {
             gridName = InvariantDeviceProfile.getCurrentGridName(context);
         }
+        mGridName = gridName;
         mWallpaperColors = bundle.getParcelable(KEY_COLORS);
         mIdp = new InvariantDeviceProfile(context, gridName);
 
@@ -136,7 +145,13 @@ public class PreviewSurfaceRenderer {
 
     @WorkerThread
     private void loadModelData() {
-        final boolean migrated = doGridMigrationIfNecessary();
+        final GridPreviewCache cache = GridPreviewCache.INSTANCE.get(mContext);
+        final String versionKey = cache.getVersionKey(mContext, mGridName);
+        Bitmap cachedPreview = cache.getPreview(versionKey, mWidth, mHeight, mWallpaperColors);
+        if (cachedPreview != null) {
+            MAIN_EXECUTOR.execute(() -> renderBitmap(cachedPreview));
+            return;
+        }
 
         final Context inflationContext;
         if (mWallpaperColors != null) {
@@ -154,6 +169,19 @@ public class PreviewSurfaceRenderer {
             inflationContext = new ContextThemeWrapper(mContext, R.style.AppTheme_Light);
         }
 
+        PreviewModel cachedModel = cache.getModel(versionKey);
+        if (cachedModel != null) {
+            // The grid was already migrated for this version of the workspace, reuse the result
+            PreviewContext previewContext = new PreviewContext(inflationContext, mIdp);
+            MAIN_EXECUTOR.execute(() -> {
+                renderView(previewContext, cachedModel.dataModel,
+                        cachedModel.widgetProviderInfoMap, versionKey);
+                mOnDestroyCallbacks.add(previewContext::onDestroy);
+            });
+            return;
+        }
+
+        final boolean migrated = doGridMigrationIfNecessary();
         if (migrated) {
             PreviewContext previewContext = new PreviewContext(inflationContext, mIdp);
             new LoaderTask(
@@ -168,8 +196,9 @@ public class PreviewSurfaceRenderer {
                             LauncherSettings.Favorites.SCREEN + " = 0 or "
                                     + LauncherSettings.Favorites.CONTAINER + " = "
                                     + LauncherSettings.Favorites.CONTAINER_HOTSEAT);
+                    cache.putModel(versionKey, mBgDataModel, mWidgetProvidersMap);
                     MAIN_EXECUTOR.execute(() -> {
-                        renderView(previewContext, mBgDataModel, mWidgetProvidersMap);
+                        renderView(previewContext, mBgDataModel, mWidgetProvidersMap, versionKey);
                         mOnDestroyCallbacks.add(previewContext::onDestroy);
                     });
                 }
@@ -177,7 +206,8 @@ public class PreviewSurfaceRenderer {
         } else {
             LauncherAppState.getInstance(inflationContext).getModel().loadAsync(dataModel -> {
                 if (dataModel != null) {
-                    MAIN_EXECUTOR.execute(() -> renderView(inflationContext, dataModel, null));
+                    MAIN_EXECUTOR.execute(() ->
+                            renderView(inflationContext, dataModel, null, versionKey));
                 } else {
                     Log.e(TAG, "Model loading failed");
                 }
@@ -201,7 +231,8 @@ public class PreviewSurfaceRenderer {
 
     @UiThread
     private void renderView(Context inflationContext, BgDataModel dataModel,
-                            Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap) {
+                            Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap,
+                            String versionKey) {
         if (mDestroyed) {
             return;
         }
@@ -216,11 +247,57 @@ public class PreviewSurfaceRenderer {
         view.setPivotY(0);
         view.setTranslationX((mWidth - scale * view.getWidth()) / 2);
         view.setTranslationY((mHeight - scale * view.getHeight()) / 2);
+        fadeIn(view);
+        mSurfaceControlViewHost.setView(view, view.getMeasuredWidth(), view.getMeasuredHeight());
+        cacheRenderedView(view, scale, versionKey);
+    }
+
+    /**
+     * Shows a preview which was rendered for an earlier request for the same grid
+     */
+    @UiThread
+    private void renderBitmap(Bitmap preview) {
+        if (mDestroyed) {
+            return;
+        }
+        ImageView view = new ImageView(mContext);
+        view.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        view.setImageBitmap(preview);
+        fadeIn(view);
+        mSurfaceControlViewHost.setView(view, mWidth, mHeight);
+    }
+
+    /**
+     * Records the view on the UI thread and rasterizes it in the background, so that subsequent
+     * requests for the same grid can skip the model loading and inflation.
+     */
+    @UiThread
+    private void cacheRenderedView(View view, float scale, String versionKey) {
+        int width = Math.round(view.getMeasuredWidth() * scale);
+        int height = Math.round(view.getMeasuredHeight() * scale);
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        Picture picture = new Picture();
+        Canvas recordingCanvas = picture.beginRecording(width, height);
+        recordingCanvas.scale(scale, scale);
+        view.draw(recordingCanvas);
+        picture.endRecording();
+
+        UI_HELPER_EXECUTOR.execute(() -> {
+            // The icons are hardware bitmaps, which can not be drawn on a software canvas
+            Bitmap preview = BitmapRenderer.createHardwareBitmap(width, height,
+                    c -> c.drawPicture(picture));
+            GridPreviewCache.INSTANCE.get(mContext)
+                    .putPreview(versionKey, mWidth, mHeight, mWallpaperColors, preview);
+        });
+    }
+
+    private static void fadeIn(View view) {
         view.setAlpha(0);
         view.animate().alpha(1)
                 .setInterpolator(new AccelerateDecelerateInterpolator())
                 .setDuration(FADE_IN_ANIMATION_DURATION)
                 .start();
-        mSurfaceControlViewHost.setView(view, view.getMeasuredWidth(), view.getMeasuredHeight());
     }
 }
@@ -16,7 +16,9 @@
 
 package com.android.launcher3.icons;
 
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
 import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.icons.GraphicsUtils.setColorAlphaBound;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import android.content.ComponentName;
@@ -30,12 +32,17 @@ import android.content.pm.PackageInstaller;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.ShortcutInfo;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.graphics.drawable.Drawable;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.LauncherFiles;
@@ -46,17 +53,29 @@ import com.android.launcher3.icons.ComponentWithLabel.ComponentCachingLogic;
 import com.android.launcher3.icons.cache.BaseIconCache;
 import com.android.launcher3.icons.cache.CachingLogic;
 import com.android.launcher3.icons.cache.HandlerRunnable;
+import com.android.launcher3.logging.PerfMetrics;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.PackageItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.shortcuts.ShortcutKey;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.InstantAppResolver;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.saggitt.omega.icons.CustomIconProvider;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -67,6 +86,20 @@ public class IconCache extends BaseIconCache {
 
     private static final String TAG = "Launcher.IconCache";
 
+    private static final PerfMetrics.Histogram LOOKUP_LATENCY =
+            PerfMetrics.histogram("iconcache/lookup");
+    private static final PerfMetrics.Counter DB_MISSES = PerfMetrics.counter("iconcache/db_miss");
+    private static final PerfMetrics.Counter SNAPSHOT_HITS =
+            PerfMetrics.counter("iconcache/snapshot_hit");
+
+    // Delay before rewriting the snapshot after it was invalidated, so that a burst of package
+    // updates only rewrites it once
+    private static final long SNAPSHOT_REBUILD_DELAY_MS = 5000;
+    private static final int MAX_SNAPSHOT_QUERY_ARGS = 500;
+    private static final String[] SNAPSHOT_COLUMNS = new String[]{
+            IconDB.COLUMN_COMPONENT, IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL,
+            IconDB.COLUMN_ICON};
+
     private final Predicate<ItemInfoWithIcon> mIsUsingFallbackOrNonDefaultIconCheck = w ->
             w.bitmap != null && (w.bitmap.isNullOrLowRes() || !isDefaultIcon(w.bitmap, w.user));
 
@@ -79,8 +112,21 @@ public class IconCache extends BaseIconCache {
     private final InstantAppResolver mInstantAppResolver;
     private final IconProvider mIconProvider;
 
+    private final IconRequestBatcher mRequestBatcher;
     private int mPendingIconRequestCount = 0;
 
+    @Nullable
+    private final File mSnapshotFile;
+    private final Runnable mSnapshotRebuildRunnable = this::rebuildSnapshot;
+    private IconSnapshot mSnapshot;
+    private boolean mSnapshotLoaded;
+    private List<ComponentKey> mSnapshotKeys = Collections.emptyList();
+    // Entries and system state of the snapshot file, null if they are not known to match the DB
+    @Nullable
+    private Set<String> mSnapshotFileKeys;
+    private String mSnapshotFileState;
+    private int mIconPixelSize;
+
     public IconCache(Context context, InvariantDeviceProfile idp) {
         this(context, idp, LauncherFiles.APP_ICONS_DB, new CustomIconProvider(context));
     }
@@ -96,6 +142,208 @@ public class IconCache extends BaseIconCache {
         mUserManager = UserCache.INSTANCE.get(mContext);
         mInstantAppResolver = InstantAppResolver.newInstance(mContext);
         mIconProvider = iconProvider;
+        mRequestBatcher = new IconRequestBatcher(this, mWorkerHandler);
+        mSnapshotFile = dbFileName == null
+                ? null : context.getDatabasePath(dbFileName + "_snapshot");
+        mIconPixelSize = idp.iconBitmapSize;
+    }
+
+    @Override
+    protected <T> CacheEntry cacheLocked(
+            @NonNull ComponentName componentName, @NonNull UserHandle user,
+            @NonNull Supplier<T> infoProvider, @NonNull CachingLogic<T> cachingLogic,
+            boolean usePackageIcon, boolean useLowResIcon) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        CacheEntry entry = super.cacheLocked(componentName, user, infoProvider, cachingLogic,
+                usePackageIcon, useLowResIcon);
+        LOOKUP_LATENCY.recordSince(startNanos);
+        return entry;
+    }
+
+    @Override
+    protected boolean getEntryFromDB(ComponentKey cacheKey, CacheEntry entry, boolean lowRes) {
+        if (getEntryFromSnapshot(cacheKey, entry, lowRes)) {
+            SNAPSHOT_HITS.increment();
+            return true;
+        }
+        boolean found = super.getEntryFromDB(cacheKey, entry, lowRes);
+        if (!found) {
+            DB_MISSES.increment();
+        }
+        return found;
+    }
+
+    private boolean getEntryFromSnapshot(ComponentKey cacheKey, CacheEntry entry,
+            boolean lowRes) {
+        if (!mSnapshotLoaded) {
+            mSnapshotLoaded = true;
+            if (mSnapshotFile != null) {
+                mSnapshot = IconSnapshot.load(mSnapshotFile, mIconPixelSize,
+                        IconDB.getVersion(mIconPixelSize), mSystemState);
+            }
+        }
+        if (mSnapshot == null) {
+            return false;
+        }
+        IconSnapshot.MappedEntry snapshotEntry = mSnapshot.getEntry(
+                cacheKey.componentName.flattenToString(), getSerialNumberForUser(cacheKey.user));
+        if (snapshotEntry == null) {
+            return false;
+        }
+        int color = setColorAlphaBound(snapshotEntry.color, 255);
+        entry.bitmap = lowRes
+                ? BitmapInfo.of(BitmapInfo.LOW_RES_ICON, color)
+                : BitmapInfo.of(mSnapshot.getIcon(snapshotEntry), color);
+        entry.title = snapshotEntry.title;
+        entry.contentDescription = TextUtils.isEmpty(entry.title)
+                ? "" : mPackageManager.getUserBadgedLabel(entry.title, cacheKey.user);
+        return true;
+    }
+
+    /**
+     * Writes a snapshot of the icons of {@param keys}, which are read from the memory-mapped
+     * snapshot on the next cold start instead of the icon DB. Nothing is written if the current
+     * snapshot already has the same entries and system state.
+     */
+    public void scheduleSnapshotRebuild(Collection<ComponentKey> keys) {
+        List<ComponentKey> snapshotKeys = new ArrayList<>(keys);
+        mWorkerHandler.post(() -> {
+            synchronized (IconCache.this) {
+                mSnapshotKeys = snapshotKeys;
+                if (isSnapshotUpToDateLocked()) {
+                    return;
+                }
+            }
+            mWorkerHandler.removeCallbacks(mSnapshotRebuildRunnable);
+            rebuildSnapshot();
+        });
+    }
+
+    private boolean isSnapshotUpToDateLocked() {
+        if (mSnapshotFile == null || mSnapshotKeys.isEmpty()) {
+            return true;
+        }
+        Set<String> keys = getSnapshotKeyStringsLocked();
+        if (mSnapshotFileKeys != null) {
+            return mSnapshotFileKeys.equals(keys) && mSystemState.equals(mSnapshotFileState);
+        }
+        // Snapshot written by a previous process, it is only loaded if it matches the DB
+        IconSnapshot snapshot = mSnapshot != null ? mSnapshot : IconSnapshot.load(mSnapshotFile,
+                mIconPixelSize, IconDB.getVersion(mIconPixelSize), mSystemState);
+        if (snapshot == null || !snapshot.hasEntries(keys)) {
+            return false;
+        }
+        mSnapshotFileKeys = keys;
+        mSnapshotFileState = mSystemState;
+        return true;
+    }
+
+    private Set<String> getSnapshotKeyStringsLocked() {
+        Set<String> keys = new HashSet<>();
+        for (ComponentKey key : mSnapshotKeys) {
+            keys.add(IconSnapshot.getKey(key.componentName.flattenToString(),
+                    getSerialNumberForUser(key.user)));
+        }
+        return keys;
+    }
+
+    /**
+     * Drops the snapshot, as the DB changed, and schedules writing a new one
+     */
+    private void invalidateSnapshotLocked() {
+        mSnapshot = null;
+        mSnapshotLoaded = true;
+        mSnapshotFileKeys = null;
+        if (mSnapshotFile != null && mSnapshotFile.exists()) {
+            mSnapshotFile.delete();
+        }
+        mWorkerHandler.removeCallbacks(mSnapshotRebuildRunnable);
+        mWorkerHandler.postDelayed(mSnapshotRebuildRunnable, SNAPSHOT_REBUILD_DELAY_MS);
+    }
+
+    private synchronized void rebuildSnapshot() {
+        if (mSnapshotFile == null || mSnapshotKeys.isEmpty()) {
+            return;
+        }
+        HashMap<Long, ArrayList<String>> componentsBySerial = new HashMap<>();
+        for (ComponentKey key : mSnapshotKeys) {
+            componentsBySerial.computeIfAbsent(getSerialNumberForUser(key.user),
+                    s -> new ArrayList<>()).add(key.componentName.flattenToString());
+        }
+
+        List<IconSnapshot.SnapshotEntry> entries = new ArrayList<>();
+        Set<String> foundKeys = new HashSet<>();
+        for (Map.Entry<Long, ArrayList<String>> serialComponents
+                : componentsBySerial.entrySet()) {
+            long serial = serialComponents.getKey();
+            ArrayList<String> components = serialComponents.getValue();
+            for (int start = 0; start < components.size(); start += MAX_SNAPSHOT_QUERY_ARGS) {
+                List<String> chunk = components.subList(
+                        start, Math.min(components.size(), start + MAX_SNAPSHOT_QUERY_ARGS));
+                String[] args = chunk.toArray(new String[chunk.size() + 1]);
+                args[chunk.size()] = Long.toString(serial);
+                String selection = IconDB.COLUMN_COMPONENT + " IN ("
+                        + TextUtils.join(",", Collections.nCopies(chunk.size(), "?"))
+                        + ") AND " + IconDB.COLUMN_USER + " = ?";
+                try (Cursor c = queryCacheDb(SNAPSHOT_COLUMNS, selection, args)) {
+                    while (c.moveToNext()) {
+                        String component = c.getString(0);
+                        entries.add(new IconSnapshot.SnapshotEntry(component, serial,
+                                c.getInt(1), c.getString(2), c.getBlob(3)));
+                        foundKeys.add(IconSnapshot.getKey(component, serial));
+                    }
+                } catch (SQLiteException e) {
+                    Log.d(TAG, "Error reading icon cache", e);
+                    return;
+                }
+            }
+        }
+        // Items missing from the DB are kept without icon, so that the snapshot has every key
+        Set<String> keys = getSnapshotKeyStringsLocked();
+        for (ComponentKey key : mSnapshotKeys) {
+            String component = key.componentName.flattenToString();
+            long serial = getSerialNumberForUser(key.user);
+            if (!foundKeys.contains(IconSnapshot.getKey(component, serial))) {
+                entries.add(new IconSnapshot.SnapshotEntry(component, serial, 0, null, null));
+            }
+        }
+        if (IconSnapshot.write(mSnapshotFile, mIconPixelSize,
+                IconDB.getVersion(mIconPixelSize), mSystemState, entries)) {
+            mSnapshotFileKeys = keys;
+            mSnapshotFileState = mSystemState;
+        }
+        // The current process keeps using the DB and the in-memory cache
+        mSnapshot = null;
+    }
+
+    @Override
+    public synchronized void removeIconsForPkg(String packageName, UserHandle user) {
+        super.removeIconsForPkg(packageName, user);
+        invalidateSnapshotLocked();
+    }
+
+    @Override
+    public synchronized <T> void addIconToDBAndMemCache(T object, CachingLogic<T> cachingLogic,
+            PackageInfo info, long userSerial, boolean replaceExisting) {
+        super.addIconToDBAndMemCache(object, cachingLogic, info, userSerial, replaceExisting);
+        invalidateSnapshotLocked();
+    }
+
+    @Override
+    public void updateIconParams(int iconDpi, int iconPixelSize) {
+        super.updateIconParams(iconDpi, iconPixelSize);
+        mWorkerHandler.post(() -> {
+            synchronized (IconCache.this) {
+                mIconPixelSize = iconPixelSize;
+                invalidateSnapshotLocked();
+            }
+        });
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        invalidateSnapshotLocked();
     }
 
     @Override
@@ -139,35 +387,73 @@ public class IconCache extends BaseIconCache {
     }
 
     /**
-     * Fetches high-res icon for the provided ItemInfo and updates the caller when done.
+     * Fetches high-res icon for the provided ItemInfo and updates the caller when done. Requests
+     * made while handling the same main thread message are loaded together.
      *
      * @return a request ID that can be used to cancel the request.
      */
     public HandlerRunnable updateIconInBackground(final ItemInfoUpdateReceiver caller,
                                                   final ItemInfoWithIcon info) {
         Preconditions.assertUIThread();
-        if (mPendingIconRequestCount <= 0) {
-            MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
-        }
-        mPendingIconRequestCount++;
+        return mRequestBatcher.addRequest(caller, info);
+    }
 
-        HandlerRunnable<ItemInfoWithIcon> request = new HandlerRunnable<>(mWorkerHandler,
+    /**
+     * Fetches high-res icons for all the provided items in a single background task, and calls
+     * {@param callback} with them on the main thread once they are all loaded.
+     *
+     * @return a request that can be used to cancel the callback.
+     */
+    public HandlerRunnable<List<ItemInfoWithIcon>> updateIconsInBackground(
+            List<ItemInfoWithIcon> infos, Consumer<List<ItemInfoWithIcon>> callback) {
+        Preconditions.assertUIThread();
+        onIconRequestStart();
+        HandlerRunnable<List<ItemInfoWithIcon>> request = new HandlerRunnable<>(mWorkerHandler,
                 () -> {
-                    if (info instanceof AppInfo || info instanceof WorkspaceItemInfo) {
-                        getTitleAndIcon(info, false);
-                    } else if (info instanceof PackageItemInfo) {
-                        getTitleAndIconForApp((PackageItemInfo) info, false);
-                    }
-                    return info;
+                    loadHighResIcons(infos);
+                    return infos;
                 },
                 MAIN_EXECUTOR,
-                caller::reapplyItemInfo,
+                callback,
                 this::onIconRequestEnd);
         Utilities.postAsyncCallback(mWorkerHandler, request);
         return request;
     }
 
-    private void onIconRequestEnd() {
+    /**
+     * Loads the high-res icons of {@param infos}, reading the ones which are not in memory with
+     * a single DB query.
+     */
+    synchronized void loadHighResIcons(List<ItemInfoWithIcon> infos) {
+        List<ComponentKey> keys = new ArrayList<>(infos.size());
+        for (ItemInfoWithIcon info : infos) {
+            if (info instanceof PackageItemInfo) {
+                keys.add(getPackageKey(((PackageItemInfo) info).packageName, info.user));
+            } else if (info.itemType == ITEM_TYPE_APPLICATION
+                    && info.getTargetComponent() != null) {
+                // Only activity entries, other items use logics which are not kept in memory
+                keys.add(new ComponentKey(info.getTargetComponent(), info.user));
+            }
+        }
+        preloadHighResEntries(keys, mLauncherActivityInfoCachingLogic);
+
+        for (ItemInfoWithIcon info : infos) {
+            if (info instanceof AppInfo || info instanceof WorkspaceItemInfo) {
+                getTitleAndIcon(info, false);
+            } else if (info instanceof PackageItemInfo) {
+                getTitleAndIconForApp((PackageItemInfo) info, false);
+            }
+        }
+    }
+
+    void onIconRequestStart() {
+        if (mPendingIconRequestCount <= 0) {
+            MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
+        }
+        mPendingIconRequestCount++;
+    }
+
+    void onIconRequestEnd() {
         mPendingIconRequestCount--;
         if (mPendingIconRequestCount <= 0) {
             MODEL_EXECUTOR.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
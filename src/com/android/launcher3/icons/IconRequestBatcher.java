@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+
+import android.os.Handler;
+
+import com.android.launcher3.Utilities;
+import com.android.launcher3.icons.IconCache.ItemInfoUpdateReceiver;
+import com.android.launcher3.icons.cache.HandlerRunnable;
+import com.android.launcher3.logging.PerfMetrics;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the high-res icon requests made while the main thread handles one message, typically
+ * a layout pass binding a page of icons, and resolves them together: one model thread task reads
+ * the missing icons with a single DB query, and one main thread callback delivers all results.
+ */
+class IconRequestBatcher {
+
+    private static final PerfMetrics.Counter BATCHES =
+            PerfMetrics.counter("iconcache/request_batches");
+    private static final PerfMetrics.Counter BATCHED_REQUESTS =
+            PerfMetrics.counter("iconcache/batched_requests");
+
+    private final IconCache mIconCache;
+    private final Handler mWorkerHandler;
+    private final Runnable mFlushRunnable = this::flush;
+
+    private ArrayList<IconRequest> mPendingRequests = new ArrayList<>();
+
+    IconRequestBatcher(IconCache iconCache, Handler workerHandler) {
+        mIconCache = iconCache;
+        mWorkerHandler = workerHandler;
+    }
+
+    /**
+     * Adds a request for the high-res icon of {@param info}, which is resolved with the other
+     * requests made before the main thread is idle.
+     */
+    HandlerRunnable<ItemInfoWithIcon> addRequest(ItemInfoUpdateReceiver caller,
+            ItemInfoWithIcon info) {
+        IconRequest request = new IconRequest(mWorkerHandler, caller, info);
+        if (mPendingRequests.isEmpty()) {
+            MAIN_EXECUTOR.getHandler().post(mFlushRunnable);
+        }
+        mPendingRequests.add(request);
+        return request;
+    }
+
+    private void flush() {
+        ArrayList<IconRequest> batch = mPendingRequests;
+        mPendingRequests = new ArrayList<>();
+        // Views recycled in the same frame have already canceled their requests
+        batch.removeIf(r -> r.mCanceled);
+        if (batch.isEmpty()) {
+            return;
+        }
+        BATCHES.increment();
+        BATCHED_REQUESTS.add(batch.size());
+
+        mIconCache.onIconRequestStart();
+        Utilities.postAsyncCallback(mWorkerHandler, () -> {
+            List<ItemInfoWithIcon> infos = new ArrayList<>(batch.size());
+            for (IconRequest request : batch) {
+                if (!request.mCanceled) {
+                    infos.add(request.mInfo);
+                }
+            }
+            mIconCache.loadHighResIcons(infos);
+            MAIN_EXECUTOR.execute(() -> {
+                for (IconRequest request : batch) {
+                    if (!request.mCanceled) {
+                        request.mCaller.reapplyItemInfo(request.mInfo);
+                    }
+                }
+                mIconCache.onIconRequestEnd();
+            });
+        });
+    }
+
+    /**
+     * Handle of a single request in a batch. It is never posted by itself, canceling it only
+     * drops its result from the batch.
+     */
+    private static class IconRequest extends HandlerRunnable<ItemInfoWithIcon> {
+
+        private final ItemInfoUpdateReceiver mCaller;
+        private final ItemInfoWithIcon mInfo;
+        private volatile boolean mCanceled;
+
+        IconRequest(Handler workerHandler, ItemInfoUpdateReceiver caller, ItemInfoWithIcon info) {
+            super(workerHandler, () -> info, MAIN_EXECUTOR, caller::reapplyItemInfo);
+            mCaller = caller;
+            mInfo = info;
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled = true;
+        }
+    }
+}
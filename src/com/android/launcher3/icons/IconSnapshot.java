@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only snapshot of the icon DB entries of the workspace items, stored as raw pixels at the
+ * current icon size. The file is memory-mapped, so the first workspace bind after a cold start
+ * can copy icons straight from the page cache, instead of querying SQLite and decoding a PNG per
+ * item. The icon DB stays the source of truth: the snapshot is deleted as soon as the DB changes
+ * and written again once the DB is up to date.
+ *
+ * File format: the length of the index, the index, then the pixels of every entry.
+ * The index has a header (magic, version, icon size, icon DB version, system state, entry count)
+ * and per entry: component, user serial, color, label and the offset of its pixels, or
+ * {@link #NO_PIXELS} if its icon could not be stored.
+ */
+class IconSnapshot {
+
+    private static final String TAG = "IconSnapshot";
+
+    private static final int MAGIC = 0x49434e53;
+    private static final int VERSION = 2;
+    private static final int NO_PIXELS = -1;
+
+    /**
+     * Entry which can be written to a snapshot
+     */
+    static class SnapshotEntry {
+        final String component;
+        final long userSerial;
+        final int color;
+        final String title;
+        final byte[] iconBlob;
+
+        SnapshotEntry(String component, long userSerial, int color, String title,
+                byte[] iconBlob) {
+            this.component = component;
+            this.userSerial = userSerial;
+            this.color = color;
+            this.title = title;
+            this.iconBlob = iconBlob;
+        }
+    }
+
+    /**
+     * Entry read from a snapshot, whose pixels are still in the mapped file
+     */
+    static class MappedEntry {
+        final int color;
+        final String title;
+        private final int mPixelOffset;
+
+        private MappedEntry(int color, String title, int pixelOffset) {
+            this.color = color;
+            this.title = title;
+            mPixelOffset = pixelOffset;
+        }
+    }
+
+    private final MappedByteBuffer mPixels;
+    private final int mIconSize;
+    private final HashMap<String, MappedEntry> mEntries;
+
+    private IconSnapshot(MappedByteBuffer pixels, int iconSize,
+            HashMap<String, MappedEntry> entries) {
+        mPixels = pixels;
+        mIconSize = iconSize;
+        mEntries = entries;
+    }
+
+    static String getKey(String component, long userSerial) {
+        return userSerial + "/" + component;
+    }
+
+    /**
+     * Returns the entry of the given component, or null if it is not in the snapshot or its icon
+     * could not be stored
+     */
+    @Nullable
+    MappedEntry getEntry(String component, long userSerial) {
+        MappedEntry entry = mEntries.get(getKey(component, userSerial));
+        return entry == null || entry.mPixelOffset == NO_PIXELS ? null : entry;
+    }
+
+    /**
+     * Returns whether the snapshot has exactly the entries of {@param keys}, as returned by
+     * {@link #getKey(String, long)}
+     */
+    boolean hasEntries(Set<String> keys) {
+        return mEntries.keySet().equals(keys);
+    }
+
+    /**
+     * Copies the icon of {@param entry} out of the mapped file
+     */
+    Bitmap getIcon(MappedEntry entry) {
+        Bitmap icon = Bitmap.createBitmap(mIconSize, mIconSize, Bitmap.Config.ARGB_8888);
+        ByteBuffer pixels = mPixels.duplicate();
+        pixels.position(entry.mPixelOffset);
+        pixels.limit(entry.mPixelOffset + icon.getByteCount());
+        icon.copyPixelsFromBuffer(pixels);
+        if (BitmapRenderer.USE_HARDWARE_BITMAP) {
+            Bitmap hardwareIcon = icon.copy(Bitmap.Config.HARDWARE, false);
+            icon.recycle();
+            return hardwareIcon;
+        }
+        return icon;
+    }
+
+    /**
+     * Maps the snapshot in {@param file}, returning null if it does not exist or was made for
+     * a different icon size, icon DB version or system state.
+     */
+    @Nullable
+    static IconSnapshot load(File file, int iconSize, int dbVersion, String systemState) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            int indexLength = raf.readInt();
+            byte[] index = new byte[indexLength];
+            raf.readFully(index);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != iconSize
+                    || in.readInt() != dbVersion || !systemState.equals(in.readUTF())) {
+                return null;
+            }
+            int count = in.readInt();
+            HashMap<String, MappedEntry> entries = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                String key = getKey(in.readUTF(), in.readLong());
+                entries.put(key, new MappedEntry(in.readInt(), in.readUTF(), in.readInt()));
+            }
+
+            long pixelsStart = Integer.BYTES + indexLength;
+            MappedByteBuffer pixels = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    pixelsStart, raf.length() - pixelsStart);
+            return new IconSnapshot(pixels, iconSize, entries);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to load icon snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of {@param entries} to {@param file}. Entries whose icon is not a plain
+     * bitmap of the current icon size, or can not be decoded, are kept in the index without
+     * pixels. The icons are decoded one at a time into a separate pixels file, which is appended
+     * to the index once every icon was decoded.
+     *
+     * @return whether the snapshot was written
+     */
+    static boolean write(File file, int iconSize, int dbVersion, String systemState,
+            List<SnapshotEntry> entries) {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        File pixelsFile = new File(file.getPath() + ".pixels");
+        try {
+            int iconBytes = iconSize * iconSize * 4;
+            int[] pixelOffsets = new int[entries.size()];
+            try (FileOutputStream pixelsOut = new FileOutputStream(pixelsFile)) {
+                ByteBuffer pixels = ByteBuffer.allocate(iconBytes);
+                int pixelOffset = 0;
+                for (int i = 0; i < pixelOffsets.length; i++) {
+                    Bitmap icon = decodeIcon(entries.get(i).iconBlob, iconSize);
+                    if (icon == null) {
+                        pixelOffsets[i] = NO_PIXELS;
+                        continue;
+                    }
+                    pixels.clear();
+                    icon.copyPixelsToBuffer(pixels);
+                    icon.recycle();
+                    pixelsOut.write(pixels.array(), 0, iconBytes);
+                    pixelOffsets[i] = pixelOffset;
+                    pixelOffset += iconBytes;
+                }
+            }
+
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            index.writeInt(MAGIC);
+            index.writeInt(VERSION);
+            index.writeInt(iconSize);
+            index.writeInt(dbVersion);
+            index.writeUTF(systemState);
+            index.writeInt(pixelOffsets.length);
+            for (int i = 0; i < pixelOffsets.length; i++) {
+                SnapshotEntry entry = entries.get(i);
+                index.writeUTF(entry.component);
+                index.writeLong(entry.userSerial);
+                index.writeInt(entry.color);
+                index.writeUTF(entry.title == null ? "" : entry.title);
+                index.writeInt(pixelOffsets[i]);
+            }
+            index.flush();
+
+            try (FileOutputStream fos = new FileOutputStream(tmpFile);
+                 DataOutputStream out = new DataOutputStream(fos);
+                 FileInputStream pixelsIn = new FileInputStream(pixelsFile)) {
+                out.writeInt(indexBytes.size());
+                indexBytes.writeTo(out);
+                out.flush();
+                FileChannel pixelsChannel = pixelsIn.getChannel();
+                long size = pixelsChannel.size();
+                for (long position = 0; position < size; ) {
+                    position += pixelsChannel.transferTo(position, size - position,
+                            fos.getChannel());
+                }
+                fos.getFD().sync();
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Failed to rename " + tmpFile);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write icon snapshot", e);
+            tmpFile.delete();
+            return false;
+        } finally {
+            pixelsFile.delete();
+        }
+    }
+
+    /**
+     * Decodes the icon of an icon DB blob, or returns null if it is not a plain bitmap of
+     * {@param iconSize}
+     */
+    @Nullable
+    private static Bitmap decodeIcon(byte[] blob, int iconSize) {
+        if (blob == null || blob.length < 2 || blob[0] != BitmapInfo.TYPE_DEFAULT) {
+            return null;
+        }
+        Bitmap icon = BitmapFactory.decodeByteArray(blob, 1, blob.length - 1);
+        if (icon == null) {
+            return null;
+        }
+        if (icon.getWidth() != iconSize || icon.getHeight() != iconSize
+                || icon.getConfig() != Bitmap.Config.ARGB_8888) {
+            icon.recycle();
+            return null;
+        }
+        return icon;
+    }
+}
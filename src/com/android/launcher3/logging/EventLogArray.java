@@ -16,17 +16,29 @@
 package com.android.launcher3.logging;
 
 
-import android.util.Log;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.JsonWriter;
+
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A utility class to record and log events. Events are stored in a fixed size array and old logs
- * are purged as new events come.
+ * A utility class to record and log events. Events are stored in a fixed size ring buffer of
+ * primitives and old logs are purged as new events come.
+ *
+ * Event names and string values are interned to ids, so that logging an event does not allocate.
+ * Callers on hot paths should intern their event names once with {@link #intern(String)}.
+ * Entries are only decoded when dumped.
  */
 public class EventLogArray {
 
@@ -35,88 +47,223 @@ public class EventLogArray {
     private static final int TYPE_INTEGER = 2;
     private static final int TYPE_BOOL_TRUE = 3;
     private static final int TYPE_BOOL_FALSE = 4;
+    private static final int TYPE_STRING = 5;
+    private static final int TYPE_POINT = 6;
+
+    // Interned strings, shared by all the logs
+    private static final Map<String, Integer> sIds = new ConcurrentHashMap<>();
+    private static final ArrayList<String> sStrings = new ArrayList<>();
 
     private final String name;
-    private final EventEntry[] logs;
+    private final int size;
+
+    // Columns of the ring buffer, indexed by the entry position
+    private final int[] mEventIds;
+    private final byte[] mTypes;
+    private final long[] mValues;
+    private final int[] mArgs;
+    private final long[] mTimesNanos;
+    private final int[] mTraceIds;
+    private final int[] mDuplicateCounts;
+
     private int nextIndex;
+    private int mCount;
     private int mLogId;
 
     public EventLogArray(String name, int size) {
         this.name = name;
-        logs = new EventEntry[size];
+        this.size = size;
+        mEventIds = new int[size];
+        mTypes = new byte[size];
+        mValues = new long[size];
+        mArgs = new int[size];
+        mTimesNanos = new long[size];
+        mTraceIds = new int[size];
+        mDuplicateCounts = new int[size];
         nextIndex = 0;
     }
 
+    /**
+     * Returns the id of {@param string}, to be used with the id based addLog methods
+     */
+    public static int intern(String string) {
+        Integer id = sIds.get(string);
+        if (id != null) {
+            return id;
+        }
+        synchronized (sStrings) {
+            id = sIds.get(string);
+            if (id == null) {
+                id = sStrings.size();
+                sStrings.add(string);
+                sIds.put(string, id);
+            }
+            return id;
+        }
+    }
+
+    private static String getString(int id) {
+        synchronized (sStrings) {
+            return sStrings.get(id);
+        }
+    }
+
     public void addLog(String event) {
-        addLog(TYPE_ONE_OFF, event, 0);
+        addLog(intern(event));
     }
 
     public void addLog(String event, int extras) {
-        addLog(TYPE_INTEGER, event, extras);
+        addLog(intern(event), extras);
     }
 
     public void addLog(String event, boolean extras) {
-        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, event, 0);
+        addLog(intern(event), extras);
+    }
+
+    public void addLog(int eventId) {
+        addLog(TYPE_ONE_OFF, eventId, 0, 0);
+    }
+
+    public void addLog(int eventId, int extras) {
+        addLog(TYPE_INTEGER, eventId, extras, 0);
+    }
+
+    public void addLog(int eventId, float extras) {
+        addLog(TYPE_FLOAT, eventId, Float.floatToRawIntBits(extras), 0);
+    }
+
+    public void addLog(int eventId, boolean extras) {
+        addLog(extras ? TYPE_BOOL_TRUE : TYPE_BOOL_FALSE, eventId, 0, 0);
     }
 
-    private void addLog(int type, String event, float extras) {
+    /**
+     * Logs an event with a string value, like the name of a state. The value is interned, so it
+     * should come from a small set of strings.
+     */
+    public void addLog(int eventId, String value) {
+        addLog(TYPE_STRING, eventId, intern(String.valueOf(value)), 0);
+    }
+
+    /**
+     * Logs an event happening at the given position, with an integer extra
+     */
+    public void addLog(int eventId, int x, int y, int extras) {
+        addLog(TYPE_POINT, eventId, ((long) x << 32) | (y & 0xFFFFFFFFL), extras);
+    }
+
+    private synchronized void addLog(int type, int eventId, long value, int arg) {
         // Merge the logs if its a duplicate
-        int last = (nextIndex + logs.length - 1) % logs.length;
-        int secondLast = (nextIndex + logs.length - 2) % logs.length;
-        if (isEntrySame(logs[last], type, event) && isEntrySame(logs[secondLast], type, event)) {
-            logs[last].update(type, event, extras, mLogId);
-            logs[secondLast].duplicateCount++;
+        int last = (nextIndex + size - 1) % size;
+        int secondLast = (nextIndex + size - 2) % size;
+        if (mCount >= 2 && isEntrySame(last, type, eventId)
+                && isEntrySame(secondLast, type, eventId)) {
+            update(last, type, eventId, value, arg);
+            mDuplicateCounts[secondLast]++;
             return;
         }
 
-        if (logs[nextIndex] == null) {
-            logs[nextIndex] = new EventEntry();
+        update(nextIndex, type, eventId, value, arg);
+        nextIndex = (nextIndex + 1) % size;
+        if (mCount < size) {
+            mCount++;
         }
-        logs[nextIndex].update(type, event, extras, mLogId);
-        nextIndex = (nextIndex + 1) % logs.length;
     }
 
-    public void clear() {
-        Arrays.setAll(logs, (i) -> null);
+    private void update(int index, int type, int eventId, long value, int arg) {
+        mTypes[index] = (byte) type;
+        mEventIds[index] = eventId;
+        mValues[index] = value;
+        mArgs[index] = arg;
+        mTraceIds[index] = mLogId;
+        mTimesNanos[index] = SystemClock.elapsedRealtimeNanos();
+        mDuplicateCounts[index] = 0;
+    }
+
+    public synchronized void clear() {
+        mCount = 0;
+        nextIndex = 0;
+        Arrays.fill(mDuplicateCounts, 0);
     }
 
-    public void dump(String prefix, PrintWriter writer) {
+    public synchronized void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "EventLog (" + name + ") history:");
         SimpleDateFormat sdf = new SimpleDateFormat("  HH:mm:ss.SSSZ  ", Locale.US);
         Date date = new Date();
+        long wallClockOffsetMs = System.currentTimeMillis() - SystemClock.elapsedRealtime();
 
-        for (int i = 0; i < logs.length; i++) {
-            EventEntry log = logs[(nextIndex + logs.length - i - 1) % logs.length];
-            if (log == null) {
-                continue;
-            }
-            date.setTime(log.time);
+        for (int i = 0; i < mCount; i++) {
+            int index = (nextIndex + size - i - 1) % size;
+            date.setTime(wallClockOffsetMs + mTimesNanos[index] / 1_000_000);
 
             StringBuilder msg = new StringBuilder(prefix).append(sdf.format(date))
-                    .append(log.event);
-            switch (log.type) {
-                case TYPE_BOOL_FALSE:
-                    msg.append(": false");
-                    break;
-                case TYPE_BOOL_TRUE:
-                    msg.append(": true");
-                    break;
-                case TYPE_FLOAT:
-                    msg.append(": ").append(log.extras);
-                    break;
-                case TYPE_INTEGER:
-                    msg.append(": ").append((int) log.extras);
-                    break;
-                default: // fall out
+                    .append(getString(mEventIds[index]));
+            appendValue(index, msg);
+            if (mDuplicateCounts[index] > 0) {
+                msg.append(" & ").append(mDuplicateCounts[index]).append(" similar events");
             }
-            if (log.duplicateCount > 0) {
-                msg.append(" & ").append(log.duplicateCount).append(" similar events");
-            }
-            msg.append(" traceId: ").append(log.traceId);
+            msg.append(" traceId: ").append(mTraceIds[index]);
             writer.println(msg);
         }
     }
 
+    private void appendValue(int index, StringBuilder msg) {
+        long value = mValues[index];
+        switch (mTypes[index]) {
+            case TYPE_BOOL_FALSE:
+                msg.append(": false");
+                break;
+            case TYPE_BOOL_TRUE:
+                msg.append(": true");
+                break;
+            case TYPE_FLOAT:
+                msg.append(": ").append(Float.intBitsToFloat((int) value));
+                break;
+            case TYPE_INTEGER:
+                msg.append(": ").append((int) value);
+                break;
+            case TYPE_STRING:
+                msg.append(": ").append(getString((int) value));
+                break;
+            case TYPE_POINT:
+                msg.append("(").append((int) (value >> 32)).append(", ").append((int) value)
+                        .append("): ").append(mArgs[index]);
+                break;
+            default: // fall out
+        }
+    }
+
+    /**
+     * Writes the log as a trace in the JSON trace event format, which can be opened in Perfetto.
+     * Each entry is an instant event with the time of the {@code CLOCK_BOOTTIME} clock.
+     */
+    public synchronized void writeTrace(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject().name("traceEvents").beginArray();
+        int pid = Process.myPid();
+        StringBuilder value = new StringBuilder();
+        for (int i = mCount - 1; i >= 0; i--) {
+            int index = (nextIndex + size - i - 1) % size;
+            value.setLength(0);
+            appendValue(index, value);
+            writer.beginObject()
+                    .name("name").value(getString(mEventIds[index]))
+                    .name("cat").value(name)
+                    .name("ph").value("i")
+                    .name("s").value("p")
+                    .name("ts").value(mTimesNanos[index] / 1000)
+                    .name("pid").value(pid)
+                    .name("tid").value(pid)
+                    .name("args").beginObject()
+                    .name("value").value(value.toString())
+                    .name("duplicates").value(mDuplicateCounts[index])
+                    .name("traceId").value(mTraceIds[index])
+                    .endObject()
+                    .endObject();
+        }
+        writer.endArray().endObject();
+        writer.flush();
+    }
+
     /** Returns a 3 digit random number between 100-999 */
     public int generateAndSetLogId() {
         Random r = new Random();
@@ -124,27 +271,7 @@ public class EventLogArray {
         return mLogId;
     }
 
-    private boolean isEntrySame(EventEntry entry, int type, String event) {
-        return entry != null && entry.type == type && entry.event.equals(event);
-    }
-
-    /** A single event entry. */
-    private static class EventEntry {
-
-        private int type;
-        private String event;
-        private float extras;
-        private long time;
-        private int duplicateCount;
-        private int traceId;
-
-        public void update(int type, String event, float extras, int traceId) {
-            this.type = type;
-            this.event = event;
-            this.extras = extras;
-            this.traceId = traceId;
-            time = System.currentTimeMillis();
-            duplicateCount = 0;
-        }
+    private boolean isEntrySame(int index, int type, int eventId) {
+        return mTypes[index] == type && mEventIds[index] == eventId;
     }
 }
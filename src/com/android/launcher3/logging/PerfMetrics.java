@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process wide registry of performance metrics: counters, gauges and latency histograms.
+ *
+ * Metrics are looked up by name once and kept by the caller, recording a value does not allocate
+ * and can be done from any thread. All metrics are dumped through {@code dumpsys activity} and
+ * can be exported as a {@link PerfMetricsProto.MetricsSnapshot}.
+ */
+public final class PerfMetrics {
+
+    private static final Map<String, Counter> sCounters = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> sGauges = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> sHistograms = new ConcurrentHashMap<>();
+
+    private PerfMetrics() { }
+
+    /**
+     * Returns the counter with the given name, creating it if needed
+     */
+    public static Counter counter(String name) {
+        return sCounters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Returns the gauge with the given name, creating it if needed
+     */
+    public static Gauge gauge(String name) {
+        return sGauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    /**
+     * Removes the gauge with the given name, for a value which no longer exists
+     */
+    public static void removeGauge(String name) {
+        sGauges.remove(name);
+    }
+
+    /**
+     * Returns the latency histogram with the given name, creating it if needed
+     */
+    public static Histogram histogram(String name) {
+        return sHistograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Monotonically increasing count of events
+     */
+    public static final class Counter {
+
+        private final String mName;
+        private final AtomicLong mValue = new AtomicLong();
+
+        private Counter(String name) {
+            mName = name;
+        }
+
+        public void increment() {
+            mValue.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            mValue.addAndGet(delta);
+        }
+
+        public long get() {
+            return mValue.get();
+        }
+    }
+
+    /**
+     * Last known value of a quantity, like the size of a cache
+     */
+    public static final class Gauge {
+
+        private final String mName;
+        private volatile long mValue;
+
+        private Gauge(String name) {
+            mName = name;
+        }
+
+        public void set(long value) {
+            mValue = value;
+        }
+
+        public long get() {
+            return mValue;
+        }
+    }
+
+    /**
+     * Latency histogram with fixed log-linear buckets: every power of two microseconds is split
+     * in {@link #SUB_BUCKETS} linear buckets, which keeps the relative error under 25% from 1us
+     * to several hours.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // Values above 2^38us (~76 hours) go to the last bucket
+        private static final int MAX_EXPONENT = 38;
+        @VisibleForTesting
+        static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+        private final String mName;
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSumUs = new AtomicLong();
+        private final AtomicLong mMaxUs = new AtomicLong();
+
+        private Histogram(String name) {
+            mName = name;
+        }
+
+        /**
+         * Records the time elapsed since {@param startNanos}, as returned by
+         * {@link SystemClock#elapsedRealtimeNanos()}
+         */
+        public void recordSince(long startNanos) {
+            record((SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+        }
+
+        /**
+         * Records a latency in milliseconds
+         */
+        public void recordMillis(long millis) {
+            record(millis * 1000);
+        }
+
+        /**
+         * Records a latency in microseconds
+         */
+        public void record(long us) {
+            if (us < 0) {
+                us = 0;
+            }
+            mBuckets.incrementAndGet(bucketIndex(us));
+            mCount.incrementAndGet();
+            mSumUs.addAndGet(us);
+            long max;
+            do {
+                max = mMaxUs.get();
+            } while (us > max && !mMaxUs.compareAndSet(max, us));
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile in microseconds, within the bucket error
+         */
+        public long getPercentileUs(float percentile) {
+            long count = mCount.get();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), mMaxUs.get());
+                }
+            }
+            return mMaxUs.get();
+        }
+
+        @VisibleForTesting
+        static int bucketIndex(long us) {
+            if (us < SUB_BUCKETS) {
+                return (int) us;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(us);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKET_COUNT - 1;
+            }
+            int subBucket = (int) (us >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + subBucket;
+        }
+
+        @VisibleForTesting
+        static long bucketLowerBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = index % SUB_BUCKETS;
+            return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        private static long bucketUpperBound(int index) {
+            return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : bucketLowerBound(index + 1) - 1;
+        }
+
+        private PerfMetricsProto.Histogram toProto() {
+            PerfMetricsProto.Histogram.Builder builder = PerfMetricsProto.Histogram.newBuilder()
+                    .setName(mName)
+                    .setCount(mCount.get())
+                    .setSumUs(mSumUs.get())
+                    .setMaxUs(mMaxUs.get());
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long bucket = mBuckets.get(i);
+                if (bucket > 0) {
+                    builder.addBucketIndex(i).addBucketCount(bucket);
+                }
+            }
+            return builder.build();
+        }
+
+        private void dump(String prefix, PrintWriter writer) {
+            long count = mCount.get();
+            writer.println(prefix + mName + ": count=" + count
+                    + (count == 0 ? "" : " mean=" + formatUs(mSumUs.get() / count)
+                    + " p50=" + formatUs(getPercentileUs(50))
+                    + " p90=" + formatUs(getPercentileUs(90))
+                    + " p99=" + formatUs(getPercentileUs(99))
+                    + " max=" + formatUs(mMaxUs.get())));
+        }
+
+        private static String formatUs(long us) {
+            return us < 10000 ? us + "us" : (us / 1000) + "ms";
+        }
+    }
+
+    /**
+     * Returns a snapshot of all the metrics
+     */
+    public static PerfMetricsProto.MetricsSnapshot toProto() {
+        PerfMetricsProto.MetricsSnapshot.Builder builder =
+                PerfMetricsProto.MetricsSnapshot.newBuilder()
+                        .setUptimeMillis(SystemClock.uptimeMillis());
+        for (Counter counter : new TreeMap<>(sCounters).values()) {
+            builder.addCounters(PerfMetricsProto.Counter.newBuilder()
+                    .setName(counter.mName).setValue(counter.get()));
+        }
+        for (Gauge gauge : new TreeMap<>(sGauges).values()) {
+            builder.addGauges(PerfMetricsProto.Gauge.newBuilder()
+                    .setName(gauge.mName).setValue(gauge.get()));
+        }
+        for (Histogram histogram : new TreeMap<>(sHistograms).values()) {
+            builder.addHistograms(histogram.toProto());
+        }
+        return builder.build();
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "PerfMetrics:");
+        for (Counter counter : new TreeMap<>(sCounters).values()) {
+            writer.println(prefix + "\t" + counter.mName + ": " + counter.get());
+        }
+        for (Gauge gauge : new TreeMap<>(sGauges).values()) {
+            writer.println(prefix + "\t" + gauge.mName + ": " + gauge.get());
+        }
+        for (Histogram histogram : new TreeMap<>(sHistograms).values()) {
+            histogram.dump(prefix + "\t", writer);
+        }
+    }
+}
@@ -44,6 +44,7 @@ import android.content.pm.ShortcutInfo;
 import android.graphics.Point;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.TextUtils;
@@ -61,7 +62,6 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderGridOrganizer;
-import com.android.launcher3.folder.FolderNameInfos;
 import com.android.launcher3.folder.FolderNameProvider;
 import com.android.launcher3.graphics.LauncherPreviewRenderer;
 import com.android.launcher3.icons.ComponentWithLabelAndIcon;
@@ -71,6 +71,7 @@ import com.android.launcher3.icons.LauncherActivityCachingLogic;
 import com.android.launcher3.icons.ShortcutCachingLogic;
 import com.android.launcher3.icons.cache.IconCacheUpdateHandler;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.PerfMetrics;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.FolderInfo;
 import com.android.launcher3.model.data.ItemInfo;
@@ -117,6 +118,47 @@ public class LoaderTask implements Runnable {
 
     private static final boolean DEBUG = true;
 
+    // Duration of the whole load and of every split, looked up once
+    private static final PerfMetrics.Histogram RUN_LATENCY = PerfMetrics.histogram("loader/run");
+    private static final PerfMetrics.Histogram SPLIT_LOAD_WORKSPACE =
+            PerfMetrics.histogram("loader/loadWorkspace");
+    private static final PerfMetrics.Histogram SPLIT_SANITIZE_DATA =
+            PerfMetrics.histogram("loader/sanitizeData");
+    private static final PerfMetrics.Histogram SPLIT_BIND_WORKSPACE =
+            PerfMetrics.histogram("loader/bindWorkspace");
+    private static final PerfMetrics.Histogram SPLIT_SEND_INSTALLS_BROADCAST =
+            PerfMetrics.histogram("loader/sendFirstScreenActiveInstallsBroadcast");
+    private static final PerfMetrics.Histogram SPLIT_STEP_1_COMPLETE =
+            PerfMetrics.histogram("loader/step 1 complete");
+    private static final PerfMetrics.Histogram SPLIT_LOAD_ALL_APPS =
+            PerfMetrics.histogram("loader/loadAllApps");
+    private static final PerfMetrics.Histogram SPLIT_BIND_ALL_APPS =
+            PerfMetrics.histogram("loader/bindAllApps");
+    private static final PerfMetrics.Histogram SPLIT_UPDATE_ICON_CACHE =
+            PerfMetrics.histogram("loader/update icon cache");
+    private static final PerfMetrics.Histogram SPLIT_SAVE_SHORTCUTS =
+            PerfMetrics.histogram("loader/save shortcuts in icon cache");
+    private static final PerfMetrics.Histogram SPLIT_STEP_2_COMPLETE =
+            PerfMetrics.histogram("loader/step 2 complete");
+    private static final PerfMetrics.Histogram SPLIT_LOAD_DEEP_SHORTCUTS =
+            PerfMetrics.histogram("loader/loadDeepShortcuts");
+    private static final PerfMetrics.Histogram SPLIT_BIND_DEEP_SHORTCUTS =
+            PerfMetrics.histogram("loader/bindDeepShortcuts");
+    private static final PerfMetrics.Histogram SPLIT_SAVE_DEEP_SHORTCUTS =
+            PerfMetrics.histogram("loader/save deep shortcuts in icon cache");
+    private static final PerfMetrics.Histogram SPLIT_STEP_3_COMPLETE =
+            PerfMetrics.histogram("loader/step 3 complete");
+    private static final PerfMetrics.Histogram SPLIT_LOAD_WIDGETS =
+            PerfMetrics.histogram("loader/load widgets");
+    private static final PerfMetrics.Histogram SPLIT_BIND_WIDGETS =
+            PerfMetrics.histogram("loader/bindWidgets");
+    private static final PerfMetrics.Histogram SPLIT_SAVE_WIDGETS =
+            PerfMetrics.histogram("loader/save widgets in icon cache");
+    private static final PerfMetrics.Histogram SPLIT_FINISH_ICON_UPDATE =
+            PerfMetrics.histogram("loader/finish icon update");
+    private static final PerfMetrics.Histogram SPLIT_CANCELLED =
+            PerfMetrics.histogram("loader/Cancelled");
+
     protected final LauncherAppState mApp;
     private final AllAppsList mBgAllAppsList;
     protected final BgDataModel mBgDataModel;
@@ -138,6 +180,8 @@ public class LoaderTask implements Runnable {
     protected final Map<ComponentKey, AppWidgetProviderInfo> mWidgetProvidersMap = new ArrayMap<>();
 
     private boolean mStopped;
+    // Time of the last loader stage split, for the per stage metrics
+    private long mLastSplitNanos;
 
     private final Set<PackageUserKey> mPendingPackages = new HashSet<>();
     private boolean mItemsDeleted = false;
@@ -195,10 +239,12 @@ public class LoaderTask implements Runnable {
 
         Object traceToken = TraceHelper.INSTANCE.beginSection(TAG);
         TimingLogger logger = new TimingLogger(TAG, "run");
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        mLastSplitNanos = startNanos;
         try (LauncherModel.LoaderTransaction transaction = mApp.getModel().beginLoader(this)) {
             List<ShortcutInfo> allShortcuts = new ArrayList<>();
             loadWorkspace(allShortcuts);
-            logASplit(logger, "loadWorkspace");
+            logASplit(logger, "loadWorkspace", SPLIT_LOAD_WORKSPACE);
 
             // Sanitize data re-syncs widgets/shortcuts based on the workspace loaded from db.
             // sanitizeData should not be invoked if the workspace is loaded from a db different
@@ -207,30 +253,31 @@ public class LoaderTask implements Runnable {
             if (mApp.getInvariantDeviceProfile().dbFile.equals(mDbName)) {
                 verifyNotStopped();
                 sanitizeData();
-                logASplit(logger, "sanitizeData");
+                logASplit(logger, "sanitizeData", SPLIT_SANITIZE_DATA);
             }
 
             verifyNotStopped();
             mResults.bindWorkspace(true);
-            logASplit(logger, "bindWorkspace");
+            logASplit(logger, "bindWorkspace", SPLIT_BIND_WORKSPACE);
 
             mModelDelegate.workspaceLoadComplete();
             // Notify the installer packages of packages with active installs on the first screen.
             sendFirstScreenActiveInstallsBroadcast();
-            logASplit(logger, "sendFirstScreenActiveInstallsBroadcast");
+            logASplit(logger, "sendFirstScreenActiveInstallsBroadcast",
+                    SPLIT_SEND_INSTALLS_BROADCAST);
 
             // Take a break
             waitForIdle();
-            logASplit(logger, "step 1 complete");
+            logASplit(logger, "step 1 complete", SPLIT_STEP_1_COMPLETE);
             verifyNotStopped();
 
             // second step
             List<LauncherActivityInfo> allActivityList = loadAllApps();
-            logASplit(logger, "loadAllApps");
+            logASplit(logger, "loadAllApps", SPLIT_LOAD_ALL_APPS);
 
             verifyNotStopped();
             mResults.bindAllApps();
-            logASplit(logger, "bindAllApps");
+            logASplit(logger, "bindAllApps", SPLIT_BIND_ALL_APPS);
 
             verifyNotStopped();
             IconCacheUpdateHandler updateHandler = mIconCache.getUpdateHandler();
@@ -238,31 +285,31 @@ public class LoaderTask implements Runnable {
             updateHandler.updateIcons(allActivityList,
                     LauncherActivityCachingLogic.newInstance(mApp.getContext()),
                     mApp.getModel()::onPackageIconsUpdated);
-            logASplit(logger, "update icon cache");
+            logASplit(logger, "update icon cache", SPLIT_UPDATE_ICON_CACHE);
 
             if (FeatureFlags.ENABLE_DEEP_SHORTCUT_ICON_CACHE.get()) {
                 verifyNotStopped();
-                logASplit(logger, "save shortcuts in icon cache");
+                logASplit(logger, "save shortcuts in icon cache", SPLIT_SAVE_SHORTCUTS);
                 updateHandler.updateIcons(allShortcuts, new ShortcutCachingLogic(),
                         mApp.getModel()::onPackageIconsUpdated);
             }
 
             // Take a break
             waitForIdle();
-            logASplit(logger, "step 2 complete");
+            logASplit(logger, "step 2 complete", SPLIT_STEP_2_COMPLETE);
             verifyNotStopped();
 
             // third step
             List<ShortcutInfo> allDeepShortcuts = loadDeepShortcuts();
-            logASplit(logger, "loadDeepShortcuts");
+            logASplit(logger, "loadDeepShortcuts", SPLIT_LOAD_DEEP_SHORTCUTS);
 
             verifyNotStopped();
             mResults.bindDeepShortcuts();
-            logASplit(logger, "bindDeepShortcuts");
+            logASplit(logger, "bindDeepShortcuts", SPLIT_BIND_DEEP_SHORTCUTS);
 
             if (FeatureFlags.ENABLE_DEEP_SHORTCUT_ICON_CACHE.get()) {
                 verifyNotStopped();
-                logASplit(logger, "save deep shortcuts in icon cache");
+                logASplit(logger, "save deep shortcuts in icon cache", SPLIT_SAVE_DEEP_SHORTCUTS);
                 updateHandler.updateIcons(allDeepShortcuts,
                         new ShortcutCachingLogic(), (pkgs, user) -> {
                         });
@@ -270,23 +317,23 @@ public class LoaderTask implements Runnable {
 
             // Take a break
             waitForIdle();
-            logASplit(logger, "step 3 complete");
+            logASplit(logger, "step 3 complete", SPLIT_STEP_3_COMPLETE);
             verifyNotStopped();
 
             // fourth step
             List<ComponentWithLabelAndIcon> allWidgetsList =
                     mBgDataModel.widgetsModel.update(mApp, null);
-            logASplit(logger, "load widgets");
+            logASplit(logger, "load widgets", SPLIT_LOAD_WIDGETS);
 
             verifyNotStopped();
             mResults.bindWidgets();
-            logASplit(logger, "bindWidgets");
+            logASplit(logger, "bindWidgets", SPLIT_BIND_WIDGETS);
             verifyNotStopped();
 
             updateHandler.updateIcons(allWidgetsList,
                     new ComponentWithIconCachingLogic(mApp.getContext(), true),
                     mApp.getModel()::onWidgetLabelsUpdated);
-            logASplit(logger, "save widgets in icon cache");
+            logASplit(logger, "save widgets in icon cache", SPLIT_SAVE_WIDGETS);
 
             // fifth step
             if (FeatureFlags.FOLDER_NAME_SUGGEST.get()) {
@@ -295,13 +342,16 @@ public class LoaderTask implements Runnable {
 
             verifyNotStopped();
             updateHandler.finish();
-            logASplit(logger, "finish icon update");
+            logASplit(logger, "finish icon update", SPLIT_FINISH_ICON_UPDATE);
+
+            mIconCache.scheduleSnapshotRebuild(getWorkspaceAppKeys());
 
             mModelDelegate.modelLoadComplete();
             transaction.commit();
+            RUN_LATENCY.recordSince(startNanos);
         } catch (CancellationException e) {
             // Loader stopped, ignore
-            logASplit(logger, "Cancelled");
+            logASplit(logger, "Cancelled", SPLIT_CANCELLED);
         } finally {
             logger.dumpToLog();
         }
@@ -981,21 +1031,38 @@ public class LoaderTask implements Runnable {
         return allShortcuts;
     }
 
+    /**
+     * Returns the keys of the apps on the workspace, hotseat and in folders, whose icons are
+     * needed for the first bind.
+     */
+    private List<ComponentKey> getWorkspaceAppKeys() {
+        List<ComponentKey> keys = new ArrayList<>();
+        synchronized (mBgDataModel) {
+            for (ItemInfo item : mBgDataModel.itemsIdMap) {
+                if (item.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+                        && item.getTargetComponent() != null) {
+                    keys.add(new ComponentKey(item.getTargetComponent(), item.user));
+                }
+            }
+        }
+        return keys;
+    }
+
     private void loadFolderNames() {
         FolderNameProvider provider = FolderNameProvider.newInstance(mApp.getContext(),
                 mBgAllAppsList.data, mBgDataModel.folders);
 
+        ArrayList<FolderInfo> folders = new ArrayList<>();
         synchronized (mBgDataModel) {
             for (int i = 0; i < mBgDataModel.folders.size(); i++) {
-                FolderNameInfos suggestionInfos = new FolderNameInfos();
                 FolderInfo info = mBgDataModel.folders.valueAt(i);
                 if (info.suggestedFolderNames == null) {
-                    provider.getSuggestedFolderName(mApp.getContext(), info.contents,
-                            suggestionInfos);
-                    info.suggestedFolderNames = suggestionInfos;
+                    folders.add(info);
                 }
             }
         }
+        // Suggestions are only shown when editing a folder name, compute them after loading
+        provider.computeSuggestions(mApp.getContext(), folders);
     }
 
     public static boolean isValidProvider(AppWidgetProviderInfo provider) {
@@ -1046,8 +1113,12 @@ public class LoaderTask implements Runnable {
         FileLog.d(TAG, widgetDimension.toString());
     }
 
-    private static void logASplit(final TimingLogger logger, final String label) {
+    private void logASplit(final TimingLogger logger, final String label,
+            final PerfMetrics.Histogram histogram) {
         logger.addSplit(label);
+        long now = SystemClock.elapsedRealtimeNanos();
+        histogram.record((now - mLastSplitNanos) / 1000);
+        mLastSplitNanos = now;
         if (DEBUG) {
             Log.d(TAG, label);
         }
@@ -39,6 +39,8 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.PackageManagerHelper;
+import com.android.launcher3.util.TitleSortKey;
+import com.saggitt.omega.allapps.AppColorComparator;
 
 import java.util.Comparator;
 
@@ -63,6 +65,10 @@ public class AppInfo extends ItemInfoWithIcon {
     // Section name used for indexing.
     public String sectionName = "";
 
+    // Sort keys, cached for the title and icon color they were computed from
+    private volatile TitleSortKey mTitleSortKey;
+    private volatile long mColorSortKey;
+
     public AppInfo() {
         itemType = LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
     }
@@ -147,6 +153,34 @@ public class AppInfo extends ItemInfoWithIcon {
         return workspaceItemInfo;
     }
 
+    /**
+     * Returns the sort key of the title, which is only recomputed when the title or the locale
+     * changes.
+     */
+    public TitleSortKey getTitleSortKey() {
+        TitleSortKey key = mTitleSortKey;
+        if (key == null || !key.isValidFor(title)) {
+            key = TitleSortKey.create(title);
+            mTitleSortKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the color bucket of the icon color, see {@link AppColorComparator#getColorBucket}
+     */
+    public int getColorSortKey() {
+        // Upper half holds the icon color, lower half the bucket with the sign bit marking it valid
+        long key = mColorSortKey;
+        if ((int) key < 0 && (int) (key >>> 32) == iconColor) {
+            return (int) key & Integer.MAX_VALUE;
+        }
+        int color = iconColor;
+        int bucket = AppColorComparator.getColorBucket(color);
+        mColorSortKey = ((long) color << 32) | ((bucket | Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        return bucket;
+    }
+
     public ComponentKey toComponentKey() {
         return new ComponentKey(componentName, user);
     }
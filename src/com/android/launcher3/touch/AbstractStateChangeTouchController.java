@@ -161,6 +161,9 @@ public abstract class AbstractStateChangeTouchController
 
         mFromState = newFromState;
         mToState = newToState;
+        if (newToState == ALL_APPS) {
+            mLauncher.getAppsView().prewarm();
+        }
 
         mStartProgress = 0;
         if (mCurrentAnimation != null) {
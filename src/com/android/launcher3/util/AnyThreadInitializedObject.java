@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Utility class for defining singletons which can be initiated on any thread, for objects doing
+ * disk I/O when they are created. The object is created on the calling thread after all of its
+ * dependencies, instead of blocking the caller on the main thread. Objects registered with
+ * {@link StartupInitializer} are created eagerly in the background at process start.
+ */
+public class AnyThreadInitializedObject<T> extends MainThreadInitializedObject<T> {
+
+    private final String mName;
+    private final ObjectProvider<T> mProvider;
+    private final MainThreadInitializedObject<?>[] mDependencies;
+    private volatile T mValue;
+
+    /**
+     * @param name         Name used for the initialization timings
+     * @param dependencies Objects which are used by {@param provider}
+     */
+    public AnyThreadInitializedObject(String name, ObjectProvider<T> provider,
+            MainThreadInitializedObject<?>... dependencies) {
+        super(provider);
+        mName = name;
+        mProvider = provider;
+        mDependencies = dependencies;
+    }
+
+    @Override
+    public T get(Context context) {
+        if (context instanceof SandboxContext) {
+            return super.get(context);
+        }
+
+        T value = mValue;
+        if (value != null) {
+            return value;
+        }
+        // Dependencies are created outside of the lock, as main thread objects can block on the
+        // main thread, which could in turn be waiting for this object.
+        for (MainThreadInitializedObject<?> dependency : mDependencies) {
+            dependency.get(context);
+        }
+        synchronized (this) {
+            if (mValue == null) {
+                Object traceToken = TraceHelper.INSTANCE.beginSection(mName);
+                long start = SystemClock.elapsedRealtime();
+                mValue = mProvider.get(context.getApplicationContext());
+                StartupInitializer.onObjectInitialized(mName,
+                        SystemClock.elapsedRealtime() - start);
+                TraceHelper.INSTANCE.endSection(traceToken);
+            }
+            return mValue;
+        }
+    }
+
+    @Override
+    public T getNoCreate() {
+        return mValue;
+    }
+
+    @VisibleForTesting
+    @Override
+    public void initializeForTesting(T value) {
+        mValue = value;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
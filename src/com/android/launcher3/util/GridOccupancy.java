@@ -6,18 +6,39 @@ import com.android.launcher3.model.data.ItemInfo;
 
 /**
  * Utility object to manage the occupancy in a grid.
+ *
+ * The occupancy is stored as one bit-board word per row, where bit {@code x} of {@code rows[y]}
+ * represents the cell (x, y). This allows span checks to be done a row at a time.
  */
 public class GridOccupancy {
 
     private final int mCountX;
     private final int mCountY;
 
-    public final boolean[][] cells;
+    private final long[] mRows;
 
     public GridOccupancy(int countX, int countY) {
+        if (countX > Long.SIZE) {
+            throw new IllegalArgumentException("Grid can not be wider than " + Long.SIZE);
+        }
         mCountX = countX;
         mCountY = countY;
-        cells = new boolean[countX][countY];
+        mRows = new long[countY];
+    }
+
+    /**
+     * Returns a mask with {@param span} bits set, starting at {@param x}
+     */
+    private static long spanMask(int x, int span) {
+        if (span <= 0) {
+            return 0;
+        }
+        long mask = span >= Long.SIZE ? -1L : (1L << span) - 1;
+        return mask << x;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return (mRows[y] & (1L << x)) != 0;
     }
 
     /**
@@ -31,16 +52,13 @@ public class GridOccupancy {
      */
     public boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
         for (int y = 0; (y + spanY) <= mCountY; y++) {
+            // Collapse all the rows of the span, so that the search along x is a single word scan
+            long occupied = 0;
+            for (int j = y; j < y + spanY; j++) {
+                occupied |= mRows[j];
+            }
             for (int x = 0; (x + spanX) <= mCountX; x++) {
-                boolean available = !cells[x][y];
-                out:
-                for (int i = x; i < x + spanX; i++) {
-                    for (int j = y; j < y + spanY; j++) {
-                        available = available && !cells[i][j];
-                        if (!available) break out;
-                    }
-                }
-                if (available) {
+                if ((occupied & spanMask(x, spanX)) == 0) {
                     vacantOut[0] = x;
                     vacantOut[1] = y;
                     return true;
@@ -51,34 +69,53 @@ public class GridOccupancy {
     }
 
     public void copyTo(GridOccupancy dest) {
-        for (int i = 0; i < mCountX; i++) {
-            for (int j = 0; j < mCountY; j++) {
-                dest.cells[i][j] = cells[i][j];
+        System.arraycopy(mRows, 0, dest.mRows, 0, mCountY);
+    }
+
+    public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+        int x2 = x + spanX - 1;
+        int y2 = y + spanY - 1;
+        if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
+            return false;
+        }
+        long mask = spanMask(x, spanX);
+        for (int j = y; j <= y2; j++) {
+            if ((mRows[j] & mask) != 0) {
+                return false;
             }
         }
+        return true;
     }
 
-    public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+    /**
+     * Returns true if the block of cells {@param block} can be placed at (x, y) without
+     * overlapping any occupied cell. Only the top-left spanX x spanY region of the block is
+     * considered.
+     */
+    public boolean isRegionVacant(int x, int y, int spanX, int spanY, GridOccupancy block) {
         int x2 = x + spanX - 1;
         int y2 = y + spanY - 1;
         if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
             return false;
         }
-        for (int i = x; i <= x2; i++) {
-            for (int j = y; j <= y2; j++) {
-                if (cells[i][j]) {
-                    return false;
-                }
+        long mask = spanMask(0, spanX);
+        for (int j = 0; j < spanY; j++) {
+            if (((mRows[y + j] >>> x) & block.mRows[j] & mask) != 0) {
+                return false;
             }
         }
         return true;
     }
 
     public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
-        if (cellX < 0 || cellY < 0) return;
-        for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
-            for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
-                cells[x][y] = value;
+        if (cellX < 0 || cellY < 0 || cellX >= mCountX) return;
+        long mask = spanMask(cellX, Math.min(spanX, mCountX - cellX));
+        int y2 = Math.min(cellY + spanY, mCountY);
+        for (int y = cellY; y < y2; y++) {
+            if (value) {
+                mRows[y] |= mask;
+            } else {
+                mRows[y] &= ~mask;
             }
         }
     }
@@ -96,6 +133,8 @@ public class GridOccupancy {
     }
 
     public void clear() {
-        markCells(0, 0, mCountX, mCountY, false);
+        for (int y = 0; y < mCountY; y++) {
+            mRows[y] = 0;
+        }
     }
 }
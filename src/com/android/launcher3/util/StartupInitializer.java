@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates {@link AnyThreadInitializedObject}s eagerly on the background pool at process start,
+ * and keeps the time each of them took to initialize.
+ */
+public final class StartupInitializer {
+
+    private static final String TAG = "StartupInitializer";
+
+    private static final List<String> sTimings = new ArrayList<>();
+
+    private StartupInitializer() { }
+
+    /**
+     * Starts creating {@param objects} in the background. Each object creates its own
+     * dependencies first, so independent objects are initialized in parallel while shared
+     * dependencies are only created once.
+     */
+    public static void initialize(Context context, AnyThreadInitializedObject<?>... objects) {
+        Context appContext = context.getApplicationContext();
+        for (AnyThreadInitializedObject<?> object : objects) {
+            THREAD_POOL_EXECUTOR.execute(() -> {
+                try {
+                    object.get(appContext);
+                } catch (RuntimeException e) {
+                    // Retried by the first caller, which gets to handle the error
+                    Log.e(TAG, "Failed to initialize " + object, e);
+                }
+            });
+        }
+    }
+
+    static void onObjectInitialized(String name, long durationMs) {
+        String timing = name + ": " + durationMs + "ms on " + Thread.currentThread().getName();
+        synchronized (sTimings) {
+            sTimings.add(timing);
+        }
+    }
+
+    /**
+     * Dumps the initialization timings, in the order the objects finished initializing
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Startup initialization:");
+        synchronized (sTimings) {
+            for (String timing : sTimings) {
+                writer.println(prefix + "\t" + timing);
+            }
+        }
+    }
+}
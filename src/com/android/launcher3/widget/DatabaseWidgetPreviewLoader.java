@@ -41,6 +41,7 @@ import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.os.CancellationSignal;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.Log;
 import android.util.LongSparseArray;
@@ -59,6 +60,7 @@ import com.android.launcher3.icons.GraphicsUtils;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.icons.LauncherIcons;
 import com.android.launcher3.icons.ShadowGenerator;
+import com.android.launcher3.logging.PerfMetrics;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.pm.ShortcutConfigActivityInfo;
 import com.android.launcher3.pm.UserCache;
@@ -84,6 +86,11 @@ public class DatabaseWidgetPreviewLoader implements WidgetPreviewLoader {
     private static final String TAG = "WidgetPreviewLoader";
     private static final boolean DEBUG = false;
 
+    private static final PerfMetrics.Histogram PREVIEW_LOAD_LATENCY =
+            PerfMetrics.histogram("widgets/preview_load");
+    private static final PerfMetrics.Counter PREVIEWS_GENERATED =
+            PerfMetrics.counter("widgets/preview_generated");
+
     private final HashMap<String, long[]> mPackageVersions = new HashMap<>();
 
     /**
@@ -644,6 +651,7 @@ public class DatabaseWidgetPreviewLoader implements WidgetPreviewLoader {
             if (isCancelled()) {
                 return null;
             }
+            long startNanos = SystemClock.elapsedRealtimeNanos();
             synchronized (mUnusedBitmaps) {
                 // Check if we can re-use a bitmap
                 for (Bitmap candidate : mUnusedBitmaps) {
@@ -677,6 +685,7 @@ public class DatabaseWidgetPreviewLoader implements WidgetPreviewLoader {
                         : null;
 
                 // it's not in the db... we need to generate it
+                PREVIEWS_GENERATED.increment();
                 Pair<Bitmap, Boolean> pair = generatePreview(mActivity, mInfo, unusedBitmap,
                         mPreviewWidth, mPreviewHeight);
                 preview = pair.first;
@@ -687,6 +696,7 @@ public class DatabaseWidgetPreviewLoader implements WidgetPreviewLoader {
 
                 this.mSaveToDB = pair.second;
             }
+            PREVIEW_LOAD_LATENCY.recordSince(startNanos);
             return preview;
         }
 
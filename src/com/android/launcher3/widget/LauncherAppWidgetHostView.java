@@ -104,6 +104,9 @@ public class LauncherAppWidgetHostView extends BaseLauncherAppWidgetHostView
     private boolean mHasDeferredColorChange = false;
     private @Nullable
     SparseIntArray mDeferredColorChange = null;
+    // Latest update received while the widget could not be seen, only used on the main thread
+    private RemoteViews mHeldBackRemoteViews;
+    private boolean mHasAppliedRemoteViews = false;
     private boolean mEnableColorExtraction = true;
 
     public LauncherAppWidgetHostView(Context context) {
@@ -167,13 +170,52 @@ public class LauncherAppWidgetHostView extends BaseLauncherAppWidgetHostView
     public void updateAppWidget(RemoteViews remoteViews) {
         synchronized (mUpdateLock) {
             if (isDeferringUpdates()) {
+                if (mDeferredRemoteViews != null) {
+                    WidgetUpdateScheduler.COALESCED.increment();
+                }
                 mDeferredRemoteViews = remoteViews;
                 return;
             }
             mDeferredRemoteViews = null;
         }
 
+        WidgetUpdateScheduler scheduler = mLauncher.getWidgetUpdateScheduler();
+        if (remoteViews != null && mHasAppliedRemoteViews && scheduler != null
+                && !scheduler.isVisible(this)) {
+            // Only the latest update is applied once the widget can be seen
+            if (mHeldBackRemoteViews != null) {
+                WidgetUpdateScheduler.COALESCED.increment();
+            } else {
+                WidgetUpdateScheduler.SKIPPED.increment();
+            }
+            mHeldBackRemoteViews = remoteViews;
+            scheduler.addPendingView(this);
+            return;
+        }
+        if (mHeldBackRemoteViews != null) {
+            mHeldBackRemoteViews = null;
+            if (scheduler != null) {
+                scheduler.removePendingView(this);
+            }
+        }
+        applyRemoteViews(remoteViews);
+    }
+
+    /**
+     * Applies the update held back while the widget could not be seen, if any
+     */
+    void applyHeldBackUpdate() {
+        RemoteViews remoteViews = mHeldBackRemoteViews;
+        if (remoteViews != null) {
+            mHeldBackRemoteViews = null;
+            applyRemoteViews(remoteViews);
+        }
+    }
+
+    private void applyRemoteViews(RemoteViews remoteViews) {
         super.updateAppWidget(remoteViews);
+        mHasAppliedRemoteViews = remoteViews != null;
+        WidgetUpdateScheduler.APPLIED.increment();
 
         // The provider info or the views might have changed.
         checkIfAutoAdvance();
@@ -278,6 +320,12 @@ public class LauncherAppWidgetHostView extends BaseLauncherAppWidgetHostView
         mIsAttachedToWindow = true;
         checkIfAutoAdvance();
 
+        WidgetUpdateScheduler scheduler = mLauncher.getWidgetUpdateScheduler();
+        if (mHeldBackRemoteViews != null && scheduler != null) {
+            scheduler.addPendingView(this);
+            scheduler.onVisibilityChanged();
+        }
+
         if (mLastLocationRegistered != null) {
             mColorExtractor.addLocation(List.of(mLastLocationRegistered));
         }
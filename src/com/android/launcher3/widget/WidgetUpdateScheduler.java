@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2022 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.LauncherState.ALL_APPS;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewParent;
+
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherState;
+import com.android.launcher3.ShortcutAndWidgetContainer;
+import com.android.launcher3.Workspace;
+import com.android.launcher3.logging.PerfMetrics;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+/**
+ * Holds back the {@link android.widget.RemoteViews} updates of workspace widgets which cannot be
+ * seen, because they are on another page or the workspace is covered by all apps or overview.
+ * Each widget only keeps its latest update, which is applied once the widget becomes visible.
+ * Pending updates are applied within a time budget per frame, so that a page full of widgets does
+ * not stall the page scroll which reveals it.
+ */
+public class WidgetUpdateScheduler implements Choreographer.FrameCallback {
+
+    private static final long FRAME_BUDGET_NANOS = 4_000_000;
+
+    static final PerfMetrics.Counter APPLIED = PerfMetrics.counter("widgets/update_applied");
+    static final PerfMetrics.Counter SKIPPED = PerfMetrics.counter("widgets/update_skipped");
+    static final PerfMetrics.Counter COALESCED = PerfMetrics.counter("widgets/update_coalesced");
+
+    private final Launcher mLauncher;
+    private final LinkedHashSet<LauncherAppWidgetHostView> mPendingViews = new LinkedHashSet<>();
+    private final ArrayList<LauncherAppWidgetHostView> mTempViews = new ArrayList<>();
+    private boolean mFrameCallbackPosted;
+
+    public WidgetUpdateScheduler(Launcher launcher) {
+        mLauncher = launcher;
+    }
+
+    /**
+     * Returns whether the updates of {@param view} should be applied right away
+     */
+    boolean isVisible(LauncherAppWidgetHostView view) {
+        ViewParent container = view.getParent();
+        if (!(container instanceof ShortcutAndWidgetContainer)
+                || !(container.getParent() instanceof CellLayout)) {
+            // Not bound to the workspace, like a widget being dragged
+            return true;
+        }
+        // Only these states cover the workspace, it is still visible while dragging or hinting
+        LauncherState state = mLauncher.getStateManager().getState();
+        if (state == ALL_APPS || state.overviewUi) {
+            return false;
+        }
+        View cellLayout = (View) container.getParent();
+        Workspace workspace = mLauncher.getWorkspace();
+        if (cellLayout.getParent() != workspace) {
+            // Hotseat
+            return true;
+        }
+        int page = workspace.indexOfChild(cellLayout);
+        int[] visiblePages = workspace.getVisibleChildrenRange();
+        return page >= visiblePages[0] && page <= visiblePages[1];
+    }
+
+    /**
+     * Registers {@param view} as having an update held back until it is visible
+     */
+    void addPendingView(LauncherAppWidgetHostView view) {
+        mPendingViews.add(view);
+    }
+
+    void removePendingView(LauncherAppWidgetHostView view) {
+        mPendingViews.remove(view);
+    }
+
+    /**
+     * Called when the visible workspace pages or the launcher state changed, to apply the
+     * updates of the widgets which became visible.
+     */
+    public void onVisibilityChanged() {
+        if (!mPendingViews.isEmpty() && !mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        mTempViews.addAll(mPendingViews);
+        boolean hasVisiblePendingViews = false;
+        for (LauncherAppWidgetHostView view : mTempViews) {
+            if (!view.isAttachedToWindow()) {
+                // Registered again if it is attached back
+                mPendingViews.remove(view);
+            } else if (isVisible(view)) {
+                if (SystemClock.elapsedRealtimeNanos() - startNanos > FRAME_BUDGET_NANOS) {
+                    hasVisiblePendingViews = true;
+                    break;
+                }
+                mPendingViews.remove(view);
+                view.applyHeldBackUpdate();
+            }
+        }
+        mTempViews.clear();
+        if (hasVisiblePendingViews) {
+            onVisibilityChanged();
+        }
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "WidgetUpdateScheduler: pending=" + mPendingViews.size()
+                + " applied=" + APPLIED.get()
+                + " skipped=" + SKIPPED.get()
+                + " coalesced=" + COALESCED.get());
+    }
+}